@@ -0,0 +1,197 @@
+package org.freeswitch.esl.client.dptools;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.freeswitch.esl.client.internal.IModEslAsyncApi;
+import org.freeswitch.esl.client.transport.CommandResponse;
+import org.freeswitch.esl.client.transport.SendMsg;
+
+/**
+ * Non-blocking counterpart of {@link Execute}: each application is sent to the call, and a future
+ * of the server's response is returned at once. A future fails with an {@link ExecuteException}
+ * when the server rejects the application.
+ * <p/>
+ * The messages carry the UUID of the call, so that calls can be driven from an inbound connection
+ * as well as from their outbound one. Applications this class has no method for are run with
+ * {@link #execute(String, String)}.
+ */
+public class AsyncExecute {
+
+    private final IModEslAsyncApi api;
+    private final String uuid;
+
+    public AsyncExecute(IModEslAsyncApi api, String uuid) {
+        this.api = api;
+        this.uuid = uuid;
+    }
+
+    /**
+     * Executes a dialplan application on the call.
+     *
+     * @param app
+     *            name of the application, ex: playback
+     * @param args
+     *            arguments of the application, may be null
+     * @return the response of the server, or an {@link ExecuteException} if it
+     *         rejected the application
+     */
+    public CompletableFuture<CommandResponse> execute(String app, String args) {
+        SendMsg msg = new SendMsg(uuid);
+        msg.addCallCommand("execute");
+        msg.addExecuteAppName(app);
+        if (args != null)
+            msg.addExecuteAppArg(args);
+        return api.sendMessage(msg).thenApply(resp -> {
+            if (!resp.isOk())
+                throw new CompletionException(new ExecuteException(resp.getReplyText()));
+            return resp;
+        });
+    }
+
+    /**
+     * Executes a dialplan application without arguments on the call.
+     *
+     * @see #execute(String, String)
+     */
+    public CompletableFuture<CommandResponse> execute(String app) {
+        return execute(app, null);
+    }
+
+    /**
+     * Answers an incoming call or session.
+     *
+     * @see Execute#answer()
+     */
+    public CompletableFuture<CommandResponse> answer() {
+        return execute("answer");
+    }
+
+    /**
+     * Establishes early media without answering.
+     *
+     * @see Execute#preAnswer()
+     */
+    public CompletableFuture<CommandResponse> preAnswer() {
+        return execute("pre_answer");
+    }
+
+    /**
+     * Bridges the call to an endpoint.
+     *
+     * @see Execute#bridge(String)
+     */
+    public CompletableFuture<CommandResponse> bridge(String endpoint) {
+        return execute("bridge", endpoint);
+    }
+
+    /**
+     * Hangs up the call.
+     *
+     * @see Execute#hangup()
+     */
+    public CompletableFuture<CommandResponse> hangup() {
+        return execute("hangup");
+    }
+
+    /**
+     * Hangs up the call with a cause.
+     *
+     * @see Execute#hangup(String)
+     */
+    public CompletableFuture<CommandResponse> hangup(String reason) {
+        return execute("hangup", reason);
+    }
+
+    /**
+     * Parks the call.
+     *
+     * @see Execute#park()
+     */
+    public CompletableFuture<CommandResponse> park() {
+        return execute("park");
+    }
+
+    /**
+     * Plays a sound file on the call.
+     *
+     * @see Execute#playback(String)
+     */
+    public CompletableFuture<CommandResponse> playback(String file) {
+        return execute("playback", file);
+    }
+
+    /**
+     * Sets a channel variable.
+     *
+     * @see Execute#set(String, String)
+     */
+    public CompletableFuture<CommandResponse> set(String key, String value) {
+        return execute("set", key + "=" + value);
+    }
+
+    /**
+     * Transfers the call to an extension.
+     *
+     * @see Execute#transfer(String)
+     */
+    public CompletableFuture<CommandResponse> transfer(String destinationNumber) {
+        return execute("transfer", destinationNumber);
+    }
+
+    /**
+     * Plays a prompt and gets digits.
+     *
+     * @return collected digits or null if none
+     * @see Execute#playAndGetDigits
+     */
+    public CompletableFuture<String> playAndGetDigits(int min, int max, int tries, int timeout,
+            String terminator, String file, String invalidFile, String regexp,
+            int digitTimeout) {
+
+        String id = UUID.randomUUID().toString();
+
+        return execute("play_and_get_digits",
+                String.valueOf(min)
+                        + " " + max
+                        + " " + tries
+                        + " " + timeout
+                        + " " + terminator
+                        + " " + file
+                        + " " + invalidFile
+                        + " " + id
+                        + " " + regexp
+                        + " " + digitTimeout)
+                .thenCompose(resp -> getVariable(id));
+    }
+
+    /**
+     * Reads DTMF digits.
+     *
+     * @return read string or null
+     * @see Execute#read
+     */
+    public CompletableFuture<String> read(int min, int max, String soundFile, long timeout,
+            String terminators) {
+
+        String id = UUID.randomUUID().toString();
+
+        return execute("read",
+                String.valueOf(min) + " " + max + " " + soundFile + " " + id + " " + timeout + " " + terminators)
+                .thenCompose(resp -> getVariable(id));
+    }
+
+    /**
+     * @param name
+     *            of the channel variable
+     * @return the value of the variable, or null if the server returned none
+     */
+    public CompletableFuture<String> getVariable(String name) {
+        return api.sendApiCommand("uuid_getvar", uuid + " " + name).thenApply(eslMessage -> {
+            List<String> lines = eslMessage.getBodyLines();
+            return lines.isEmpty() ? null : lines.get(0);
+        });
+    }
+}
@@ -23,12 +23,23 @@ import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.freeswitch.esl.client.internal.BackgroundJobRegistry;
+import org.freeswitch.esl.client.internal.BackgroundJobRegistry.RejectionPolicy;
 import org.freeswitch.esl.client.internal.Context;
+import org.freeswitch.esl.client.internal.ExecutorEventDispatcher;
+import org.freeswitch.esl.client.internal.FlushPolicy;
 import org.freeswitch.esl.client.internal.IModEslApi;
+import org.freeswitch.esl.client.internal.IEslEventDispatcher;
+import org.freeswitch.esl.client.internal.IModEslAsyncApi;
+import org.freeswitch.esl.client.internal.WriteMetrics;
 import org.freeswitch.esl.client.transport.CommandResponse;
 import org.freeswitch.esl.client.transport.SendMsg;
 import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.event.HeaderProjection;
+import org.freeswitch.esl.client.transport.message.EslCommand;
 import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.freeswitch.esl.client.transport.message.IEslBodyConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,7 +47,11 @@ import java.net.SocketAddress;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Entry point to connect to a running FreeSWITCH Event Socket Library module, as a client.
@@ -50,22 +65,107 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class Client implements IModEslApi {
 
 	private final Logger log = LoggerFactory.getLogger(this.getClass());
-	private final List<IEslEventListener> eventListeners = new CopyOnWriteArrayList<>();
-	private final AtomicBoolean authenticatorResponded = new AtomicBoolean(false);
-	private final ConcurrentHashMap<String, CompletableFuture<EslEvent>> backgroundJobs =
-			new ConcurrentHashMap<>();
+	private final EventListenerIndex eventListeners = new EventListenerIndex();
 
-	private boolean authenticated;
-	private CommandResponse authenticationResponse;
+	private volatile boolean authenticated;
+	// completed with the auth reply of the connection being established
+	private volatile CompletableFuture<CommandResponse> authentication = new CompletableFuture<>();
 	private Optional<Context> clientContext = Optional.empty();
-	private ExecutorService callbackExecutor = Executors.newSingleThreadExecutor();
+	private volatile InboundClientHandler clientHandler;
+	// as set by the last event subscription, before the headers the filters test are added
+	private volatile HeaderProjection headerProjection;
+	private IEslEventDispatcher eventDispatcher = new ExecutorEventDispatcher(Executors.newSingleThreadExecutor());
+	private boolean retainFrames = false;
+	private boolean pooledEvents = false;
+	private FlushPolicy flushPolicy = FlushPolicy.DEFAULT;
+	private long commandTimeoutMillis;
+	private long backgroundJobTimeoutMillis;
+	private int maxBackgroundJobs = Integer.MAX_VALUE;
+	private RejectionPolicy backgroundJobRejectionPolicy = RejectionPolicy.FAIL_NEW;
 
+	/**
+	 * Registers a listener for every event.
+	 *
+	 * @param listener delivered the events
+	 */
 	public void addEventListener(IEslEventListener listener) {
 		if (listener != null) {
 			eventListeners.add(listener);
 		}
 	}
 
+	/**
+	 * Registers a listener for the events of a name, such as {@code CHANNEL_ANSWER}. The events no
+	 * listener is registered for are not handed over to the {@link #setEventDispatcher dispatcher}.
+	 *
+	 * @param eventName the {@code Event-Name} of the events
+	 * @param listener  delivered the events
+	 */
+	public void addEventListener(String eventName, IEslEventListener listener) {
+		eventListeners.addForName(eventName, listener);
+	}
+
+	/**
+	 * Registers a listener for the {@code CUSTOM} events of a subclass, such as
+	 * {@code conference::maintenance}, or of all the subclasses starting with a prefix when ending
+	 * with {@code *}, such as {@code conference::*}.
+	 *
+	 * @param subclass the {@code Event-Subclass} of the events, or a prefix of it followed by
+	 *                 {@code *}
+	 * @param listener delivered the events
+	 */
+	public void addCustomEventListener(String subclass, IEslEventListener listener) {
+		eventListeners.addForSubclass(subclass, listener);
+	}
+
+	/**
+	 * Registers a listener for the events matching a predicate. The predicate is tested on every
+	 * event, on the IO thread, and must then be quick and not block. With a {@link HeaderProjection},
+	 * the predicate only sees the projected headers.
+	 *
+	 * @param predicate of the events, on their headers
+	 * @param listener  delivered the events
+	 */
+	public void addEventListener(Predicate<EslEvent> predicate, IEslEventListener listener) {
+		eventListeners.addForPredicate(predicate, listener);
+	}
+
+	/**
+	 * Registers a listener for the events matching a filter, such as
+	 * {@code header("Channel-State").is("CS_EXECUTE").and(header("variable_tenant_id").in(tenants))}.
+	 * The filters of all the listeners are compiled into an index, so that a large number of them
+	 * are matched in a few lookups per event, on the IO thread. The headers the filter tests are
+	 * added to the {@link HeaderProjection} of the event subscription, if any.
+	 *
+	 * @param filter   of the events, on their headers
+	 * @param listener delivered the events
+	 */
+	public void addEventListener(EventFilter filter, IEslEventListener listener) {
+		eventListeners.addForFilter(filter, listener);
+		final HeaderProjection projection = headerProjection;
+		final InboundClientHandler handler = clientHandler;
+		if (projection != null && handler != null) {
+			handler.setHeaderProjection(withFilteredHeaders(projection));
+		}
+	}
+
+	/**
+	 * @return the projection, with the headers the filters of the listeners test
+	 */
+	private HeaderProjection withFilteredHeaders(HeaderProjection projection) {
+		return projection == null ? null : projection.with(eventListeners.headers());
+	}
+
+	/**
+	 * Removes every registration of a listener.
+	 *
+	 * @param listener to remove
+	 * @return true if the listener was registered
+	 */
+	public boolean removeEventListener(IEslEventListener listener) {
+		return eventListeners.remove(listener);
+	}
+
 	@Override
 	public boolean canSend() {
 		return clientContext.isPresent()
@@ -73,14 +173,141 @@ public class Client implements IModEslApi {
 			&& authenticated;
 	}
 
+	/**
+	 * @return the asynchronous operations of the current connection, which return futures rather
+	 * than blocking until the server has replied
+	 */
+	@Override
+	public IModEslAsyncApi async() {
+		checkConnected();
+		return clientContext.get().async();
+	}
+
 	private void checkConnected() {
 		if (!canSend()) {
 			throw new IllegalStateException("Not connected to FreeSWITCH Event Socket");
 		}
 	}
 
+	/**
+	 * Delivers the events to the listeners as tasks of an executor, a single thread one by default.
+	 *
+	 * @param callbackExecutor delivering the events
+	 * @see #setEventDispatcher
+	 */
 	public void setCallbackExecutor(ExecutorService callbackExecutor) {
-		this.callbackExecutor = callbackExecutor;
+		setEventDispatcher(new ExecutorEventDispatcher(callbackExecutor));
+	}
+
+	/**
+	 * Sets the threads delivering the events to the listeners, such as a
+	 * {@link org.freeswitch.esl.client.internal.StripedEventDispatcher} delivering the events of different calls in parallel while
+	 * keeping the events of each call in order.
+	 *
+	 * @param eventDispatcher delivering the events received from now on
+	 */
+	public void setEventDispatcher(IEslEventDispatcher eventDispatcher) {
+		this.eventDispatcher = checkNotNull(eventDispatcher, "eventDispatcher");
+	}
+
+	/**
+	 * Decode incoming messages as retained slices of the inbound network buffers instead of heap
+	 * copies. Header values and body lines are then read straight from the network buffer, and
+	 * only for the headers that are actually used. Takes effect on the next {@link #connect}.
+	 *
+	 * @param retainFrames true to enable zero-copy decoding
+	 */
+	public void setRetainFrames(boolean retainFrames) {
+		this.retainFrames = retainFrames;
+	}
+
+	/**
+	 * Recycle events and the messages carrying them, so that a steady flow of events does not
+	 * allocate them. Implies {@link #setRetainFrames retained frames}. Takes effect on the next
+	 * {@link #connect}.
+	 * <p/>
+	 * Events are then {@link io.netty.util.ReferenceCounted} and only valid until
+	 * {@link IEslEventListener#onEslEvent} returns: a listener keeping an event, or any map or list
+	 * obtained from it, must {@code retain()} it and {@code release()} it once done (see
+	 * {@link ReferenceCountUtil}). Run with {@code -Dio.netty.leakDetection.level=paranoid} to have
+	 * every leaked event reported and every use of a released event fail.
+	 *
+	 * @param pooledEvents true to recycle events
+	 * @see EslEvent#newPooledInstance
+	 */
+	public void setPooledEvents(boolean pooledEvents) {
+		this.pooledEvents = pooledEvents;
+	}
+
+	/**
+	 * Sets when the commands sent are flushed to the socket. By default, the commands sent at once by
+	 * several threads are coalesced into fewer flushes. Takes effect on the next {@link #connect}.
+	 *
+	 * @param flushPolicy {@link FlushPolicy#IMMEDIATE} to flush each command on its own
+	 */
+	public void setFlushPolicy(FlushPolicy flushPolicy) {
+		this.flushPolicy = checkNotNull(flushPolicy, "flushPolicy");
+	}
+
+	/**
+	 * Sets the deadline of the responses to the commands sent, after which a command fails with a
+	 * {@link TimeoutException} rather than blocking its caller for ever. There is none by default.
+	 * Takes effect on the next {@link #connect}.
+	 *
+	 * @param timeout of the commands sent without a deadline of their own, 0 for none
+	 * @param unit    of the timeout
+	 * @see #sendApiCommand(String, String, long, TimeUnit)
+	 */
+	public void setCommandTimeout(long timeout, TimeUnit unit) {
+		checkArgument(timeout >= 0, "timeout cannot be negative");
+		this.commandTimeoutMillis = unit.toMillis(timeout);
+	}
+
+	/**
+	 * Sets the deadline of the background jobs, after which a job whose BACKGROUND_JOB event has not
+	 * been received, such as because the connection is not subscribed to it, fails with a
+	 * {@link TimeoutException} rather than being kept for ever. There is none by default. Takes
+	 * effect on the next {@link #connect}.
+	 *
+	 * @param timeout of the jobs sent without a deadline of their own, 0 for none
+	 * @param unit    of the timeout
+	 * @see #sendBackgroundApiCommand(String, String, long, TimeUnit)
+	 */
+	public void setBackgroundJobTimeout(long timeout, TimeUnit unit) {
+		checkArgument(timeout >= 0, "timeout cannot be negative");
+		this.backgroundJobTimeoutMillis = unit.toMillis(timeout);
+	}
+
+	/**
+	 * Bounds the number of background jobs awaiting their BACKGROUND_JOB event, unbounded by default.
+	 * Takes effect on the next {@link #connect}.
+	 *
+	 * @param maxJobs         most jobs in flight
+	 * @param rejectionPolicy saying which job fails, with a {@link RejectedExecutionException}, when
+	 *                        one more is sent
+	 */
+	public void setMaxBackgroundJobs(int maxJobs, RejectionPolicy rejectionPolicy) {
+		checkArgument(maxJobs > 0, "maxJobs must be positive");
+		this.maxBackgroundJobs = maxJobs;
+		this.backgroundJobRejectionPolicy = checkNotNull(rejectionPolicy, "rejectionPolicy");
+	}
+
+	/**
+	 * @return the background jobs of the current connection awaiting their BACKGROUND_JOB event, and
+	 * the counts of the jobs completed and failed
+	 */
+	public BackgroundJobRegistry getBackgroundJobs() {
+		checkConnected();
+		return clientContext.get().getBackgroundJobs();
+	}
+
+	/**
+	 * @return the counts of the commands sent on the current connection and of the flushes sending
+	 * them
+	 */
+	public WriteMetrics getWriteMetrics() {
+		checkConnected();
+		return clientContext.get().getWriteMetrics();
 	}
 
 	/**
@@ -91,12 +318,42 @@ public class Client implements IModEslApi {
 	 * @param clientAddress  a SocketAddress representing the endpoint to connect to
 	 * @param password       server event socket is expecting (set in event_socket_conf.xml)
 	 * @param timeoutSeconds number of seconds to wait for the server socket before aborting
+	 * @see #connectAsync
 	 */
 	public void connect(SocketAddress clientAddress, String password, int timeoutSeconds) throws InboundConnectionFailure {
+		try {
+			connectAsync(clientAddress, password, timeoutSeconds).join();
+		} catch (CompletionException e) {
+			Throwables.throwIfInstanceOf(e.getCause(), InboundConnectionFailure.class);
+			throw new InboundConnectionFailure("Could not connect to " + clientAddress, e.getCause());
+		}
+	}
+
+	/**
+	 * Starts establishing an authenticated connection to the nominated FreeSWITCH ESL server socket,
+	 * without blocking. The returned future completes as soon as the server accepts the password,
+	 * so that connections to many servers can be established at once.
+	 * <p/>
+	 * The future fails with an {@link InboundConnectionFailure} if the connection cannot be
+	 * established, the authentication fails or the connection closes before it succeeds, or the
+	 * handshake has not completed after the supplied number of seconds. The connection is then
+	 * closed.
+	 * <p/>
+	 * The future is completed on a thread of the {@link java.util.concurrent.ForkJoinPool#commonPool()
+	 * common pool}, never on the IO thread of the connection, so that a blocking call chained on it,
+	 * such as {@link #sendApiCommand}, does not wait for a reply only that thread would read.
+	 *
+	 * @param clientAddress  a SocketAddress representing the endpoint to connect to
+	 * @param password       server event socket is expecting (set in event_socket_conf.xml)
+	 * @param timeoutSeconds number of seconds to wait for the authenticated connection before aborting
+	 * @return this client, once authenticated
+	 */
+	public CompletableFuture<Client> connectAsync(SocketAddress clientAddress, String password, int timeoutSeconds) {
 		// If already connected, disconnect first
 		if (canSend()) {
 			close();
 		}
+		authenticated = false;
 
 		log.info("Connecting to {} ...", clientAddress);
 
@@ -106,48 +363,75 @@ public class Client implements IModEslApi {
 		Bootstrap bootstrap = new Bootstrap()
 				.group(workerGroup)
 				.channel(NioSocketChannel.class)
-				.option(ChannelOption.SO_KEEPALIVE, true);
+				.option(ChannelOption.SO_KEEPALIVE, true)
+				.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) TimeUnit.SECONDS.toMillis(timeoutSeconds));
 
 		// Add ESL handler and factory
 		InboundClientHandler handler = new InboundClientHandler(password, protocolListener);
-		bootstrap.handler(new InboundChannelInitializer(handler));
+		handler.setPooledEvents(pooledEvents);
+		handler.setFlushPolicy(flushPolicy);
+		handler.setCommandTimeout(commandTimeoutMillis, TimeUnit.MILLISECONDS);
+		handler.setBackgroundJobTimeout(backgroundJobTimeoutMillis, TimeUnit.MILLISECONDS);
+		handler.setMaxBackgroundJobs(maxBackgroundJobs, backgroundJobRejectionPolicy);
+		bootstrap.handler(new InboundChannelInitializer(handler, retainFrames || pooledEvents));
 
-		// Attempt connection
-		ChannelFuture future = bootstrap.connect(clientAddress);
-
-		// Wait till attempt succeeds, fails or timeouts
-		if (!future.awaitUninterruptibly(timeoutSeconds, TimeUnit.SECONDS)) {
-			throw new InboundConnectionFailure("Timeout connecting to " + clientAddress);
-		}
-		// Did not timeout
-		final Channel channel = future.channel();
-		// But may have failed anyway
-		if (!future.isSuccess()) {
-			log.warn("Failed to connect to [{}]", clientAddress, future.cause());
-
-			workerGroup.shutdownGracefully();
+		final CompletableFuture<Client> connected = new CompletableFuture<>();
+		final CompletableFuture<CommandResponse> authentication = new CompletableFuture<>();
+		this.authentication = authentication;
 
-			throw new InboundConnectionFailure("Could not connect to " + clientAddress, future.cause());
-		}
-
-		log.info("Connected to {}", clientAddress);
+		// a single deadline for the connection and the handshake
+		final ScheduledFuture<?> deadline = workerGroup.schedule(() -> connected.completeExceptionally(
+				new InboundConnectionFailure("Timeout connecting to " + clientAddress)), timeoutSeconds, TimeUnit.SECONDS);
 
-		//  Wait for the authentication handshake to call back
-		while (!authenticatorResponded.get()) {
-			try {
-				Thread.sleep(250);
-			} catch (InterruptedException e) {
-				// ignore
+		// Attempt connection
+		ChannelFuture future = bootstrap.connect(clientAddress);
+		future.addListener(f -> {
+			if (!f.isSuccess()) {
+				log.warn("Failed to connect to [{}]", clientAddress, f.cause());
+				connected.completeExceptionally(new InboundConnectionFailure("Could not connect to " + clientAddress, f.cause()));
+				return;
 			}
-		}
 
-		this.clientContext = Optional.of(new Context(channel, handler));
-
-		if (!authenticated) {
-			throw new InboundConnectionFailure("Authentication failed: " + authenticationResponse.getReplyText());
-		}
+			log.info("Connected to {}", clientAddress);
+
+			final Channel channel = future.channel();
+			channel.closeFuture().addListener(closed -> connected.completeExceptionally(
+					new InboundConnectionFailure("Connection to " + clientAddress + " closed before authentication")));
+
+			// completed by the handler on the IO thread, as soon as the auth reply is received
+			authentication.thenAccept(response -> {
+				if (!response.isOk()) {
+					connected.completeExceptionally(
+							new InboundConnectionFailure("Authentication failed: " + response.getReplyText()));
+					return;
+				}
+				this.clientContext = Optional.of(new Context(channel, handler));
+				this.clientHandler = handler;
+				this.headerProjection = null;
+				authenticated = true;
+				log.info("Authenticated");
+				connected.complete(this);
+			});
+		});
+
+		connected.whenComplete((client, failure) -> {
+			deadline.cancel(false);
+			if (failure != null) {
+				future.channel().close();
+				workerGroup.shutdownGracefully();
+			}
+		});
 
-		log.info("Authenticated");
+		// off the IO thread, which completes the connection
+		final CompletableFuture<Client> result = new CompletableFuture<>();
+		connected.whenCompleteAsync((client, failure) -> {
+			if (failure != null) {
+				result.completeExceptionally(failure);
+			} else {
+				result.complete(client);
+			}
+		});
+		return result;
 	}
 
 	/**
@@ -167,8 +451,61 @@ public class Client implements IModEslApi {
 	}
 
 	/**
-	 * Submit a FreeSWITCH API command to the server to be executed in background mode. A synchronous
-	 * response from the server provides a UUID to identify the job execution results. When the server
+	 * Sends a FreeSWITCH API command to the server and blocks until the response has been received,
+	 * streaming the body of the response to a consumer as it arrives, so that a large response such
+	 * as {@code show channels} never needs to be held in memory at once.
+	 * <p/>
+	 * The consumer is called on the IO thread and must not block. The returned message holds the
+	 * headers of the response, without any body lines.
+	 *
+	 * @param command      API command to send
+	 * @param arg          command arguments
+	 * @param bodyConsumer receiving the body of the response, null to read it in full
+	 * @return an {@link EslMessage} containing the response headers
+	 * @see IEslBodyConsumer#lines
+	 */
+	@Override
+	public EslMessage sendApiCommand(String command, String arg, IEslBodyConsumer bodyConsumer) {
+		checkConnected();
+		return clientContext.get().sendApiCommand(command, arg, bodyConsumer);
+	}
+
+	/**
+	 * Sends a FreeSWITCH API command to the server and blocks until the response has been received,
+	 * or the deadline of the command has passed. The response of a command past its deadline is
+	 * discarded when it comes, the next commands still getting their own.
+	 *
+	 * @param command API command to send
+	 * @param arg     command arguments
+	 * @param timeout after which an exception caused by a {@link TimeoutException} is thrown, 0 to
+	 *                wait for ever
+	 * @param unit    of the timeout
+	 * @return an {@link EslMessage} containing command results
+	 */
+	@Override
+	public EslMessage sendApiCommand(String command, String arg, long timeout, TimeUnit unit) {
+		checkConnected();
+		return clientContext.get().sendApiCommand(command, arg, timeout, unit);
+	}
+
+	/**
+	 * Sends FreeSWITCH API commands to the server back to back, in a single flush, without waiting for
+	 * the reply to a command before sending the next one. A batch of commands, such as the
+	 * {@code uuid_getvar} calls warming up a cache, then takes a single round trip.
+	 *
+	 * @param commands API commands to send, built with {@link EslCommand#api}
+	 * @return the {@link EslMessage}s containing the results, in the order of the commands, or the
+	 * failure of the first command failing
+	 */
+	@Override
+	public CompletableFuture<List<EslMessage>> sendApiCommands(List<EslCommand> commands) {
+		checkConnected();
+		return clientContext.get().sendApiCommands(commands);
+	}
+
+	/**
+	 * Submit a FreeSWITCH API command to the server to be executed in background mode. The command
+	 * carries a Job-UUID chosen by the client to identify the job execution results. When the server
 	 * has completed the job execution it fires a BACKGROUND_JOB Event with the execution results.<p/>
 	 * Note that this Client must be subscribed in the normal way to BACKGOUND_JOB Events, in order to
 	 * receive this event.
@@ -183,6 +520,25 @@ public class Client implements IModEslApi {
 		return clientContext.get().sendBackgroundApiCommand(command, arg);
 	}
 
+	/**
+	 * Submit a FreeSWITCH API command to the server to be executed in background mode, with a
+	 * deadline of its own.
+	 *
+	 * @param command API command to send
+	 * @param arg     command arguments
+	 * @param timeout after which the job fails with a {@link TimeoutException} if its BACKGROUND_JOB
+	 *                event has not been received, 0 to wait for ever
+	 * @param unit    of the timeout
+	 * @return the BACKGROUND_JOB event carrying the results of the job
+	 * @see #setBackgroundJobTimeout
+	 */
+	@Override
+	public CompletableFuture<EslEvent> sendBackgroundApiCommand(String command, String arg, long timeout,
+			TimeUnit unit) {
+		checkConnected();
+		return clientContext.get().sendBackgroundApiCommand(command, arg, timeout, unit);
+	}
+
 	/**
 	 * Set the current event subscription for this connection to the server.  Examples of the events
 	 * argument are:
@@ -194,16 +550,45 @@ public class Client implements IModEslApi {
 	 * </pre>
 	 * Subsequent calls to this method replaces any previous subscriptions that were set.
 	 * </p>
-	 * Note: current implementation can only process 'plain' events.
 	 *
-	 * @param format can be { plain | xml }
+	 * @param format can be { plain | json | xml }
 	 * @param events { all | space separated list of events }
 	 * @return a {@link CommandResponse} with the server's response.
 	 */
 	@Override
 	public CommandResponse setEventSubscriptions(EventFormat format, String events) {
 		checkConnected();
-		return clientContext.get().setEventSubscriptions(format, events);
+		final CommandResponse response = clientContext.get().setEventSubscriptions(format, events);
+		if (response.isOk()) {
+			headerProjection = null;
+		}
+		return response;
+	}
+
+	/**
+	 * Set the current event subscription for this connection to the server, only decoding the
+	 * headers of a projection in the events received from now on, so that events cost little more
+	 * than the headers actually read. The headers the library relies on, and those tested by the
+	 * {@link EventFilter filters} of the listeners, are always decoded.
+	 * <p/>
+	 * The projection replaces any projection set by a previous subscription, once the server has
+	 * accepted this one: a subscription failing leaves the previous projection in place.
+	 *
+	 * @param format     can be { plain | json | xml }
+	 * @param events     { all | space separated list of events }
+	 * @param projection of the event headers to decode, null for all of them
+	 * @return a {@link CommandResponse} with the server's response.
+	 * @see HeaderProjection#of(String...)
+	 */
+	@Override
+	public CommandResponse setEventSubscriptions(EventFormat format, String events, HeaderProjection projection) {
+		checkConnected();
+		final CommandResponse response =
+				clientContext.get().setEventSubscriptions(format, events, withFilteredHeaders(projection));
+		if (response.isOk()) {
+			headerProjection = projection;
+		}
+		return response;
 	}
 
 	/**
@@ -320,17 +705,18 @@ public class Client implements IModEslApi {
 
 		@Override
 		public void authResponseReceived(CommandResponse response) {
-			authenticatorResponded.set(true);
-			authenticated = response.isOk();
-			authenticationResponse = response;
-			log.debug("Auth response success={}, message=[{}]", authenticated, response.getReplyText());
+			log.debug("Auth response success={}, message=[{}]", response.isOk(), response.getReplyText());
+			authentication.complete(response);
 		}
 
 		@Override
 		public void eventReceived(final Context ctx, final EslEvent event) {
 			log.debug("Event received [{}]", event);
-			for (final IEslEventListener listener : eventListeners) {
-				callbackExecutor.execute(() -> listener.onEslEvent(ctx, event));
+			final BiConsumer<Context, EslEvent> delivery = eventListeners.route(event);
+			if (delivery != null) {
+				// released by the dispatcher once delivered
+				ReferenceCountUtil.retain(event);
+				eventDispatcher.dispatch(ctx, event, delivery);
 			}
 		}
 
@@ -0,0 +1,273 @@
+package org.freeswitch.esl.client.inbound;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.event.EslEventHeaderNames;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A filter of events on their headers, such as
+ * <pre>
+ *   header("Channel-State").is("CS_EXECUTE").and(header("variable_tenant_id").in("acme", "globex"))
+ * </pre>
+ * for which listeners are registered with {@link Client#addEventListener(EventFilter, IEslEventListener)}.
+ * <p/>
+ * Unlike a predicate, a filter is compiled, with the filters of all the listeners, into an index of
+ * the header values they test for equality, so that an event is matched against many filters with a
+ * few hash lookups rather than by testing each in turn, and a test shared by several filters is only
+ * done once per event. A filter is then best anchored on an equality test, with {@link Header#is}
+ * or {@link Header#in}: a filter only made of the other tests is tested on every event.
+ * <p/>
+ * A filter is immutable, and kept as the alternatives of the tests that must all succeed for the
+ * filter to match.
+ */
+public final class EventFilter {
+	// most alternatives of a filter, as each and() of two or() multiplies them
+	private static final int MAX_ALTERNATIVES = 256;
+
+	// any of which must match, each holding the tests all of which must succeed
+	final List<List<Test>> alternatives;
+
+	private EventFilter(List<List<Test>> alternatives) {
+		checkArgument(alternatives.size() <= MAX_ALTERNATIVES, "more than %s alternatives",
+				MAX_ALTERNATIVES);
+		this.alternatives = alternatives;
+	}
+
+	/**
+	 * @param name of an event header, such as {@code Event-Name} or {@code variable_tenant_id}
+	 * @return the tests of the header
+	 */
+	public static Header header(String name) {
+		checkArgument(name != null && !name.isEmpty(), "header name must not be empty");
+		return new Header(name);
+	}
+
+	/**
+	 * @param name of the events
+	 * @return a filter of the events of a name
+	 */
+	public static EventFilter eventName(String name) {
+		return header(EslEventHeaderNames.EVENT_NAME).is(name);
+	}
+
+	/**
+	 * @return a filter matching the events this and another filter both match
+	 */
+	public EventFilter and(EventFilter other) {
+		final List<List<Test>> alternatives = new ArrayList<>();
+		for (List<Test> left : this.alternatives) {
+			for (List<Test> right : other.alternatives) {
+				alternatives.add(ImmutableList.<Test>builder().addAll(left).addAll(right).build());
+			}
+		}
+		return new EventFilter(ImmutableList.copyOf(alternatives));
+	}
+
+	/**
+	 * @return a filter matching the events either this or another filter matches
+	 */
+	public EventFilter or(EventFilter other) {
+		return new EventFilter(ImmutableList.<List<Test>>builder().addAll(alternatives)
+				.addAll(other.alternatives).build());
+	}
+
+	/**
+	 * Tests the filter on an event, on its own, without the index.
+	 *
+	 * @return true if the event matches the filter
+	 */
+	public boolean matches(EslEvent event) {
+		final Map<String, String> headers = event.getEventHeaders();
+		for (List<Test> tests : alternatives) {
+			boolean matches = true;
+			for (Test test : tests) {
+				if (!test.test(headers.get(test.header))) {
+					matches = false;
+					break;
+				}
+			}
+			if (matches) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the names of the headers the filter tests
+	 */
+	Set<String> headers() {
+		final Set<String> headers = new LinkedHashSet<>();
+		for (List<Test> tests : alternatives) {
+			for (Test test : tests) {
+				headers.add(test.header);
+			}
+		}
+		return headers;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		for (List<Test> tests : alternatives) {
+			if (sb.length() > 0) {
+				sb.append(" || ");
+			}
+			for (int i = 0; i < tests.size(); i++) {
+				sb.append(i == 0 ? "" : " && ").append(tests.get(i));
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * The tests of an event header.
+	 */
+	public static final class Header {
+		private final String name;
+
+		private Header(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * @return a filter of the events with this header equal to a value
+		 */
+		public EventFilter is(String value) {
+			return in(value);
+		}
+
+		/**
+		 * @return a filter of the events with this header equal to one of a set of values
+		 */
+		public EventFilter in(String... values) {
+			return in(Arrays.asList(values));
+		}
+
+		/**
+		 * @return a filter of the events with this header equal to one of a set of values
+		 */
+		public EventFilter in(Collection<String> values) {
+			return filter(Test.Kind.IN, values);
+		}
+
+		/**
+		 * @return a filter of the events without this header, or with another value
+		 */
+		public EventFilter isNot(String value) {
+			return notIn(value);
+		}
+
+		/**
+		 * @return a filter of the events without this header, or with none of a set of values
+		 */
+		public EventFilter notIn(String... values) {
+			return filter(Test.Kind.NOT_IN, Arrays.asList(values));
+		}
+
+		/**
+		 * @return a filter of the events with this header
+		 */
+		public EventFilter present() {
+			return filter(Test.Kind.PRESENT, ImmutableSet.of());
+		}
+
+		/**
+		 * @return a filter of the events without this header
+		 */
+		public EventFilter absent() {
+			return filter(Test.Kind.ABSENT, ImmutableSet.of());
+		}
+
+		private EventFilter filter(Test.Kind kind, Collection<String> values) {
+			for (String value : values) {
+				checkNotNull(value, "value");
+			}
+			checkArgument(kind != Test.Kind.IN || !values.isEmpty(), "no value");
+			final Test test = new Test(name, kind, ImmutableSet.copyOf(values));
+			return new EventFilter(ImmutableList.of(ImmutableList.of(test)));
+		}
+	}
+
+	/**
+	 * A test of an event header, equal to another when testing the same header the same way.
+	 */
+	static final class Test {
+		enum Kind {
+			IN, NOT_IN, PRESENT, ABSENT
+		}
+
+		final String header;
+		final Kind kind;
+		final Set<String> values;
+
+		private Test(String header, Kind kind, Set<String> values) {
+			this.header = header;
+			this.kind = kind;
+			this.values = values;
+		}
+
+		/**
+		 * @param value of the header, null when the event does not have it
+		 */
+		boolean test(String value) {
+			switch (kind) {
+				case IN:
+					return value != null && values.contains(value);
+				case NOT_IN:
+					return value == null || !values.contains(value);
+				case PRESENT:
+					return value != null;
+				default:
+					return value == null;
+			}
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Test)) {
+				return false;
+			}
+			final Test other = (Test) o;
+			return header.equals(other.header) && kind == other.kind && values.equals(other.values);
+		}
+
+		@Override
+		public int hashCode() {
+			return (header.hashCode() * 31 + kind.hashCode()) * 31 + values.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			switch (kind) {
+				case IN:
+					return values.size() == 1
+							? header + " == " + values.iterator().next()
+							: header + " in " + values;
+				case NOT_IN:
+					return values.size() == 1
+							? header + " != " + values.iterator().next()
+							: header + " not in " + values;
+				case PRESENT:
+					return header + " present";
+				default:
+					return header + " absent";
+			}
+		}
+	}
+}
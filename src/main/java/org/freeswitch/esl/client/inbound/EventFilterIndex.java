@@ -0,0 +1,236 @@
+package org.freeswitch.esl.client.inbound;
+
+import org.freeswitch.esl.client.inbound.EventFilter.Test;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@link EventFilter filters} of a number of subscriptions, compiled so that an event is matched
+ * against all of them in about the time it takes to match it against the few it may match.
+ * <p/>
+ * Each alternative of a filter is anchored on its most selective equality test, that on the header
+ * the filters test for the most different values, such as a tenant rather than a channel state: the
+ * alternative is indexed under each of the values of that test, and only tested on the events having
+ * the anchor header set to one of them. An event is then matched with a hash lookup per anchor
+ * header, and its remaining tests, each interned so that a test shared by several alternatives is
+ * only done once per event. The alternatives with no equality test are tested on every event.
+ * <p/>
+ * An index is immutable, and may be used by several threads at the same time.
+ *
+ * @param <T> the subscriptions
+ */
+final class EventFilterIndex<T> {
+	private static final byte UNKNOWN = 0;
+	private static final byte PASSED = 1;
+	private static final byte FAILED = 2;
+
+	private final List<T> subscriptions;
+	// the anchor headers, and for each the alternatives anchored on each of its values
+	private final String[] anchorHeaders;
+	private final Map<String, Alternative[]>[] anchored;
+	private final Alternative[] unanchored;
+	private final Test[] tests;
+	private final ThreadLocal<Scratch> scratch;
+
+	/**
+	 * @param filters       of the subscriptions, in the order they are returned when matching
+	 * @param subscriptions with the same index as their filter
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	EventFilterIndex(List<EventFilter> filters, List<T> subscriptions) {
+		this.subscriptions = new ArrayList<>(subscriptions);
+		final Map<Test, Integer> testIds = new HashMap<>();
+		final List<Test> tests = new ArrayList<>();
+		final Map<String, Map<String, List<Alternative>>> anchored = new HashMap<>();
+		final List<Alternative> unanchored = new ArrayList<>();
+		final Map<String, Set<String>> distinctValues = new HashMap<>();
+		for (EventFilter filter : filters) {
+			for (List<Test> alternative : filter.alternatives) {
+				for (Test test : alternative) {
+					if (test.kind == Test.Kind.IN) {
+						distinctValues.computeIfAbsent(test.header, h -> new HashSet<>()).addAll(test.values);
+					}
+				}
+			}
+		}
+		for (int subscription = 0; subscription < filters.size(); subscription++) {
+			for (List<Test> alternative : filters.get(subscription).alternatives) {
+				Test anchor = null;
+				double anchorSelectivity = 0;
+				for (Test test : alternative) {
+					if (test.kind == Test.Kind.IN) {
+						// the share of the values of the header for which the alternative is tested
+						final double selectivity =
+								(double) test.values.size() / distinctValues.get(test.header).size();
+						if (anchor == null || selectivity < anchorSelectivity) {
+							anchor = test;
+							anchorSelectivity = selectivity;
+						}
+					}
+				}
+				final List<Integer> remaining = new ArrayList<>();
+				for (Test test : alternative) {
+					if (test != anchor) {
+						remaining.add(testIds.computeIfAbsent(test, t -> {
+							tests.add(t);
+							return tests.size() - 1;
+						}));
+					}
+				}
+				final Alternative compiled = new Alternative(subscription,
+						remaining.stream().distinct().mapToInt(Integer::intValue).toArray());
+				if (anchor == null) {
+					unanchored.add(compiled);
+				} else {
+					final Map<String, List<Alternative>> byValue =
+							anchored.computeIfAbsent(anchor.header, h -> new HashMap<>());
+					for (String value : anchor.values) {
+						byValue.computeIfAbsent(value, v -> new ArrayList<>()).add(compiled);
+					}
+				}
+			}
+		}
+		this.anchorHeaders = anchored.keySet().toArray(new String[0]);
+		this.anchored = new Map[anchorHeaders.length];
+		for (int i = 0; i < anchorHeaders.length; i++) {
+			final Map<String, Alternative[]> byValue = new HashMap<>();
+			for (Map.Entry<String, List<Alternative>> entry : anchored.get(anchorHeaders[i]).entrySet()) {
+				byValue.put(entry.getKey(), entry.getValue().toArray(new Alternative[0]));
+			}
+			this.anchored[i] = byValue;
+		}
+		this.unanchored = unanchored.toArray(new Alternative[0]);
+		this.tests = tests.toArray(new Test[0]);
+		final int testCount = this.tests.length;
+		final int subscriptionCount = this.subscriptions.size();
+		this.scratch = ThreadLocal.withInitial(() -> new Scratch(testCount, subscriptionCount));
+	}
+
+	boolean isEmpty() {
+		return subscriptions.isEmpty();
+	}
+
+	/**
+	 * @return the subscriptions whose filter the event matches, in their order
+	 */
+	List<T> match(EslEvent event) {
+		if (subscriptions.isEmpty()) {
+			return Collections.emptyList();
+		}
+		final Map<String, String> headers = event.getEventHeaders();
+		final Scratch scratch = this.scratch.get();
+		scratch.next();
+		for (int i = 0; i < anchorHeaders.length; i++) {
+			final String value = headers.get(anchorHeaders[i]);
+			if (value != null) {
+				final Alternative[] alternatives = anchored[i].get(value);
+				if (alternatives != null) {
+					match(alternatives, headers, scratch);
+				}
+			}
+		}
+		match(unanchored, headers, scratch);
+		if (scratch.matchedCount == 0) {
+			return Collections.emptyList();
+		}
+		final int[] matched = Arrays.copyOf(scratch.matched, scratch.matchedCount);
+		Arrays.sort(matched);
+		final List<T> result = new ArrayList<>(matched.length);
+		for (int subscription : matched) {
+			result.add(subscriptions.get(subscription));
+		}
+		return result;
+	}
+
+	private void match(Alternative[] alternatives, Map<String, String> headers, Scratch scratch) {
+		for (Alternative alternative : alternatives) {
+			if (!scratch.isMatched(alternative.subscription) && passes(alternative, headers, scratch)) {
+				scratch.matched(alternative.subscription);
+			}
+		}
+	}
+
+	private boolean passes(Alternative alternative, Map<String, String> headers, Scratch scratch) {
+		for (int id : alternative.tests) {
+			byte result = scratch.result(id);
+			if (result == UNKNOWN) {
+				final Test test = tests[id];
+				result = test.test(headers.get(test.header)) ? PASSED : FAILED;
+				scratch.result(id, result);
+			}
+			if (result == FAILED) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * An alternative of the filter of a subscription, with the tests left once its anchor has matched.
+	 */
+	private static final class Alternative {
+		private final int subscription;
+		private final int[] tests;
+
+		private Alternative(int subscription, int[] tests) {
+			this.subscription = subscription;
+			this.tests = tests;
+		}
+	}
+
+	/**
+	 * The tests done and the subscriptions matched for the event being matched by a thread, reset in
+	 * constant time from one event to the next by stamping each entry with the event it is for.
+	 */
+	private static final class Scratch {
+		private int stamp;
+		private final int[] testStamps;
+		private final byte[] testResults;
+		private final int[] subscriptionStamps;
+		private final int[] matched;
+		private int matchedCount;
+
+		private Scratch(int tests, int subscriptions) {
+			this.testStamps = new int[tests];
+			this.testResults = new byte[tests];
+			this.subscriptionStamps = new int[subscriptions];
+			this.matched = new int[subscriptions];
+		}
+
+		private void next() {
+			if (++stamp == 0) {
+				// wrapped around, forget the stamps of 2^32 events ago
+				Arrays.fill(testStamps, 0);
+				Arrays.fill(subscriptionStamps, 0);
+				stamp = 1;
+			}
+			matchedCount = 0;
+		}
+
+		private byte result(int test) {
+			return testStamps[test] == stamp ? testResults[test] : UNKNOWN;
+		}
+
+		private void result(int test, byte result) {
+			testStamps[test] = stamp;
+			testResults[test] = result;
+		}
+
+		private boolean isMatched(int subscription) {
+			return subscriptionStamps[subscription] == stamp;
+		}
+
+		private void matched(int subscription) {
+			subscriptionStamps[subscription] = stamp;
+			matched[matchedCount++] = subscription;
+		}
+	}
+}
@@ -0,0 +1,305 @@
+package org.freeswitch.esl.client.inbound;
+
+import org.freeswitch.esl.client.internal.Context;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.event.EslEventHeaderNames;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The listeners of a {@link Client}, indexed by the events they are registered for, so that an
+ * event is only handed over to the thread delivering it when a listener wants it, and then only to
+ * those listeners.
+ * <p/>
+ * A listener is registered for every event, for the events of a name, for the {@code CUSTOM} events
+ * of an {@code Event-Subclass}, or of the subclasses starting with a prefix such as
+ * {@code conference::*}, for the events matching a predicate, or matching an {@link EventFilter}.
+ * The listeners of an event are delivered it in the order they were registered.
+ * <p/>
+ * Registrations are rare and events many: the listeners are routed by an immutable snapshot, in which
+ * the listeners of each event name are precomputed, and those of each subclass computed once, when
+ * an event of that subclass is first received, and the filters compiled into an
+ * {@link EventFilterIndex}. A registration only discards the snapshot, rebuilt when the next event
+ * is routed, so that registering many listeners at once costs a single rebuild. Only the predicates
+ * are evaluated for every event, on the IO thread.
+ */
+final class EventListenerIndex {
+	private static final Logger log = LoggerFactory.getLogger(EventListenerIndex.class);
+
+	private static final String CUSTOM = "CUSTOM";
+	private static final String WILDCARD = "*";
+	// most subclasses whose route is cached, beyond which routes are computed for every event
+	private static final int MAX_CACHED_SUBCLASSES = 1024;
+
+	private final List<Subscription> subscriptions = new ArrayList<>();
+	private long sequence;
+	// null once discarded by a registration, until the next event is routed
+	private volatile Snapshot snapshot = new Snapshot(new Subscription[0]);
+
+	void add(IEslEventListener listener) {
+		add(new Subscription(listener, null, null, null, null));
+	}
+
+	void addForName(String eventName, IEslEventListener listener) {
+		checkArgument(eventName != null && !eventName.isEmpty(), "eventName must not be empty");
+		add(new Subscription(listener, eventName, null, null, null));
+	}
+
+	void addForSubclass(String subclass, IEslEventListener listener) {
+		checkArgument(subclass != null && !subclass.isEmpty(), "subclass must not be empty");
+		add(new Subscription(listener, CUSTOM, subclass, null, null));
+	}
+
+	void addForPredicate(Predicate<EslEvent> predicate, IEslEventListener listener) {
+		add(new Subscription(listener, null, null, checkNotNull(predicate, "predicate"), null));
+	}
+
+	void addForFilter(EventFilter filter, IEslEventListener listener) {
+		add(new Subscription(listener, null, null, null, checkNotNull(filter, "filter")));
+	}
+
+	private synchronized void add(Subscription subscription) {
+		subscription.sequence = sequence++;
+		subscriptions.add(subscription);
+		snapshot = null;
+	}
+
+	/**
+	 * @return the names of the headers the filters of the listeners test, which a
+	 * {@link org.freeswitch.esl.client.transport.event.HeaderProjection} must keep
+	 */
+	synchronized Set<String> headers() {
+		final Set<String> headers = new LinkedHashSet<>();
+		for (Subscription subscription : subscriptions) {
+			if (subscription.filter != null) {
+				headers.addAll(subscription.filter.headers());
+			}
+		}
+		return headers;
+	}
+
+	/**
+	 * Removes every registration of a listener.
+	 *
+	 * @return true if the listener was registered
+	 */
+	synchronized boolean remove(IEslEventListener listener) {
+		if (subscriptions.removeIf(subscription -> subscription.listener == listener)) {
+			snapshot = null;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the delivery of an event to the listeners wanting it, null if none does
+	 */
+	BiConsumer<Context, EslEvent> route(EslEvent event) {
+		Snapshot snapshot = this.snapshot;
+		if (snapshot == null) {
+			snapshot = snapshot();
+		}
+		return snapshot.route(event);
+	}
+
+	private synchronized Snapshot snapshot() {
+		Snapshot snapshot = this.snapshot;
+		if (snapshot == null) {
+			snapshot = new Snapshot(subscriptions.toArray(new Subscription[0]));
+			this.snapshot = snapshot;
+		}
+		return snapshot;
+	}
+
+	private static final class Snapshot {
+		// registered for every event
+		private final Route any;
+		private final Map<String, Route> byName = new HashMap<>();
+		private final Map<String, List<Subscription>> bySubclass = new HashMap<>();
+		private final List<Subscription> byPrefix = new ArrayList<>();
+		private final Subscription[] byPredicate;
+		private final EventFilterIndex<Subscription> byFilter;
+		private final Map<String, Route> subclassRoutes = new ConcurrentHashMap<>();
+
+		private Snapshot(Subscription[] subscriptions) {
+			final List<Subscription> any = new ArrayList<>();
+			final Map<String, List<Subscription>> byName = new HashMap<>();
+			final List<Subscription> byPredicate = new ArrayList<>();
+			final List<EventFilter> filters = new ArrayList<>();
+			final List<Subscription> byFilter = new ArrayList<>();
+			for (Subscription subscription : subscriptions) {
+				if (subscription.filter != null) {
+					filters.add(subscription.filter);
+					byFilter.add(subscription);
+				} else if (subscription.predicate != null) {
+					byPredicate.add(subscription);
+				} else if (subscription.subclass != null) {
+					if (subscription.subclass.endsWith(WILDCARD)) {
+						byPrefix.add(subscription);
+					} else {
+						bySubclass.computeIfAbsent(subscription.subclass, s -> new ArrayList<>()).add(subscription);
+					}
+				} else if (subscription.eventName != null) {
+					byName.computeIfAbsent(subscription.eventName, n -> new ArrayList<>()).add(subscription);
+				} else {
+					any.add(subscription);
+				}
+			}
+			this.any = Route.of(any);
+			for (Map.Entry<String, List<Subscription>> entry : byName.entrySet()) {
+				this.byName.put(entry.getKey(), Route.of(merge(any, entry.getValue())));
+			}
+			this.byPredicate = byPredicate.toArray(new Subscription[0]);
+			this.byFilter = new EventFilterIndex<>(filters, byFilter);
+		}
+
+		private Route route(EslEvent event) {
+			final String eventName = event.getEventName();
+			Route route;
+			if (CUSTOM.equals(eventName) && !(bySubclass.isEmpty() && byPrefix.isEmpty())) {
+				final String subclass = event.getEventHeaders().get(EslEventHeaderNames.EVENT_SUBCLASS);
+				route = subclassRoute(subclass == null ? "" : subclass);
+			} else {
+				route = eventName == null ? any : byName.getOrDefault(eventName, any);
+			}
+			if (byPredicate.length > 0 || !byFilter.isEmpty()) {
+				route = withMatching(route, event);
+			}
+			return route.listeners.length == 0 ? null : route;
+		}
+
+		private Route subclassRoute(String subclass) {
+			Route route = subclassRoutes.get(subclass);
+			if (route == null) {
+				final List<Subscription> prefixed = new ArrayList<>();
+				for (Subscription subscription : byPrefix) {
+					final String prefix = subscription.subclass;
+					if (subclass.startsWith(prefix.substring(0, prefix.length() - WILDCARD.length()))) {
+						prefixed.add(subscription);
+					}
+				}
+				final List<Subscription> matching = merge(
+						bySubclass.getOrDefault(subclass, Collections.emptyList()), prefixed);
+				final Route custom = byName.getOrDefault(CUSTOM, any);
+				route = Route.of(merge(Arrays.asList(custom.subscriptions), matching));
+				if (subclassRoutes.size() < MAX_CACHED_SUBCLASSES) {
+					subclassRoutes.put(subclass, route);
+				}
+			}
+			return route;
+		}
+
+		private Route withMatching(Route route, EslEvent event) {
+			final List<Subscription> filtered = byFilter.match(event);
+			List<Subscription> matching = null;
+			for (Subscription subscription : byPredicate) {
+				final boolean matches;
+				try {
+					matches = subscription.predicate.test(event);
+				} catch (RuntimeException e) {
+					log.error("Event listener predicate failed on event [{}]", event.getEventName(), e);
+					continue;
+				}
+				if (matches) {
+					if (matching == null) {
+						matching = new ArrayList<>();
+					}
+					matching.add(subscription);
+				}
+			}
+			if (matching == null) {
+				if (filtered.isEmpty()) {
+					return route;
+				}
+				matching = filtered;
+			} else if (!filtered.isEmpty()) {
+				matching = merge(matching, filtered);
+			}
+			return Route.of(merge(Arrays.asList(route.subscriptions), matching));
+		}
+
+		/**
+		 * @return the subscriptions of both lists, in the order they were registered
+		 */
+		private static List<Subscription> merge(List<Subscription> first, List<Subscription> second) {
+			final List<Subscription> merged = new ArrayList<>(first.size() + second.size());
+			int i = 0;
+			int j = 0;
+			while (i < first.size() || j < second.size()) {
+				if (j == second.size()
+						|| (i < first.size() && first.get(i).sequence < second.get(j).sequence)) {
+					merged.add(first.get(i++));
+				} else {
+					merged.add(second.get(j++));
+				}
+			}
+			return merged;
+		}
+	}
+
+	/**
+	 * The delivery of an event to the listeners wanting it, a failing listener not keeping the
+	 * others from getting the event.
+	 */
+	private static final class Route implements BiConsumer<Context, EslEvent> {
+		private final Subscription[] subscriptions;
+		private final IEslEventListener[] listeners;
+
+		private Route(Subscription[] subscriptions) {
+			this.subscriptions = subscriptions;
+			this.listeners = new IEslEventListener[subscriptions.length];
+			for (int i = 0; i < subscriptions.length; i++) {
+				listeners[i] = subscriptions[i].listener;
+			}
+		}
+
+		private static Route of(List<Subscription> subscriptions) {
+			return new Route(subscriptions.toArray(new Subscription[0]));
+		}
+
+		@Override
+		public void accept(Context ctx, EslEvent event) {
+			for (final IEslEventListener listener : listeners) {
+				try {
+					listener.onEslEvent(ctx, event);
+				} catch (RuntimeException e) {
+					log.error("Event listener failed on event [{}]", event.getEventName(), e);
+				}
+			}
+		}
+	}
+
+	private static final class Subscription {
+		private final IEslEventListener listener;
+		private final String eventName;
+		// an Event-Subclass, or a prefix of one followed by *
+		private final String subclass;
+		private final Predicate<EslEvent> predicate;
+		private final EventFilter filter;
+		private long sequence;
+
+		private Subscription(IEslEventListener listener, String eventName, String subclass,
+				Predicate<EslEvent> predicate, EventFilter filter) {
+			this.listener = checkNotNull(listener, "listener");
+			this.eventName = eventName;
+			this.subclass = subclass;
+			this.predicate = predicate;
+			this.filter = filter;
+		}
+	}
+}
@@ -22,7 +22,8 @@ import org.freeswitch.esl.client.transport.event.EslEvent;
  * Interface for observers wanting to be notified of incoming FreeSWITCH Event Socket events.
  * <p/>
  * Events are guaranteed to be processed (and listeners notified) in the order in which the
- * events are received off the wire.
+ * events are received off the wire. With a {@link org.freeswitch.esl.client.internal.StripedEventDispatcher},
+ * that order is only kept among the events of each call.
  * <p/>
  * This design ensures that incoming event processing is not blocked by any long-running listener process.
  * However multiple listeners will be notified sequentially, and so one slow listener can cause latency
@@ -4,7 +4,7 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.handler.codec.string.StringEncoder;
+import org.freeswitch.esl.client.transport.message.EslCommandEncoder;
 import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
 
 /**
@@ -14,19 +14,23 @@ import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
  */
 class InboundChannelInitializer extends ChannelInitializer<SocketChannel> {
 
+    private static final EslCommandEncoder ENCODER = new EslCommandEncoder();
+
     private final ChannelHandler handler;
+    private final boolean retainFrames;
 
-    public InboundChannelInitializer(ChannelHandler handler) {
+    public InboundChannelInitializer(ChannelHandler handler, boolean retainFrames) {
         this.handler = handler;
+        this.retainFrames = retainFrames;
     }
 
     @Override
     public void initChannel(SocketChannel ch) throws Exception {
         ChannelPipeline pipeline = ch.pipeline();
-        pipeline.addLast("decoder", new EslFrameDecoder(8192));
+        pipeline.addLast("decoder", new EslFrameDecoder(8192, false, retainFrames));
 
         // now the inbound client logic
         pipeline.addLast("clientHandler", handler);
-        pipeline.addLast("encoder", new StringEncoder());
+        pipeline.addLast("encoder", ENCODER);
     }
 }
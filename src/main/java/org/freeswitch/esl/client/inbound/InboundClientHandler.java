@@ -17,7 +17,6 @@ package org.freeswitch.esl.client.inbound;
 
 import io.netty.channel.ChannelHandlerContext;
 import org.freeswitch.esl.client.internal.AbstractEslClientHandler;
-import org.freeswitch.esl.client.internal.Context;
 import org.freeswitch.esl.client.transport.CommandResponse;
 import org.freeswitch.esl.client.transport.event.EslEvent;
 import org.freeswitch.esl.client.transport.message.EslHeaders;
@@ -51,7 +50,7 @@ class InboundClientHandler extends AbstractEslClientHandler {
 	@Override
 	protected void handleEslEvent(ChannelHandlerContext ctx, EslEvent event) {
 		log.debug("Received event: [{}]", event);
-		listener.eventReceived(new Context(ctx.channel(), this), event);
+		listener.eventReceived(context(ctx), event);
 	}
 
 	@Override
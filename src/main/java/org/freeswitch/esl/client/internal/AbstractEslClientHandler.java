@@ -17,20 +17,36 @@ package org.freeswitch.esl.client.internal;
 
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoop;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ReferenceCounted;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import org.freeswitch.esl.client.transport.event.EslEvent;
 import org.freeswitch.esl.client.transport.event.EslEventHeaderNames;
+import org.freeswitch.esl.client.transport.event.HeaderProjection;
+import org.freeswitch.esl.client.transport.message.EslCommand;
+import org.freeswitch.esl.client.transport.message.EslCommandEncoder;
+import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
 import org.freeswitch.esl.client.transport.message.EslHeaders.Name;
 import org.freeswitch.esl.client.transport.message.EslHeaders.Value;
 import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.freeswitch.esl.client.transport.message.IEslBodyConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.*;
-import java.util.concurrent.locks.ReentrantLock;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Strings.isNullOrEmpty;
 
 /**
@@ -48,57 +64,203 @@ import static com.google.common.base.Strings.isNullOrEmpty;
  * Concrete sub classes are expected to 'terminate' the Netty IO processing pipeline (ie be the 'last'
  * handler).
  * </li></ul>
- * Note: implementation requirement is that an {@link ExecutionHandler} is placed in the processing
- * pipeline prior to this handler. This will ensure that each incoming message is processed in its
- * own thread (although still guaranteed to be processed in the order of receipt).
+ * Note: this handler must run on the event loop of its channel, as the decoder does. Commands are
+ * handed over to that event loop, which queues the calls awaiting a reply as it writes them, so
+ * that neither submitting a command nor matching a reply takes a lock.
+ * <p/>
+ * A command may be given a deadline, after which it fails with a {@link TimeoutException}; its reply,
+ * if it ever arrives, is then discarded. The deadlines of every connection are run by a single
+ * {@link HashedWheelTimer}.
  */
 public abstract class AbstractEslClientHandler extends SimpleChannelInboundHandler<EslMessage> {
 
 	public static final String MESSAGE_TERMINATOR = "\n\n";
 	public static final String LINE_TERMINATOR = "\n";
 
+	// shared by every connection, its thread only starting with the first deadline
+	static final Timer TIMER = new HashedWheelTimer(
+			new DefaultThreadFactory("esl-command-timeout", true), 10, TimeUnit.MILLISECONDS);
+
 	protected final Logger log = LoggerFactory.getLogger(this.getClass());
-	// used to preserve association between adding future to queue and sending message on channel
-	private final ReentrantLock syncLock = new ReentrantLock();
-	private final ConcurrentLinkedQueue<CompletableFuture<EslMessage>> apiCalls =
-			new ConcurrentLinkedQueue<>();
+	// the calls awaiting a reply, in the order the commands were written: only touched on the IO
+	// thread, which queues each call as it writes its command
+	private final ArrayDeque<PendingReply> apiCalls = new ArrayDeque<>();
+
+	private final BackgroundJobRegistry backgroundJobs = new BackgroundJobRegistry(TIMER);
+
+	// commands written and not flushed yet, only touched on the IO thread
+	private int pendingCommands;
+	private int pendingBytes;
+	private boolean flushScheduled;
+	private volatile FlushPolicy flushPolicy = FlushPolicy.DEFAULT;
+	private final WriteMetrics writeMetrics = new WriteMetrics();
+	// in nanoseconds, 0 for none
+	private volatile long commandTimeout;
+
+	private boolean pooledEvents = false;
+	private volatile HeaderProjection headerProjection;
+	private Context context;
+
+	/**
+	 * Decode events into pooled, reference counted events (see {@link EslEvent#newPooledInstance}).
+	 * Only takes effect when the decoder retains frames, and must be set before the channel is active.
+	 *
+	 * @param pooledEvents true to recycle events
+	 */
+	public void setPooledEvents(boolean pooledEvents) {
+		this.pooledEvents = pooledEvents;
+	}
+
+	/**
+	 * Sets when the commands written are flushed, {@link FlushPolicy#DEFAULT} coalescing the commands
+	 * sent at once by default.
+	 *
+	 * @param flushPolicy of the commands written from now on
+	 */
+	public void setFlushPolicy(FlushPolicy flushPolicy) {
+		this.flushPolicy = checkNotNull(flushPolicy, "flushPolicy");
+	}
 
-	private final ConcurrentHashMap<String, CompletableFuture<EslEvent>> backgroundJobs =
-			new ConcurrentHashMap<>();
-	private final ExecutorService backgroundJobExecutor = Executors.newCachedThreadPool();
+	/**
+	 * Sets the deadline of the replies to the commands sent from now on without one of their own.
+	 *
+	 * @param timeout after which a command fails with a {@link TimeoutException}, 0 to wait for ever
+	 * @param unit    of the timeout
+	 */
+	public void setCommandTimeout(long timeout, TimeUnit unit) {
+		checkArgument(timeout >= 0, "timeout cannot be negative");
+		this.commandTimeout = unit.toNanos(timeout);
+	}
+
+	/**
+	 * Sets the deadline of the background jobs sent from now on without one of their own, after which
+	 * a job whose BACKGROUND_JOB event has not been received fails.
+	 *
+	 * @param timeout after which a job fails with a {@link TimeoutException}, 0 to wait for ever
+	 * @param unit    of the timeout
+	 */
+	public void setBackgroundJobTimeout(long timeout, TimeUnit unit) {
+		checkArgument(timeout >= 0, "timeout cannot be negative");
+		backgroundJobs.setTimeout(unit.toNanos(timeout));
+	}
+
+	/**
+	 * Bounds the number of background jobs awaiting their BACKGROUND_JOB event, unbounded by default.
+	 *
+	 * @param maxJobs         most jobs in flight
+	 * @param rejectionPolicy saying which job fails when one more is sent
+	 */
+	public void setMaxBackgroundJobs(int maxJobs, BackgroundJobRegistry.RejectionPolicy rejectionPolicy) {
+		checkArgument(maxJobs > 0, "maxJobs must be positive");
+		backgroundJobs.setMaxJobs(maxJobs, checkNotNull(rejectionPolicy, "rejectionPolicy"));
+	}
+
+	/**
+	 * @return the background jobs awaiting their BACKGROUND_JOB event, and the counts of the jobs
+	 * completed and failed
+	 */
+	public BackgroundJobRegistry getBackgroundJobs() {
+		return backgroundJobs;
+	}
+
+	/**
+	 * @return the counts of the commands written and of the flushes sending them
+	 */
+	public WriteMetrics getWriteMetrics() {
+		return writeMetrics;
+	}
 
 	@Override
-	public void exceptionCaught(ChannelHandlerContext ctx, Throwable e) throws Exception {
+	public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		super.handlerAdded(ctx);
+		// the decoder runs on the IO thread as this handler does, so the head of the queue is the
+		// call the api/response being decoded replies to
+		ctx.channel().attr(EslFrameDecoder.BODY_CONSUMERS).set(() -> {
+			final PendingReply apiCall = apiCalls.peek();
+			return apiCall == null ? null : apiCall.bodyConsumer();
+		});
+	}
+
+	/**
+	 * Only decode the projected headers of the events received from now on.
+	 *
+	 * @param headerProjection of the event headers to decode, null for all of them
+	 */
+	public void setHeaderProjection(HeaderProjection headerProjection) {
+		this.headerProjection = headerProjection;
+	}
+
+	/**
+	 * @return the projection of the event headers decoded, null for all of them
+	 */
+	HeaderProjection getHeaderProjection() {
+		return headerProjection;
+	}
 
-		for (final CompletableFuture<EslMessage> apiCall : apiCalls) {
-			apiCall.completeExceptionally(e.getCause());
+	/**
+	 * @return the context of the channel this handler serves, created once
+	 */
+	protected Context context(ChannelHandlerContext ctx) {
+		if (context == null) {
+			context = new Context(ctx.channel(), this);
 		}
+		return context;
+	}
 
-		for (final CompletableFuture<EslEvent> backgroundJob : backgroundJobs.values()) {
-			backgroundJob.completeExceptionally(e.getCause());
+	@Override
+	public void exceptionCaught(ChannelHandlerContext ctx, Throwable e) throws Exception {
+
+		for (final PendingReply apiCall : apiCalls) {
+			apiCall.fail(e.getCause());
 		}
 
+		backgroundJobs.failAll(e.getCause());
+
 		ctx.close();
 
 		ctx.fireExceptionCaught(e);
 
 	}
 
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		// no reply is coming anymore
+		final ClosedChannelException closed = new ClosedChannelException();
+		for (PendingReply apiCall; (apiCall = apiCalls.poll()) != null; ) {
+			apiCall.fail(closed);
+		}
+		// nor any BACKGROUND_JOB event
+		backgroundJobs.failAll(closed);
+		super.channelInactive(ctx);
+	}
+
 	@Override
 	protected void channelRead0(ChannelHandlerContext ctx, EslMessage message) throws Exception {
 		final String contentType = message.getContentType();
 		if (contentType.equals(Value.TEXT_EVENT_PLAIN) ||
+				contentType.equals(Value.TEXT_EVENT_JSON) ||
 				contentType.equals(Value.TEXT_EVENT_XML)) {
 			//  transform into an event
-			final EslEvent eslEvent = new EslEvent(message);
-			if (eslEvent.getEventName().equals("BACKGROUND_JOB")) {
-				final String backgroundUuid = eslEvent.getEventHeaders().get(EslEventHeaderNames.JOB_UUID);
-				final CompletableFuture<EslEvent> future = backgroundJobs.remove(backgroundUuid);
-				if (null != future) {
-					future.complete(eslEvent);
+			final HeaderProjection projection = headerProjection;
+			final EslEvent eslEvent = pooledEvents && message instanceof ReferenceCounted
+					? EslEvent.newPooledInstance(message, projection)
+					: new EslEvent(detach(message), projection);
+			try {
+				if (eslEvent.getEventName().equals("BACKGROUND_JOB")) {
+					final String backgroundUuid = eslEvent.getEventHeaders().get(EslEventHeaderNames.JOB_UUID);
+					final CompletableFuture<EslEvent> future = backgroundJobs.take(backgroundUuid);
+					if (null != future) {
+						// the job result outlives this call, so it is never a pooled event, and carries
+						// every header of the job whatever the projection
+						future.complete(eslEvent instanceof ReferenceCounted || projection != null
+								? new EslEvent(detach(message))
+								: eslEvent);
+					}
+				} else {
+					handleEslEvent(ctx, eslEvent);
 				}
-			} else {
-				handleEslEvent(ctx, eslEvent);
+			} finally {
+				ReferenceCountUtil.release(eslEvent);
 			}
 		} else {
 			handleEslMessage(ctx, message);
@@ -112,12 +274,12 @@ public abstract class AbstractEslClientHandler extends SimpleChannelInboundHandl
 		switch (contentType) {
 			case Value.API_RESPONSE:
 				log.debug("Api response received [{}]", message);
-				apiCalls.poll().complete(message);
+				completeApiCall(message);
 				break;
 
 			case Value.COMMAND_REPLY:
 				log.debug("Command reply received [{}]", message);
-				apiCalls.poll().complete(message);
+				completeApiCall(message);
 				break;
 
 			case Value.AUTH_REQUEST:
@@ -136,6 +298,24 @@ public abstract class AbstractEslClientHandler extends SimpleChannelInboundHandl
 		}
 	}
 
+	private void completeApiCall(EslMessage message) {
+		final PendingReply apiCall = apiCalls.poll();
+		if (apiCall.isDone()) {
+			// timed out or cancelled, the reply is not for the next call
+			log.debug("Discarding late reply [{}]", message);
+		} else {
+			apiCall.complete(detach(message));
+		}
+	}
+
+	/**
+	 * Messages decoded from retained frames are released as soon as {@link #channelRead0} returns,
+	 * so the ones handed over to waiting callers or to events are copied to the heap first.
+	 */
+	private static EslMessage detach(EslMessage message) {
+		return message instanceof ReferenceCounted ? message.copy() : message;
+	}
+
 	/**
 	 * Synthesise a synchronous command/response by creating a callback object which is placed in
 	 * queue and blocks waiting for another IO thread to process an incoming {@link EslMessage} and
@@ -146,19 +326,177 @@ public abstract class AbstractEslClientHandler extends SimpleChannelInboundHandl
 	 * @return the {@link EslMessage} attached to this command's callback
 	 */
 	public CompletableFuture<EslMessage> sendApiSingleLineCommand(Channel channel, final String command) {
-		final CompletableFuture<EslMessage> future = new CompletableFuture<>();
-		try {
-			syncLock.lock();
-			apiCalls.add(future);
-			channel.writeAndFlush(command + MESSAGE_TERMINATOR);
-		} finally {
-			syncLock.unlock();
+		return sendApiSingleLineCommand(channel, command, null);
+	}
+
+	/**
+	 * Sends a single line command whose {@code api/response} body, if any, is streamed to a consumer
+	 * as it arrives rather than read in full. The returned message then has no body lines.
+	 *
+	 * @param channel
+	 * @param command      single string to send
+	 * @param bodyConsumer receiving the body of the response, null to read it in full
+	 * @return the {@link EslMessage} attached to this command's callback, completed once the whole
+	 * body has been consumed
+	 */
+	public CompletableFuture<EslMessage> sendApiSingleLineCommand(Channel channel, final String command,
+			IEslBodyConsumer bodyConsumer) {
+		return sendCommand(channel, EslCommand.of(command), bodyConsumer);
+	}
+
+	/**
+	 * Sends a command, encoded by the {@link EslCommandEncoder} of the channel, and returns the
+	 * reply to come.
+	 *
+	 * @param channel
+	 * @param command      to send
+	 * @param bodyConsumer receiving the body of an {@code api/response} reply, null to read it in full
+	 * @return the {@link EslMessage} attached to this command's callback
+	 */
+	public CompletableFuture<EslMessage> sendCommand(Channel channel, EslCommand command,
+			IEslBodyConsumer bodyConsumer) {
+		return sendCommand(channel, command, bodyConsumer, commandTimeout, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Sends a command, encoded by the {@link EslCommandEncoder} of the channel, and returns the
+	 * reply to come within a deadline.
+	 *
+	 * @param channel
+	 * @param command      to send
+	 * @param bodyConsumer receiving the body of an {@code api/response} reply, null to read it in full
+	 * @param timeout      after which the command fails with a {@link TimeoutException}, 0 to wait for ever
+	 * @param unit         of the timeout
+	 * @return the {@link EslMessage} attached to this command's callback
+	 */
+	public CompletableFuture<EslMessage> sendCommand(Channel channel, EslCommand command,
+			IEslBodyConsumer bodyConsumer, long timeout, TimeUnit unit) {
+		checkArgument(timeout >= 0, "timeout cannot be negative");
+		final PendingReply reply = newReply(command, bodyConsumer, unit.toNanos(timeout));
+		final EventLoop eventLoop = channel.eventLoop();
+		if (eventLoop.inEventLoop()) {
+			write(channel, command, reply);
+		} else {
+			// a single hand-off to the IO thread, which queues the call and writes the command in one go,
+			// so that the calls are queued in the order the commands go on the wire
+			try {
+				eventLoop.execute(() -> write(channel, command, reply));
+			} catch (RejectedExecutionException e) {
+				reply.fail(e);
+			}
 		}
 
-		return future;
+		return reply.future();
 
 	}
 
+	/**
+	 * Sends commands back to back, flushed together, and returns their replies once they have all
+	 * been received. The replies are matched with the commands in the order they were sent, as for
+	 * commands sent one at a time, so that a batch of N commands takes a single round trip rather
+	 * than N.
+	 *
+	 * @param channel
+	 * @param commands to send, whose replies are {@code api/response} or {@code command/reply} messages
+	 * @return the replies, in the order of the commands, or the failure of the first failed command
+	 */
+	public CompletableFuture<List<EslMessage>> sendCommands(Channel channel, List<EslCommand> commands) {
+		final List<EslCommand> batch = new ArrayList<>(commands);
+		final PendingReply[] replies = new PendingReply[batch.size()];
+		final long timeout = commandTimeout;
+		for (int i = 0; i < replies.length; i++) {
+			replies[i] = newReply(batch.get(i), null, timeout);
+		}
+		final Runnable writeBatch = () -> {
+			for (int i = 0; i < replies.length; i++) {
+				enqueue(channel, batch.get(i), replies[i]);
+			}
+			flush(channel);
+		};
+		final EventLoop eventLoop = channel.eventLoop();
+		if (eventLoop.inEventLoop()) {
+			writeBatch.run();
+		} else {
+			try {
+				eventLoop.execute(writeBatch);
+			} catch (RejectedExecutionException e) {
+				for (PendingReply reply : replies) {
+					reply.fail(e);
+				}
+			}
+		}
+
+		CompletableFuture<List<EslMessage>> results = CompletableFuture.completedFuture(
+				new ArrayList<>(replies.length));
+		for (PendingReply reply : replies) {
+			results = results.thenCombine(reply.future(), (list, message) -> {
+				list.add(message);
+				return list;
+			});
+		}
+		return results;
+	}
+
+	/**
+	 * @param timeout of the reply in nanoseconds, 0 for none
+	 */
+	private static PendingReply newReply(EslCommand command, IEslBodyConsumer bodyConsumer, long timeout) {
+		final PendingReply reply = new PendingReply(bodyConsumer);
+		if (timeout > 0) {
+			// running from now rather than from the write, so that it also covers the hand-off
+			reply.expireAfter(TIMER, command, timeout);
+		}
+		return reply;
+	}
+
+	private void write(Channel channel, EslCommand command, PendingReply reply) {
+		if (!enqueue(channel, command, reply)) {
+			return;
+		}
+		final FlushPolicy policy = flushPolicy;
+		if (pendingCommands >= policy.maxCommands() || pendingBytes >= policy.maxBytes()) {
+			flush(channel);
+		} else if (!flushScheduled) {
+			// runs once the commands already handed over to the event loop have been written
+			flushScheduled = true;
+			channel.eventLoop().execute(() -> {
+				flushScheduled = false;
+				flush(channel);
+			});
+		}
+	}
+
+	/**
+	 * Queues the call and writes its command, without flushing it.
+	 *
+	 * @return false if the channel is closed, the call then failing
+	 */
+	private boolean enqueue(Channel channel, EslCommand command, PendingReply reply) {
+		if (!channel.isActive()) {
+			reply.fail(new ClosedChannelException());
+			return false;
+		}
+		apiCalls.add(reply);
+		channel.write(command).addListener(future -> {
+			if (!future.isSuccess()) {
+				// the channel is closing, and the calls still queued fail once it is inactive
+				reply.fail(future.cause());
+			}
+		});
+		pendingCommands++;
+		pendingBytes += command.maxLength();
+		return true;
+	}
+
+	private void flush(Channel channel) {
+		if (pendingCommands > 0) {
+			channel.flush();
+			writeMetrics.recordFlush(pendingCommands);
+			pendingCommands = 0;
+			pendingBytes = 0;
+		}
+	}
+
 	/**
 	 * Sends a FreeSWITCH API command to the channel and blocks, waiting for an immediate response from the
 	 * server.
@@ -175,7 +513,7 @@ public abstract class AbstractEslClientHandler extends SimpleChannelInboundHandl
 		checkArgument(!isNullOrEmpty(command), "command may not be null or empty");
 		checkArgument(!isNullOrEmpty(arg), "arg may not be null or empty");
 
-		return sendApiSingleLineCommand(channel, "api " + command + ' ' + arg);
+		return sendCommand(channel, EslCommand.api(command, arg), null);
 	}
 
 	/**
@@ -187,52 +525,104 @@ public abstract class AbstractEslClientHandler extends SimpleChannelInboundHandl
 	 * @return the {@link EslMessage} attached to this command's callback
 	 */
 	public CompletableFuture<EslMessage> sendApiMultiLineCommand(Channel channel, final List<String> commandLines) {
-		//  Build command with double line terminator at the end
-		final StringBuilder sb = new StringBuilder();
-		for (final String line : commandLines) {
-			sb.append(line);
-			sb.append(LINE_TERMINATOR);
-		}
-		sb.append(LINE_TERMINATOR);
-
-		final CompletableFuture<EslMessage> future = new CompletableFuture<>();
-		try {
-			syncLock.lock();
-			apiCalls.add(future);
-			channel.write(sb.toString());
-            channel.flush();
-		} finally {
-			syncLock.unlock();
-		}
+		return sendCommand(channel, EslCommand.lines(commandLines), null);
+	}
 
-		return future;
+	/**
+	 * Sends a {@code bgapi} command line, to which a {@code Job-UUID} header is added, and returns
+	 * the result of the background job it starts.
+	 *
+	 * @param channel
+	 * @param command {@code bgapi} command line to send, such as {@code bgapi status}
+	 * @return the BACKGROUND_JOB event of the job
+	 */
+	public CompletableFuture<EslEvent> sendBackgroundApiCommand(Channel channel, final String command) {
+		final String jobUuid = newJobUuid();
+		return sendBackgroundJob(channel, jobUuid, EslCommand.lines(Arrays.asList(command, "Job-UUID: " + jobUuid)),
+				backgroundJobs.timeout());
+	}
 
+	/**
+	 * Sends a {@code bgapi} command, and returns the result of the background job it starts.
+	 *
+	 * @param channel
+	 * @param command API command to run in background mode
+	 * @param arg     command arguments, may be null
+	 * @return the BACKGROUND_JOB event of the job
+	 */
+	public CompletableFuture<EslEvent> sendBackgroundApiCommand(Channel channel, String command, String arg) {
+		final String jobUuid = newJobUuid();
+		return sendBackgroundJob(channel, jobUuid, EslCommand.bgapi(command, arg, jobUuid), backgroundJobs.timeout());
 	}
 
 	/**
-	 * Returns the Job UUID of that the response event will have.
+	 * Sends a {@code bgapi} command, and returns the result of the background job it starts within a
+	 * deadline.
 	 *
 	 * @param channel
-	 * @param command
-	 * @return Job-UUID as a string
+	 * @param command API command to run in background mode
+	 * @param arg     command arguments, may be null
+	 * @param timeout after which the job fails with a {@link TimeoutException}, 0 to wait for ever
+	 * @param unit    of the timeout
+	 * @return the BACKGROUND_JOB event of the job
 	 */
-	public CompletableFuture<EslEvent> sendBackgroundApiCommand(Channel channel, final String command) {
+	public CompletableFuture<EslEvent> sendBackgroundApiCommand(Channel channel, String command, String arg,
+			long timeout, TimeUnit unit) {
+		checkArgument(timeout >= 0, "timeout cannot be negative");
+		final String jobUuid = newJobUuid();
+		return sendBackgroundJob(channel, jobUuid, EslCommand.bgapi(command, arg, jobUuid), unit.toNanos(timeout));
+	}
 
-		return sendApiSingleLineCommand(channel, command)
-				.thenComposeAsync(result -> {
-					if (result.hasHeader(Name.JOB_UUID)) {
-						final String jobId = result.getHeaderValue(Name.JOB_UUID);
-						final CompletableFuture<EslEvent> resultFuture = new CompletableFuture<>();
-						backgroundJobs.put(jobId, resultFuture);
-						return resultFuture;
-					} else {
-						final CompletableFuture<EslEvent> resultFuture = new CompletableFuture<>();
-						resultFuture.completeExceptionally(new IllegalStateException("Missing Job-UUID header in bgapi response"));
-						return resultFuture;
-					}
-				}, backgroundJobExecutor);
+	/**
+	 * The Job-UUID of a job is chosen here rather than by the server, and its result registered
+	 * before the command is written, so that the BACKGROUND_JOB event of a job completing at once
+	 * cannot arrive before the result is registered. Both the reply and the event complete the result
+	 * on the IO thread.
+	 *
+	 * @param timeout of the job in nanoseconds, 0 for none
+	 */
+	private CompletableFuture<EslEvent> sendBackgroundJob(Channel channel, String jobUuid, EslCommand command,
+			long timeout) {
+		final CompletableFuture<EslEvent> job = backgroundJobs.register(jobUuid, timeout);
+		if (job.isDone()) {
+			// rejected
+			return job;
+		}
+
+		sendCommand(channel, command, null).whenComplete((reply, failure) -> {
+			if (failure != null) {
+				backgroundJobs.fail(jobUuid, failure);
+			} else if (!reply.hasHeader(Name.JOB_UUID)) {
+				backgroundJobs.fail(jobUuid, new IllegalStateException("Missing Job-UUID header in bgapi response"));
+			} else {
+				final String serverJobUuid = reply.getHeaderValue(Name.JOB_UUID);
+				if (!serverJobUuid.equals(jobUuid)) {
+					// a server ignoring the Job-UUID header, the event carries the one of the reply
+					backgroundJobs.rekey(jobUuid, serverJobUuid);
+				}
+			}
+		});
+
+		return job;
 	}
 
+	/**
+	 * @return a random version 4 UUID, drawn from the thread's own generator rather than from the
+	 * shared, synchronized one of {@link UUID#randomUUID}: a Job-UUID only has to be unique among the
+	 * jobs of a connection
+	 */
+	private static String newJobUuid() {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		final long most = (random.nextLong() & 0xFFFFFFFFFFFF0FFFL) | 0x0000000000004000L;
+		final long least = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+		return new UUID(most, least).toString();
+	}
+
+	/**
+	 * Handles an event received from the server. A pooled event is released once this method
+	 * returns: an implementation handing it over to another thread must {@code retain()} it first,
+	 * and release it once done (see {@link ReferenceCountUtil}).
+	 */
 	protected abstract void handleEslEvent(ChannelHandlerContext ctx, EslEvent event);
 
 	protected abstract void handleAuthRequest(ChannelHandlerContext ctx);
@@ -0,0 +1,283 @@
+package org.freeswitch.esl.client.internal;
+
+import io.netty.channel.Channel;
+import org.freeswitch.esl.client.internal.IModEslApi.EventFormat;
+import org.freeswitch.esl.client.internal.IModEslApi.LoggingLevel;
+import org.freeswitch.esl.client.transport.CommandResponse;
+import org.freeswitch.esl.client.transport.SendMsg;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.event.HeaderProjection;
+import org.freeswitch.esl.client.transport.message.EslCommand;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.freeswitch.esl.client.transport.message.IEslBodyConsumer;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.*;
+import static com.google.common.base.Strings.isNullOrEmpty;
+
+/**
+ * The asynchronous operations of a connection, which the blocking ones of {@link Context} wait
+ * for. Invalid arguments are rejected as the operation is called; any other failure completes the
+ * returned future.
+ */
+public class AsyncContext implements IModEslAsyncApi {
+
+	private final AbstractEslClientHandler handler;
+	private final Channel channel;
+
+	public AsyncContext(Channel channel, AbstractEslClientHandler clientHandler) {
+		this.handler = clientHandler;
+		this.channel = channel;
+	}
+
+	@Override
+	public boolean canSend() {
+		return channel != null && channel.isActive();
+	}
+
+	/**
+	 * Sends a mod_event_socket command to FreeSWITCH server.
+	 *
+	 * @param command a mod_event_socket command to send
+	 * @return the {@link EslMessage} containing command results
+	 */
+	public CompletableFuture<EslMessage> sendCommand(String command) {
+
+		checkArgument(!isNullOrEmpty(command), "command cannot be null or empty");
+
+		return handler.sendApiSingleLineCommand(channel, command.toLowerCase().trim());
+	}
+
+	/**
+	 * Sends a FreeSWITCH API command to the server.
+	 *
+	 * @param command API command to send
+	 * @param arg     command arguments
+	 * @return the {@link EslMessage} containing command results
+	 */
+	@Override
+	public CompletableFuture<EslMessage> sendApiCommand(String command, String arg) {
+		return sendApiCommand(command, arg, null);
+	}
+
+	/**
+	 * Sends a FreeSWITCH API command to the server, streaming the body of the response to a consumer
+	 * as it arrives rather than buffering it.
+	 *
+	 * @param command      API command to send
+	 * @param arg          command arguments
+	 * @param bodyConsumer receiving the body of the response, null to read it in full
+	 * @return the {@link EslMessage} containing the response headers, completed once the whole body
+	 * has been consumed
+	 * @see IEslBodyConsumer#lines
+	 */
+	@Override
+	public CompletableFuture<EslMessage> sendApiCommand(String command, String arg, IEslBodyConsumer bodyConsumer) {
+		return handler.sendCommand(channel, EslCommand.api(command, arg), bodyConsumer);
+	}
+
+	/**
+	 * Sends a FreeSWITCH API command to the server, with a deadline of its own.
+	 *
+	 * @param command API command to send
+	 * @param arg     command arguments
+	 * @param timeout after which the returned future fails with a
+	 *                {@link java.util.concurrent.TimeoutException}, 0 to wait for ever
+	 * @param unit    of the timeout
+	 * @return the {@link EslMessage} containing command results
+	 * @see Context#sendApiCommand(String, String, long, TimeUnit)
+	 */
+	@Override
+	public CompletableFuture<EslMessage> sendApiCommand(String command, String arg, long timeout, TimeUnit unit) {
+		return handler.sendCommand(channel, EslCommand.api(command, arg), null, timeout, unit);
+	}
+
+	/**
+	 * Sends FreeSWITCH API commands to the server back to back, in a single flush.
+	 *
+	 * @param commands API commands to send
+	 * @return the {@link EslMessage}s containing the results, in the order of the commands
+	 * @see Context#sendApiCommands
+	 */
+	@Override
+	public CompletableFuture<List<EslMessage>> sendApiCommands(List<EslCommand> commands) {
+
+		checkNotNull(commands, "commands cannot be null");
+
+		return handler.sendCommands(channel, commands);
+	}
+
+	/**
+	 * Submit a FreeSWITCH API command to the server to be executed in background mode.
+	 *
+	 * @param command API command to send
+	 * @param arg     command arguments
+	 * @return the BACKGROUND_JOB event carrying the results of the job
+	 * @see Context#sendBackgroundApiCommand
+	 */
+	@Override
+	public CompletableFuture<EslEvent> sendBackgroundApiCommand(String command, String arg) {
+		return handler.sendBackgroundApiCommand(channel, command, arg);
+	}
+
+	/**
+	 * Submit a FreeSWITCH API command to the server to be executed in background mode, with a
+	 * deadline of its own.
+	 *
+	 * @param command API command to send
+	 * @param arg     command arguments
+	 * @param timeout after which the job fails with a {@link java.util.concurrent.TimeoutException}
+	 *                if its BACKGROUND_JOB event has not been received, 0 to wait for ever
+	 * @param unit    of the timeout
+	 * @return the BACKGROUND_JOB event carrying the results of the job
+	 * @see Context#sendBackgroundApiCommand(String, String, long, TimeUnit)
+	 */
+	@Override
+	public CompletableFuture<EslEvent> sendBackgroundApiCommand(String command, String arg, long timeout,
+			TimeUnit unit) {
+		return handler.sendBackgroundApiCommand(channel, command, arg, timeout, unit);
+	}
+
+	/**
+	 * Set the current event subscription for this connection to the server.
+	 *
+	 * @param format can be { plain | json | xml }
+	 * @param events { all | space separated list of events }
+	 * @return a {@link CommandResponse} with the server's response.
+	 * @see Context#setEventSubscriptions(EventFormat, String)
+	 */
+	@Override
+	public CompletableFuture<CommandResponse> setEventSubscriptions(EventFormat format, String events) {
+		return setEventSubscriptions(format, events, null);
+	}
+
+	/**
+	 * Set the current event subscription for this connection to the server, only decoding the
+	 * headers of a projection in the events received from now on.
+	 * <p/>
+	 * The projection applies to the whole connection, and only once the server has accepted the
+	 * subscription: a subscription failing leaves the connection with its previous projection.
+	 *
+	 * @param format     can be { plain | json | xml }
+	 * @param events     { all | space separated list of events }
+	 * @param projection of the event headers to decode, null for all of them
+	 * @return a {@link CommandResponse} with the server's response.
+	 * @see Context#setEventSubscriptions(EventFormat, String, HeaderProjection)
+	 */
+	@Override
+	public CompletableFuture<CommandResponse> setEventSubscriptions(EventFormat format, String events,
+			HeaderProjection projection) {
+
+		final StringBuilder sb = new StringBuilder();
+		sb.append("event ").append(format.toString());
+		if (!isNullOrEmpty(events)) {
+			sb.append(' ').append(events);
+		}
+
+		// on the IO thread as the reply is read, so before the events of the new subscription
+		return send(sb.toString()).thenApply(response -> {
+			if (response.isOk()) {
+				handler.setHeaderProjection(projection);
+			}
+			return response;
+		});
+	}
+
+	/**
+	 * Cancel any existing event subscription.
+	 *
+	 * @return a {@link CommandResponse} with the server's response.
+	 */
+	@Override
+	public CompletableFuture<CommandResponse> cancelEventSubscriptions() {
+		return send("noevents");
+	}
+
+	/**
+	 * Add an event filter to the current set of event filters on this connection.
+	 *
+	 * @param eventHeader   to filter on
+	 * @param valueToFilter the value to match
+	 * @return a {@link CommandResponse} with the server's response.
+	 * @see Context#addEventFilter
+	 */
+	@Override
+	public CompletableFuture<CommandResponse> addEventFilter(String eventHeader, String valueToFilter) {
+
+		checkArgument(!isNullOrEmpty(eventHeader), "eventHeader cannot be null or empty");
+
+		final StringBuilder sb = new StringBuilder();
+		sb.append("filter ").append(eventHeader);
+		if (!isNullOrEmpty(valueToFilter)) {
+			sb.append(' ').append(valueToFilter);
+		}
+
+		return send(sb.toString());
+	}
+
+	/**
+	 * Delete an event filter from the current set of event filters on this connection.
+	 *
+	 * @param eventHeader   to remove
+	 * @param valueToFilter to remove
+	 * @return a {@link CommandResponse} with the server's response.
+	 */
+	@Override
+	public CompletableFuture<CommandResponse> deleteEventFilter(String eventHeader, String valueToFilter) {
+
+		checkArgument(!isNullOrEmpty(eventHeader), "eventHeader cannot be null or empty");
+
+		final StringBuilder sb = new StringBuilder();
+		sb.append("filter delete ").append(eventHeader);
+		if (!isNullOrEmpty(valueToFilter)) {
+			sb.append(' ').append(valueToFilter);
+		}
+
+		return send(sb.toString());
+	}
+
+	/**
+	 * Send a {@link SendMsg} command to FreeSWITCH.
+	 *
+	 * @param sendMsg a {@link SendMsg} with call UUID
+	 * @return a {@link CommandResponse} with the server's response.
+	 */
+	@Override
+	public CompletableFuture<CommandResponse> sendMessage(SendMsg sendMsg) {
+
+		checkNotNull(sendMsg, "sendMsg cannot be null");
+
+		final String description = sendMsg.toString();
+		return handler.sendCommand(channel, sendMsg.toCommand(), null)
+				.thenApply(response -> new CommandResponse(description, response));
+	}
+
+	/**
+	 * Enable log output.
+	 *
+	 * @param level using the same values as in console.conf
+	 * @return a {@link CommandResponse} with the server's response.
+	 */
+	@Override
+	public CompletableFuture<CommandResponse> setLoggingLevel(LoggingLevel level) {
+		return send("log " + level.toString());
+	}
+
+	/**
+	 * Disable any logging previously enabled with setLogLevel().
+	 *
+	 * @return a {@link CommandResponse} with the server's response.
+	 */
+	@Override
+	public CompletableFuture<CommandResponse> cancelLogging() {
+		return send("nolog");
+	}
+
+	private CompletableFuture<CommandResponse> send(String command) {
+		return handler.sendApiSingleLineCommand(channel, command)
+				.thenApply(response -> new CommandResponse(command, response));
+	}
+}
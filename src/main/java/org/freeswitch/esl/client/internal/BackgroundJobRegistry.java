@@ -0,0 +1,247 @@
+package org.freeswitch.esl.client.internal;
+
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The background jobs of a connection awaiting their BACKGROUND_JOB event, by Job-UUID.
+ * <p/>
+ * A job whose event never comes, because the connection is not subscribed to it or closed before
+ * it was sent, must not be kept for ever: a job fails with a {@link TimeoutException} once past its
+ * deadline, every job fails once the connection is closed, and the number of jobs in flight is
+ * bounded, the jobs beyond the bound failing with a {@link RejectedExecutionException} as the
+ * {@link RejectionPolicy} says. The deadlines are run by a timer wheel shared by the connections.
+ * <p/>
+ * Jobs are registered by the threads sending them and completed on the IO thread, and the gauges
+ * and counters may be read by any thread.
+ */
+public final class BackgroundJobRegistry {
+
+	/**
+	 * Which job fails when a job is sent while the registry is full.
+	 */
+	public enum RejectionPolicy {
+		/**
+		 * The job being sent fails, without being sent.
+		 */
+		FAIL_NEW,
+		/**
+		 * The job in flight for the longest time fails, making room for the one being sent.
+		 */
+		FAIL_OLDEST
+	}
+
+	private final ConcurrentHashMap<String, Job> jobs = new ConcurrentHashMap<>();
+	private final Timer timer;
+	// the number of jobs in the map, exact rather than estimated as the size of the map
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicLong sequence = new AtomicLong();
+
+	// in nanoseconds, 0 for none
+	private volatile long timeout;
+	private volatile int maxJobs = Integer.MAX_VALUE;
+	private volatile RejectionPolicy rejectionPolicy = RejectionPolicy.FAIL_NEW;
+
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder timedOut = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+
+	BackgroundJobRegistry(Timer timer) {
+		this.timer = timer;
+	}
+
+	void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	long timeout() {
+		return timeout;
+	}
+
+	void setMaxJobs(int maxJobs, RejectionPolicy rejectionPolicy) {
+		this.maxJobs = maxJobs;
+		this.rejectionPolicy = rejectionPolicy;
+	}
+
+	/**
+	 * @param jobUuid of the job, which its BACKGROUND_JOB event carries
+	 * @param timeout of the job in nanoseconds, 0 for none
+	 * @return the result of the job, already failed if the job is rejected
+	 */
+	CompletableFuture<EslEvent> register(String jobUuid, long timeout) {
+		final Job job = new Job(jobUuid, sequence.getAndIncrement());
+		while (inFlight.incrementAndGet() > maxJobs) {
+			inFlight.decrementAndGet();
+			if (rejectionPolicy == RejectionPolicy.FAIL_NEW || !failOldest()) {
+				rejected.increment();
+				job.future.completeExceptionally(new RejectedExecutionException(
+						"Too many background jobs in flight: " + maxJobs));
+				return job.future;
+			}
+		}
+		jobs.put(jobUuid, job);
+		if (timeout > 0) {
+			job.timeout = timer.newTimeout(t -> expire(job, timeout), timeout, TimeUnit.NANOSECONDS);
+		}
+		return job.future;
+	}
+
+	private boolean failOldest() {
+		// only scanned once the registry is full
+		Job oldest = null;
+		for (Job job : jobs.values()) {
+			if (oldest == null || job.sequence < oldest.sequence) {
+				oldest = job;
+			}
+		}
+		if (oldest == null || !remove(oldest)) {
+			return false;
+		}
+		rejected.increment();
+		oldest.future.completeExceptionally(new RejectedExecutionException(
+				"Background job [" + oldest.key + "] evicted by a newer one, " + maxJobs + " jobs in flight"));
+		return true;
+	}
+
+	private void expire(Job job, long timeout) {
+		if (remove(job)) {
+			timedOut.increment();
+			job.future.completeExceptionally(new TimeoutException("No BACKGROUND_JOB event for job ["
+					+ job.key + "] within " + TimeUnit.NANOSECONDS.toMillis(timeout) + " ms"));
+		}
+	}
+
+	/**
+	 * Removes a job whose event has been received.
+	 *
+	 * @param jobUuid of the job
+	 * @return the result of the job to complete with its event, null if no job is waiting for it
+	 */
+	CompletableFuture<EslEvent> take(String jobUuid) {
+		final Job job = jobs.remove(jobUuid);
+		if (job == null) {
+			return null;
+		}
+		removed(job);
+		completed.increment();
+		return job.future;
+	}
+
+	/**
+	 * Fails a job whose command has failed.
+	 */
+	void fail(String jobUuid, Throwable cause) {
+		final Job job = jobs.get(jobUuid);
+		if (job != null && remove(job)) {
+			failed.increment();
+			job.future.completeExceptionally(cause);
+		}
+	}
+
+	/**
+	 * Files a job under the Job-UUID its event is to carry, for a server ignoring the one sent.
+	 */
+	void rekey(String jobUuid, String serverJobUuid) {
+		final Job job = jobs.get(jobUuid);
+		if (job != null && jobs.remove(jobUuid, job)) {
+			job.key = serverJobUuid;
+			jobs.put(serverJobUuid, job);
+			if (job.future.isDone()) {
+				// expired while it was moved
+				jobs.remove(serverJobUuid, job);
+			}
+		}
+	}
+
+	/**
+	 * Fails every job in flight, such as when the connection is closed.
+	 */
+	void failAll(Throwable cause) {
+		for (Job job : jobs.values()) {
+			if (remove(job)) {
+				failed.increment();
+				job.future.completeExceptionally(cause);
+			}
+		}
+	}
+
+	private boolean remove(Job job) {
+		if (jobs.remove(job.key, job)) {
+			removed(job);
+			return true;
+		}
+		return false;
+	}
+
+	private void removed(Job job) {
+		inFlight.decrementAndGet();
+		final Timeout timeout = job.timeout;
+		if (timeout != null) {
+			timeout.cancel();
+		}
+	}
+
+	/**
+	 * @return the number of jobs awaiting their event
+	 */
+	public int inFlight() {
+		return inFlight.get();
+	}
+
+	/**
+	 * @return the number of jobs completed by their event
+	 */
+	public long completed() {
+		return completed.sum();
+	}
+
+	/**
+	 * @return the number of jobs failed past their deadline
+	 */
+	public long timedOut() {
+		return timedOut.sum();
+	}
+
+	/**
+	 * @return the number of jobs rejected or evicted as the registry was full
+	 */
+	public long rejected() {
+		return rejected.sum();
+	}
+
+	/**
+	 * @return the number of jobs failed with their command or their connection
+	 */
+	public long failed() {
+		return failed.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "BackgroundJobRegistry[inFlight=" + inFlight() + ", completed=" + completed()
+				+ ", timedOut=" + timedOut() + ", rejected=" + rejected() + ", failed=" + failed() + ']';
+	}
+
+	private static final class Job {
+		private final CompletableFuture<EslEvent> future = new CompletableFuture<>();
+		private final long sequence;
+		private volatile String key;
+		private volatile Timeout timeout;
+
+		private Job(String key, long sequence) {
+			this.key = key;
+			this.sequence = sequence;
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package org.freeswitch.esl.client.internal;
+
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.common.util.concurrent.Uninterruptibles;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import io.netty.util.Timeout;
+import org.freeswitch.esl.client.internal.IModEslApi.EventFormat;
+import org.freeswitch.esl.client.internal.IModEslApi.LoggingLevel;
+import org.freeswitch.esl.client.transport.CommandResponse;
+import org.freeswitch.esl.client.transport.SendMsg;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.event.HeaderProjection;
+import org.freeswitch.esl.client.transport.message.EslCommand;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.freeswitch.esl.client.transport.message.IEslBodyConsumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.Futures.getUnchecked;
+
+/**
+ * The asynchronous operations of an {@link IModEslApi} having only blocking ones, such as an
+ * implementation written before {@link IModEslApi#async()}, each running its blocking counterpart on
+ * the common pool. Also holds what the default methods of {@link IModEslApi} build on those
+ * blocking operations.
+ */
+final class BlockingAsyncApi implements IModEslAsyncApi {
+	private static final String API = "api ";
+
+	private final IModEslApi api;
+
+	BlockingAsyncApi(IModEslApi api) {
+		this.api = api;
+	}
+
+	@Override
+	public boolean canSend() {
+		return api.canSend();
+	}
+
+	@Override
+	public CompletableFuture<EslMessage> sendApiCommand(String command, String arg) {
+		return CompletableFuture.supplyAsync(() -> api.sendApiCommand(command, arg));
+	}
+
+	@Override
+	public CompletableFuture<EslMessage> sendApiCommand(String command, String arg, IEslBodyConsumer bodyConsumer) {
+		return CompletableFuture.supplyAsync(() -> api.sendApiCommand(command, arg, bodyConsumer));
+	}
+
+	@Override
+	public CompletableFuture<EslMessage> sendApiCommand(String command, String arg, long timeout, TimeUnit unit) {
+		return withTimeout(sendApiCommand(command, arg), timeout, unit);
+	}
+
+	@Override
+	public CompletableFuture<List<EslMessage>> sendApiCommands(List<EslCommand> commands) {
+		return api.sendApiCommands(commands);
+	}
+
+	@Override
+	public CompletableFuture<EslEvent> sendBackgroundApiCommand(String command, String arg) {
+		return api.sendBackgroundApiCommand(command, arg);
+	}
+
+	@Override
+	public CompletableFuture<EslEvent> sendBackgroundApiCommand(String command, String arg, long timeout,
+			TimeUnit unit) {
+		return api.sendBackgroundApiCommand(command, arg, timeout, unit);
+	}
+
+	@Override
+	public CompletableFuture<CommandResponse> setEventSubscriptions(EventFormat format, String events) {
+		return CompletableFuture.supplyAsync(() -> api.setEventSubscriptions(format, events));
+	}
+
+	@Override
+	public CompletableFuture<CommandResponse> setEventSubscriptions(EventFormat format, String events,
+			HeaderProjection projection) {
+		return CompletableFuture.supplyAsync(() -> api.setEventSubscriptions(format, events, projection));
+	}
+
+	@Override
+	public CompletableFuture<CommandResponse> cancelEventSubscriptions() {
+		return CompletableFuture.supplyAsync(api::cancelEventSubscriptions);
+	}
+
+	@Override
+	public CompletableFuture<CommandResponse> addEventFilter(String eventHeader, String valueToFilter) {
+		return CompletableFuture.supplyAsync(() -> api.addEventFilter(eventHeader, valueToFilter));
+	}
+
+	@Override
+	public CompletableFuture<CommandResponse> deleteEventFilter(String eventHeader, String valueToFilter) {
+		return CompletableFuture.supplyAsync(() -> api.deleteEventFilter(eventHeader, valueToFilter));
+	}
+
+	@Override
+	public CompletableFuture<CommandResponse> sendMessage(SendMsg sendMsg) {
+		return CompletableFuture.supplyAsync(() -> api.sendMessage(sendMsg));
+	}
+
+	@Override
+	public CompletableFuture<CommandResponse> setLoggingLevel(LoggingLevel level) {
+		return CompletableFuture.supplyAsync(() -> api.setLoggingLevel(level));
+	}
+
+	@Override
+	public CompletableFuture<CommandResponse> cancelLogging() {
+		return CompletableFuture.supplyAsync(api::cancelLogging);
+	}
+
+	/**
+	 * @return a future completed as another one, or failed with a {@link TimeoutException} if the
+	 * other one has not completed after a timeout, 0 to wait for ever
+	 */
+	static <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, long timeout, TimeUnit unit) {
+		checkArgument(timeout >= 0, "timeout cannot be negative");
+		if (timeout == 0) {
+			return future;
+		}
+		final CompletableFuture<T> result = new CompletableFuture<>();
+		final Timeout expiry = AbstractEslClientHandler.TIMER.newTimeout(t -> result.completeExceptionally(
+				new TimeoutException("No outcome after " + timeout + " " + unit)), timeout, unit);
+		future.whenComplete((value, failure) -> {
+			expiry.cancel();
+			if (failure != null) {
+				result.completeExceptionally(failure);
+			} else {
+				result.complete(value);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Waits for the outcome of an operation, as the blocking operations of {@link Context} do.
+	 *
+	 * @throws UncheckedExecutionException caused by the failure of the operation, or by a
+	 *                                     {@link TimeoutException}
+	 */
+	static <T> T await(CompletableFuture<T> future, long timeout, TimeUnit unit) {
+		checkArgument(timeout >= 0, "timeout cannot be negative");
+		if (timeout == 0) {
+			return getUnchecked(future);
+		}
+		try {
+			return Uninterruptibles.getUninterruptibly(future, timeout, unit);
+		} catch (ExecutionException e) {
+			throw new UncheckedExecutionException(e.getCause());
+		} catch (TimeoutException e) {
+			throw new UncheckedExecutionException(e);
+		}
+	}
+
+	/**
+	 * Hands the body of a response read in full to a consumer, in a single part.
+	 */
+	static void consume(EslMessage response, IEslBodyConsumer bodyConsumer) {
+		final StringBuilder body = new StringBuilder();
+		for (String line : response.getBodyLines()) {
+			body.append(line).append('\n');
+		}
+		final ByteBuf data = Unpooled.copiedBuffer(body, CharsetUtil.UTF_8);
+		try {
+			bodyConsumer.onData(data);
+			bodyConsumer.onEnd();
+		} catch (Exception e) {
+			throw new UncheckedExecutionException(e);
+		} finally {
+			data.release();
+		}
+	}
+
+	/**
+	 * Sends {@code api} commands one after the other, each once the previous one has been replied to.
+	 *
+	 * @throws IllegalArgumentException if a command is not a single line {@code api} command
+	 */
+	static List<EslMessage> sendOneByOne(IModEslApi api, List<EslCommand> commands) {
+		final List<String> lines = new ArrayList<>(commands.size());
+		for (EslCommand command : commands) {
+			final String line = command.toString();
+			checkArgument(line.startsWith(API) && line.indexOf('\n') < 0, "not an api command: %s", line);
+			lines.add(line.substring(API.length()));
+		}
+		final List<EslMessage> responses = new ArrayList<>(lines.size());
+		for (String line : lines) {
+			final int space = line.indexOf(' ');
+			responses.add(space < 0
+					? api.sendApiCommand(line, null)
+					: api.sendApiCommand(line.substring(0, space), line.substring(space + 1)));
+		}
+		return responses;
+	}
+}
@@ -4,24 +4,28 @@ import io.netty.channel.Channel;
 import org.freeswitch.esl.client.transport.CommandResponse;
 import org.freeswitch.esl.client.transport.SendMsg;
 import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.event.HeaderProjection;
+import org.freeswitch.esl.client.transport.message.EslCommand;
 import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.freeswitch.esl.client.transport.message.IEslBodyConsumer;
 
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
-import static com.google.common.base.Preconditions.*;
-import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.google.common.base.Throwables.propagate;
 import static com.google.common.util.concurrent.Futures.getUnchecked;
-import static org.freeswitch.esl.client.internal.IModEslApi.EventFormat.*;
 
 public class Context implements IModEslApi {
 
 	private final AbstractEslClientHandler handler;
 	private final Channel channel;
+	private final AsyncContext async;
 
 	public Context(Channel channel, AbstractEslClientHandler clientHandler) {
 		this.handler = clientHandler;
 		this.channel = channel;
+		this.async = new AsyncContext(channel, clientHandler);
 	}
 
 	@Override
@@ -29,6 +33,30 @@ public class Context implements IModEslApi {
 		return channel != null && channel.isActive();
 	}
 
+	/**
+	 * @return the asynchronous operations of this connection, which return futures rather than
+	 * blocking until the server has replied
+	 */
+	@Override
+	public AsyncContext async() {
+		return async;
+	}
+
+	/**
+	 * @return the counts of the commands sent on this connection and of the flushes sending them
+	 */
+	public WriteMetrics getWriteMetrics() {
+		return handler.getWriteMetrics();
+	}
+
+	/**
+	 * @return the background jobs of this connection awaiting their BACKGROUND_JOB event, and the
+	 * counts of the jobs completed and failed
+	 */
+	public BackgroundJobRegistry getBackgroundJobs() {
+		return handler.getBackgroundJobs();
+	}
+
 	/**
 	 * Sends a mod_event_socket command to FreeSWITCH server and blocks, waiting for an immediate response from the
 	 * server.
@@ -39,16 +67,7 @@ public class Context implements IModEslApi {
 	 * @return an {@link org.freeswitch.esl.client.transport.message.EslMessage} containing command results
 	 */
 	public EslMessage sendCommand(String command) {
-
-		checkArgument(!isNullOrEmpty(command), "command cannot be null or empty");
-
-		try {
-
-			return getUnchecked(handler.sendApiSingleLineCommand(channel, command.toLowerCase().trim()));
-
-		} catch (Throwable t) {
-			throw propagate(t);
-		}
+		return wait(async.sendCommand(command));
 	}
 
 	/**
@@ -63,27 +82,64 @@ public class Context implements IModEslApi {
 	 */
 	@Override
 	public EslMessage sendApiCommand(String command, String arg) {
+		return sendApiCommand(command, arg, null);
+	}
 
-		checkArgument(!isNullOrEmpty(command), "command cannot be null or empty");
-
-		try {
-
-			final StringBuilder sb = new StringBuilder();
-			sb.append("api ").append(command);
-			if (!isNullOrEmpty(arg)) {
-				sb.append(' ').append(arg);
-			}
+	/**
+	 * Sends a FreeSWITCH API command to the server and blocks until the response has been received,
+	 * streaming the body of the response to a consumer as it arrives rather than buffering it.
+	 * <p/>
+	 * The consumer is called on the IO thread and must not block. The returned message holds the
+	 * headers of the response, without any body lines.
+	 *
+	 * @param command      API command to send
+	 * @param arg          command arguments
+	 * @param bodyConsumer receiving the body of the response, null to read it in full
+	 * @return an {@link org.freeswitch.esl.client.transport.message.EslMessage} containing the
+	 * response headers
+	 * @see IEslBodyConsumer#lines
+	 */
+	@Override
+	public EslMessage sendApiCommand(String command, String arg, IEslBodyConsumer bodyConsumer) {
+		return wait(async.sendApiCommand(command, arg, bodyConsumer));
+	}
 
-			return getUnchecked(handler.sendApiSingleLineCommand(channel, sb.toString()));
+	/**
+	 * Sends a FreeSWITCH API command to the server and blocks until the response has been received,
+	 * or the deadline of the command has passed. A command which never gets a response then no
+	 * longer holds its caller for ever; its response, if it comes later, is discarded.
+	 *
+	 * @param command API command to send
+	 * @param arg     command arguments
+	 * @param timeout after which an exception caused by a {@link java.util.concurrent.TimeoutException}
+	 *                is thrown, 0 to wait for ever
+	 * @param unit    of the timeout
+	 * @return an {@link org.freeswitch.esl.client.transport.message.EslMessage} containing command results
+	 */
+	@Override
+	public EslMessage sendApiCommand(String command, String arg, long timeout, TimeUnit unit) {
+		return wait(async.sendApiCommand(command, arg, timeout, unit));
+	}
 
-		} catch (Throwable t) {
-			throw propagate(t);
-		}
+	/**
+	 * Sends FreeSWITCH API commands to the server back to back, in a single flush, without waiting for
+	 * the reply to a command before sending the next one. A batch of commands, such as the
+	 * {@code uuid_getvar} calls warming up a cache, then takes a single round trip.
+	 * <p/>
+	 * The commands are typically built with {@link EslCommand#api}.
+	 *
+	 * @param commands API commands to send
+	 * @return the {@link org.freeswitch.esl.client.transport.message.EslMessage}s containing the
+	 * results, in the order of the commands, or the failure of the first command failing
+	 */
+	@Override
+	public CompletableFuture<List<EslMessage>> sendApiCommands(List<EslCommand> commands) {
+		return async.sendApiCommands(commands);
 	}
 
 	/**
-	 * Submit a FreeSWITCH API command to the server to be executed in background mode. A synchronous
-	 * response from the server provides a UUID to identify the job execution results. When the server
+	 * Submit a FreeSWITCH API command to the server to be executed in background mode. The command
+	 * carries a Job-UUID chosen by the client to identify the job execution results. When the server
 	 * has completed the job execution it fires a BACKGROUND_JOB Event with the execution results.<p/>
 	 * Note that this Client must be subscribed in the normal way to BACKGROUND_JOB Events, in order to
 	 * receive this event.
@@ -94,16 +150,25 @@ public class Context implements IModEslApi {
 	 */
 	@Override
 	public CompletableFuture<EslEvent> sendBackgroundApiCommand(String command, String arg) {
+		return async.sendBackgroundApiCommand(command, arg);
+	}
 
-		checkArgument(!isNullOrEmpty(command), "command cannot be null or empty");
-
-		final StringBuilder sb = new StringBuilder();
-		sb.append("bgapi ").append(command);
-		if (!isNullOrEmpty(arg)) {
-			sb.append(' ').append(arg);
-		}
-
-		return handler.sendBackgroundApiCommand(channel, sb.toString());
+	/**
+	 * Submit a FreeSWITCH API command to the server to be executed in background mode, with a
+	 * deadline of its own. A job whose BACKGROUND_JOB event has not been received by then, such as
+	 * because this connection is not subscribed to it, fails rather than being waited for for ever.
+	 *
+	 * @param command API command to send
+	 * @param arg     command arguments
+	 * @param timeout after which the job fails with a {@link java.util.concurrent.TimeoutException},
+	 *                0 to wait for ever
+	 * @param unit    of the timeout
+	 * @return the BACKGROUND_JOB event carrying the results of the job
+	 */
+	@Override
+	public CompletableFuture<EslEvent> sendBackgroundApiCommand(String command, String arg, long timeout,
+			TimeUnit unit) {
+		return async.sendBackgroundApiCommand(command, arg, timeout, unit);
 	}
 
 	/**
@@ -117,33 +182,32 @@ public class Context implements IModEslApi {
 	 * </pre>
 	 * Subsequent calls to this method replaces any previous subscriptions that were set.
 	 * </p>
-	 * Note: current implementation can only process 'plain' events.
 	 *
-	 * @param format can be { plain | xml }
+	 * @param format can be { plain | json | xml }
 	 * @param events { all | space separated list of events }
 	 * @return a {@link org.freeswitch.esl.client.transport.CommandResponse} with the server's response.
 	 */
 	@Override
 	public CommandResponse setEventSubscriptions(EventFormat format, String events) {
+		return setEventSubscriptions(format, events, null);
+	}
 
-		// temporary hack
-		checkState(format.equals(PLAIN), "Only 'plain' event format is supported at present");
-
-		try {
-
-			final StringBuilder sb = new StringBuilder();
-			sb.append("event ").append(format.toString());
-			if (!isNullOrEmpty(events)) {
-				sb.append(' ').append(events);
-			}
-
-			final EslMessage response = getUnchecked(handler.sendApiSingleLineCommand(channel, sb.toString()));
-			return new CommandResponse(sb.toString(), response);
-
-		} catch (Throwable t) {
-			throw propagate(t);
-		}
-
+	/**
+	 * Set the current event subscription for this connection to the server, only decoding the
+	 * headers of a projection in the events received from now on. The other headers are skipped
+	 * without being decoded, which saves most of the cost of an event when few headers are read.
+	 * <p/>
+	 * The projection replaces any projection set by a previous subscription.
+	 *
+	 * @param format     can be { plain | json | xml }
+	 * @param events     { all | space separated list of events }
+	 * @param projection of the event headers to decode, null for all of them
+	 * @return a {@link CommandResponse} with the server's response.
+	 * @see #setEventSubscriptions(EventFormat, String)
+	 */
+	@Override
+	public CommandResponse setEventSubscriptions(EventFormat format, String events, HeaderProjection projection) {
+		return wait(async.setEventSubscriptions(format, events, projection));
 	}
 
 	/**
@@ -153,13 +217,7 @@ public class Context implements IModEslApi {
 	 */
 	@Override
 	public CommandResponse cancelEventSubscriptions() {
-
-		try {
-			final EslMessage response = getUnchecked(handler.sendApiSingleLineCommand(channel, "noevents"));
-			return new CommandResponse("noevents", response);
-		} catch (Throwable t) {
-			throw propagate(t);
-		}
+		return wait(async.cancelEventSubscriptions());
 	}
 
 	/**
@@ -184,22 +242,7 @@ public class Context implements IModEslApi {
 	 */
 	@Override
 	public CommandResponse addEventFilter(String eventHeader, String valueToFilter) {
-
-		checkArgument(!isNullOrEmpty(eventHeader), "eventHeader cannot be null or empty");
-
-		try {
-			final StringBuilder sb = new StringBuilder();
-			sb.append("filter ").append(eventHeader);
-			if (!isNullOrEmpty(valueToFilter)) {
-				sb.append(' ').append(valueToFilter);
-			}
-
-			final EslMessage response = getUnchecked(handler.sendApiSingleLineCommand(channel, sb.toString()));
-			return new CommandResponse(sb.toString(), response);
-
-		} catch (Throwable t) {
-			throw propagate(t);
-		}
+		return wait(async.addEventFilter(eventHeader, valueToFilter));
 	}
 
 	/**
@@ -211,23 +254,7 @@ public class Context implements IModEslApi {
 	 */
 	@Override
 	public CommandResponse deleteEventFilter(String eventHeader, String valueToFilter) {
-
-		checkArgument(!isNullOrEmpty(eventHeader), "eventHeader cannot be null or empty");
-
-		try {
-
-			final StringBuilder sb = new StringBuilder();
-			sb.append("filter delete ").append(eventHeader);
-			if (!isNullOrEmpty(valueToFilter)) {
-				sb.append(' ').append(valueToFilter);
-			}
-
-			final EslMessage response = getUnchecked(handler.sendApiSingleLineCommand(channel, sb.toString()));
-			return new CommandResponse(sb.toString(), response);
-
-		} catch (Throwable t) {
-			throw propagate(t);
-		}
+		return wait(async.deleteEventFilter(eventHeader, valueToFilter));
 	}
 
 	/**
@@ -239,16 +266,7 @@ public class Context implements IModEslApi {
 	 */
 	@Override
 	public CommandResponse sendMessage(SendMsg sendMsg) {
-
-		checkNotNull(sendMsg, "sendMsg cannot be null");
-
-		try {
-			final EslMessage response = getUnchecked(handler.sendApiMultiLineCommand(channel, sendMsg.getMsgLines()));
-			return new CommandResponse(sendMsg.toString(), response);
-		} catch (Throwable t) {
-			throw propagate(t);
-		}
-
+		return wait(async.sendMessage(sendMsg));
 	}
 
 	/**
@@ -259,17 +277,7 @@ public class Context implements IModEslApi {
 	 */
 	@Override
 	public CommandResponse setLoggingLevel(LoggingLevel level) {
-
-		try {
-			final StringBuilder sb = new StringBuilder();
-			sb.append("log ").append(level.toString());
-
-			final EslMessage response = getUnchecked(handler.sendApiSingleLineCommand(channel, sb.toString()));
-			return new CommandResponse(sb.toString(), response);
-		} catch (Throwable t) {
-			throw propagate(t);
-		}
-
+		return wait(async.setLoggingLevel(level));
 	}
 
 	/**
@@ -279,10 +287,15 @@ public class Context implements IModEslApi {
 	 */
 	@Override
 	public CommandResponse cancelLogging() {
+		return wait(async.cancelLogging());
+	}
 
+	/**
+	 * Waits for the outcome of an operation.
+	 */
+	private static <T> T wait(CompletableFuture<T> future) {
 		try {
-			final EslMessage response = getUnchecked(handler.sendApiSingleLineCommand(channel, "nolog"));
-			return new CommandResponse("nolog", response);
+			return getUnchecked(future);
 		} catch (Throwable t) {
 			throw propagate(t);
 		}
@@ -0,0 +1,41 @@
+package org.freeswitch.esl.client.internal;
+
+import io.netty.util.ReferenceCountUtil;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Delivers each event as a task of an {@link Executor}. Events are delivered in the order they are
+ * received when the executor runs its tasks one at a time, as a single thread executor does.
+ */
+public final class ExecutorEventDispatcher implements IEslEventDispatcher {
+	private final Executor executor;
+
+	public ExecutorEventDispatcher(Executor executor) {
+		this.executor = checkNotNull(executor, "executor");
+	}
+
+	/**
+	 * @throws RejectedExecutionException if the executor rejects the event
+	 */
+	@Override
+	public void dispatch(Context context, EslEvent event, BiConsumer<Context, EslEvent> delivery) {
+		try {
+			executor.execute(() -> {
+				try {
+					delivery.accept(context, event);
+				} finally {
+					ReferenceCountUtil.release(event);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			ReferenceCountUtil.release(event);
+			throw e;
+		}
+	}
+}
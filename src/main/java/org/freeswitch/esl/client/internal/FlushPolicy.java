@@ -0,0 +1,56 @@
+package org.freeswitch.esl.client.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * When the commands written to a connection are flushed to the socket.
+ * <p/>
+ * Commands written by the IO thread in the same run of the event loop, such as a burst of commands
+ * sent by many threads at once, are flushed together once the commands already handed over to the
+ * event loop have been written, sparing a system call per command. A flush happens sooner once the
+ * commands pending reach a number of commands or of bytes, so that a large burst does not wait for
+ * all of it to be written.
+ */
+public final class FlushPolicy {
+	/**
+	 * Flushes each command as soon as it is written.
+	 */
+	public static final FlushPolicy IMMEDIATE = new FlushPolicy(1, 1);
+	/**
+	 * Coalesces up to 128 commands or 64KB per flush.
+	 */
+	public static final FlushPolicy DEFAULT = coalescing(128, 64 * 1024);
+
+	private final int maxCommands;
+	private final int maxBytes;
+
+	private FlushPolicy(int maxCommands, int maxBytes) {
+		this.maxCommands = maxCommands;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @param maxCommands most commands pending before a flush
+	 * @param maxBytes    most bytes pending before a flush, counting the most bytes each command can
+	 *                    be encoded to
+	 * @return a policy coalescing the commands written in the same run of the event loop
+	 */
+	public static FlushPolicy coalescing(int maxCommands, int maxBytes) {
+		checkArgument(maxCommands > 0, "maxCommands must be positive");
+		checkArgument(maxBytes > 0, "maxBytes must be positive");
+		return new FlushPolicy(maxCommands, maxBytes);
+	}
+
+	int maxCommands() {
+		return maxCommands;
+	}
+
+	int maxBytes() {
+		return maxBytes;
+	}
+
+	@Override
+	public String toString() {
+		return "FlushPolicy[maxCommands=" + maxCommands + ", maxBytes=" + maxBytes + ']';
+	}
+}
@@ -0,0 +1,27 @@
+package org.freeswitch.esl.client.internal;
+
+import io.netty.util.ReferenceCountUtil;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Hands the events received by the IO threads over to the threads delivering them to the listeners,
+ * so that a slow listener never holds up the reading of a connection.
+ * <p/>
+ * The delivery of an event to its listeners is given as a callback fixed for a connection, so that
+ * dispatching an event needs no object of its own.
+ */
+public interface IEslEventDispatcher {
+
+	/**
+	 * Has an event delivered on another thread. The dispatcher takes over a reference of a pooled
+	 * event, which it releases once the event has been delivered or if the event is not delivered
+	 * (see {@link ReferenceCountUtil}).
+	 *
+	 * @param context  of the connection the event was received on
+	 * @param event    to deliver
+	 * @param delivery delivering the event to its listeners
+	 */
+	void dispatch(Context context, EslEvent event, BiConsumer<Context, EslEvent> delivery);
+}
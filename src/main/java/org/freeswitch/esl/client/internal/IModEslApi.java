@@ -3,9 +3,14 @@ package org.freeswitch.esl.client.internal;
 import org.freeswitch.esl.client.transport.CommandResponse;
 import org.freeswitch.esl.client.transport.SendMsg;
 import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.event.HeaderProjection;
+import org.freeswitch.esl.client.transport.message.EslCommand;
 import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.freeswitch.esl.client.transport.message.IEslBodyConsumer;
 
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 public interface IModEslApi {
 
@@ -54,12 +59,67 @@ public interface IModEslApi {
 
 	boolean canSend();
 
+	/**
+	 * By default, runs the blocking operations of this connection on the common pool.
+	 *
+	 * @return the asynchronous operations of this connection
+	 */
+	default IModEslAsyncApi async() {
+		return new BlockingAsyncApi(this);
+	}
+
 	EslMessage sendApiCommand(String command, String arg);
 
+	/**
+	 * By default, reads the response in full, and then hands its body to the consumer in one part.
+	 */
+	default EslMessage sendApiCommand(String command, String arg, IEslBodyConsumer bodyConsumer) {
+		final EslMessage response = sendApiCommand(command, arg);
+		if (bodyConsumer != null) {
+			BlockingAsyncApi.consume(response, bodyConsumer);
+		}
+		return response;
+	}
+
+	/**
+	 * By default, runs the command on the common pool, and waits for it until the timeout.
+	 */
+	default EslMessage sendApiCommand(String command, String arg, long timeout, TimeUnit unit) {
+		return BlockingAsyncApi.await(CompletableFuture.supplyAsync(() -> sendApiCommand(command, arg)),
+				timeout, unit);
+	}
+
+	/**
+	 * By default, sends the commands one after the other on the common pool, each once the previous
+	 * one has been replied to, the commands then having to be single line {@code api} commands.
+	 */
+	default CompletableFuture<List<EslMessage>> sendApiCommands(List<EslCommand> commands) {
+		return CompletableFuture.supplyAsync(() -> BlockingAsyncApi.sendOneByOne(this, commands));
+	}
+
 	CompletableFuture<EslEvent> sendBackgroundApiCommand(String command, String arg);
 
+	/**
+	 * By default, fails the job if it has not completed after the timeout.
+	 */
+	default CompletableFuture<EslEvent> sendBackgroundApiCommand(String command, String arg, long timeout,
+			TimeUnit unit) {
+		return BlockingAsyncApi.withTimeout(sendBackgroundApiCommand(command, arg), timeout, unit);
+	}
+
 	CommandResponse setEventSubscriptions(EventFormat format, String events);
 
+	/**
+	 * @throws UnsupportedOperationException with a projection, unless overridden by an
+	 *                                       implementation able to project the event headers
+	 */
+	default CommandResponse setEventSubscriptions(EventFormat format, String events, HeaderProjection projection) {
+		if (projection != null) {
+			throw new UnsupportedOperationException(getClass().getName() + " cannot project event headers");
+		}
+		return setEventSubscriptions(format, events);
+	}
+
 	CommandResponse cancelEventSubscriptions();
 
 	CommandResponse addEventFilter(String eventHeader, String valueToFilter);
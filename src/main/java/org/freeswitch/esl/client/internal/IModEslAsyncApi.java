@@ -0,0 +1,56 @@
+package org.freeswitch.esl.client.internal;
+
+import org.freeswitch.esl.client.internal.IModEslApi.EventFormat;
+import org.freeswitch.esl.client.internal.IModEslApi.LoggingLevel;
+import org.freeswitch.esl.client.transport.CommandResponse;
+import org.freeswitch.esl.client.transport.SendMsg;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.event.HeaderProjection;
+import org.freeswitch.esl.client.transport.message.EslCommand;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.freeswitch.esl.client.transport.message.IEslBodyConsumer;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The operations of {@link IModEslApi}, each returning a future of its outcome rather than blocking
+ * the caller until the server has replied. A handful of threads can then drive any number of
+ * concurrent operations.
+ * <p/>
+ * The futures are completed on the IO thread of the connection: a dependent stage which blocks or
+ * takes long should run on an executor of its own ({@code thenApplyAsync(fn, executor)} ...).
+ */
+public interface IModEslAsyncApi {
+
+	boolean canSend();
+
+	CompletableFuture<EslMessage> sendApiCommand(String command, String arg);
+
+	CompletableFuture<EslMessage> sendApiCommand(String command, String arg, IEslBodyConsumer bodyConsumer);
+
+	CompletableFuture<EslMessage> sendApiCommand(String command, String arg, long timeout, TimeUnit unit);
+
+	CompletableFuture<List<EslMessage>> sendApiCommands(List<EslCommand> commands);
+
+	CompletableFuture<EslEvent> sendBackgroundApiCommand(String command, String arg);
+
+	CompletableFuture<EslEvent> sendBackgroundApiCommand(String command, String arg, long timeout, TimeUnit unit);
+
+	CompletableFuture<CommandResponse> setEventSubscriptions(EventFormat format, String events);
+
+	CompletableFuture<CommandResponse> setEventSubscriptions(EventFormat format, String events, HeaderProjection projection);
+
+	CompletableFuture<CommandResponse> cancelEventSubscriptions();
+
+	CompletableFuture<CommandResponse> addEventFilter(String eventHeader, String valueToFilter);
+
+	CompletableFuture<CommandResponse> deleteEventFilter(String eventHeader, String valueToFilter);
+
+	CompletableFuture<CommandResponse> sendMessage(SendMsg sendMsg);
+
+	CompletableFuture<CommandResponse> setLoggingLevel(LoggingLevel level);
+
+	CompletableFuture<CommandResponse> cancelLogging();
+}
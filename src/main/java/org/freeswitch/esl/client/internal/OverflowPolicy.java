@@ -0,0 +1,20 @@
+package org.freeswitch.esl.client.internal;
+
+/**
+ * What an {@link IEslEventDispatcher} holding a bounded number of events does with an event received
+ * while it is full.
+ */
+public enum OverflowPolicy {
+	/**
+	 * Drops the event, and counts it, rather than holding up the connection it was received on.
+	 */
+	DROP,
+	/**
+	 * Blocks the IO thread dispatching the event until there is room for it, so that nothing more is
+	 * read from the connection in the meantime and FreeSWITCH is held back by TCP flow control rather
+	 * than events being lost. The other connections of the IO thread are held up as well, and a
+	 * listener must then not wait for a reply received on the connection, which would never be read.
+	 * An event is still dropped if the blocked thread is interrupted, or the dispatcher closed.
+	 */
+	BLOCK
+}
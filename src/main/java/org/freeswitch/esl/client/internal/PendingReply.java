@@ -0,0 +1,108 @@
+package org.freeswitch.esl.client.internal;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.freeswitch.esl.client.transport.message.IEslBodyConsumer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A command waiting for its reply, optionally streaming the body of the reply to a consumer.
+ * <p/>
+ * A failing consumer is not called again, the rest of the body is skipped and the command
+ * completes with the failure once the reply has been read, so that the replies of the later
+ * commands are still matched with them.
+ * <p/>
+ * A command timing out, or cancelled, stays queued until its reply arrives: the replies come in
+ * the order of the commands, so its late reply is still matched with it, and then discarded,
+ * rather than with the command after it.
+ */
+final class PendingReply implements IEslBodyConsumer {
+	private final CompletableFuture<EslMessage> future = new CompletableFuture<>();
+	// null when the body is not streamed
+	private final IEslBodyConsumer bodyConsumer;
+	private Throwable bodyFailure;
+	private Timeout timeout;
+
+	PendingReply(IEslBodyConsumer bodyConsumer) {
+		this.bodyConsumer = bodyConsumer;
+	}
+
+	CompletableFuture<EslMessage> future() {
+		return future;
+	}
+
+	/**
+	 * Fails the command with a {@link TimeoutException} unless its reply arrives within a deadline.
+	 *
+	 * @param timer   running the deadline
+	 * @param command waiting for the reply, named in the failure
+	 * @param delay   before the deadline, in nanoseconds
+	 */
+	void expireAfter(Timer timer, Object command, long delay) {
+		timeout = timer.newTimeout(t -> future.completeExceptionally(new TimeoutException(
+				"No reply to [" + command + "] within " + TimeUnit.NANOSECONDS.toMillis(delay) + " ms")),
+				delay, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @return true once the command has a result, its reply then being discarded
+	 */
+	boolean isDone() {
+		return future.isDone();
+	}
+
+	/**
+	 * @return this reply to stream the body of the reply, or null to read it in full
+	 */
+	IEslBodyConsumer bodyConsumer() {
+		return bodyConsumer == null ? null : this;
+	}
+
+	@Override
+	public void onData(ByteBuf data) {
+		// the body of a late reply is skipped
+		if (bodyFailure == null && !future.isDone()) {
+			try {
+				bodyConsumer.onData(data);
+			} catch (Throwable t) {
+				bodyFailure = t;
+			}
+		}
+	}
+
+	@Override
+	public void onEnd() {
+		if (bodyFailure == null && !future.isDone()) {
+			try {
+				bodyConsumer.onEnd();
+			} catch (Throwable t) {
+				bodyFailure = t;
+			}
+		}
+	}
+
+	void complete(EslMessage reply) {
+		cancelTimeout();
+		if (bodyFailure != null) {
+			future.completeExceptionally(bodyFailure);
+		} else {
+			future.complete(reply);
+		}
+	}
+
+	void fail(Throwable cause) {
+		cancelTimeout();
+		future.completeExceptionally(cause);
+	}
+
+	private void cancelTimeout() {
+		if (timeout != null) {
+			timeout.cancel();
+		}
+	}
+}
@@ -0,0 +1,293 @@
+package org.freeswitch.esl.client.internal;
+
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Delivers events in the order they are received from a ring of preallocated slots, which the IO
+ * threads fill and a thread of the dispatcher drains, without a lock or any object per event.
+ * <p/>
+ * An IO thread claims the next slot with a compare-and-set, fills it and publishes it by setting the
+ * sequence of the slot. The delivering thread delivers the events published in a row since it last
+ * looked, one batch at a time, and only then hands their slots back, so that a burst of events costs
+ * a single hand-over. When no event is waiting, it waits as its {@link WaitStrategy} says, trading
+ * CPU for latency.
+ * <p/>
+ * A ring may be shared by connections receiving events at the same time, such as the ones accepted
+ * by an outbound server: the events of each connection are delivered in the order they were
+ * received. An event received while the ring is full is dropped, and counted, rather than holding
+ * up the connection, unless the {@link OverflowPolicy} of the dispatcher is to block until a slot is
+ * handed back. An event received once the dispatcher is closed is dropped, and counted, as well.
+ * <p/>
+ * A listener failing, even with an {@link Error}, is logged and does not stop the delivering thread.
+ */
+public final class RingBufferEventDispatcher implements IEslEventDispatcher, AutoCloseable {
+	private static final Logger log = LoggerFactory.getLogger(RingBufferEventDispatcher.class);
+
+	/**
+	 * How the delivering thread waits for events.
+	 */
+	public enum WaitStrategy {
+		/**
+		 * Keeps checking for events, for the lowest latency at the cost of a core.
+		 */
+		BUSY_SPIN,
+		/**
+		 * Yields to the other threads between checks.
+		 */
+		YIELD,
+		/**
+		 * Sleeps until an event is published, after a short spin, using no CPU while idle.
+		 */
+		PARK
+	}
+
+	private static final int SPINS_BEFORE_PARK = 100;
+	// in case a wake up is missed
+	private static final long MAX_PARK_NANOS = 1000000;
+	// between the checks of a producer blocked on a full ring
+	private static final long PRODUCER_PARK_NANOS = 10000;
+	// set in the next sequence to claim once closed, so that none is claimed from then on
+	private static final long CLOSED = 1L << 62;
+
+	private final Slot[] slots;
+	private final int mask;
+	private final WaitStrategy waitStrategy;
+	private final OverflowPolicy overflowPolicy;
+	private final Thread consumer;
+
+	// sequence of the next slot to claim, advanced by the producers
+	private final AtomicLong claimed = new AtomicLong();
+	// sequence of the last slot delivered, advanced by the consumer
+	private final AtomicLong consumed = new AtomicLong(-1);
+	private volatile boolean consumerParked;
+
+	private volatile long batches;
+	private final LongAdder rejected = new LongAdder();
+
+	/**
+	 * A dispatcher dropping the events received while the ring is full.
+	 *
+	 * @param capacity     number of slots, a power of 2
+	 * @param waitStrategy of the delivering thread
+	 */
+	public RingBufferEventDispatcher(int capacity, WaitStrategy waitStrategy) {
+		this(capacity, waitStrategy, OverflowPolicy.DROP);
+	}
+
+	/**
+	 * @param capacity       number of slots, a power of 2
+	 * @param waitStrategy   of the delivering thread, and of the IO threads blocked on a full ring
+	 * @param overflowPolicy of the events received while the ring is full
+	 */
+	public RingBufferEventDispatcher(int capacity, WaitStrategy waitStrategy, OverflowPolicy overflowPolicy) {
+		checkArgument(capacity > 0 && Integer.bitCount(capacity) == 1, "capacity must be a power of 2");
+		this.waitStrategy = checkNotNull(waitStrategy, "waitStrategy");
+		this.overflowPolicy = checkNotNull(overflowPolicy, "overflowPolicy");
+		this.slots = new Slot[capacity];
+		for (int i = 0; i < capacity; i++) {
+			slots[i] = new Slot();
+		}
+		this.mask = capacity - 1;
+		this.consumer = new DefaultThreadFactory("esl-event-ring", true).newThread(this::run);
+		consumer.start();
+	}
+
+	@Override
+	public void dispatch(Context context, EslEvent event, BiConsumer<Context, EslEvent> delivery) {
+		final long sequence = claim();
+		if (sequence < 0) {
+			rejected.increment();
+			log.warn("Event ring full or closed, dropping event [{}]", event.getEventName());
+			ReferenceCountUtil.release(event);
+			return;
+		}
+		final Slot slot = slots[(int) sequence & mask];
+		slot.context = context;
+		slot.event = event;
+		slot.delivery = delivery;
+		// a full fence, so that a consumer going to sleep either sees the event or is seen parked
+		slot.sequence = sequence;
+		if (consumerParked) {
+			LockSupport.unpark(consumer);
+		}
+	}
+
+	/**
+	 * Claims the next slot, racing the other producers for it.
+	 *
+	 * @return the sequence of the slot, -1 if the ring is closed, or full and not to be waited on
+	 */
+	private long claim() {
+		while (true) {
+			final long next = claimed.get();
+			if ((next & CLOSED) != 0) {
+				return -1;
+			}
+			if (next - slots.length > consumed.get()) {
+				if (!awaitSlot()) {
+					return -1;
+				}
+			} else if (claimed.compareAndSet(next, next + 1)) {
+				return next;
+			}
+		}
+	}
+
+	/**
+	 * Waits a little for a slot to be handed back, when blocking on a full ring.
+	 *
+	 * @return false if the slot is not to be waited for
+	 */
+	private boolean awaitSlot() {
+		if (overflowPolicy != OverflowPolicy.BLOCK || Thread.currentThread().isInterrupted()) {
+			return false;
+		}
+		// the consumer does not wake the producers up, which check back in turn
+		switch (waitStrategy) {
+			case BUSY_SPIN:
+				break;
+			case YIELD:
+				Thread.yield();
+				break;
+			default:
+				LockSupport.parkNanos(this, PRODUCER_PARK_NANOS);
+		}
+		return true;
+	}
+
+	private void run() {
+		long next = 0;
+		int idle = 0;
+		while (true) {
+			// the slots published in a row, a slot claimed and not published yet ending the batch
+			long available = next - 1;
+			while (isPublished(available + 1)) {
+				available++;
+			}
+			if (available < next) {
+				final long claimed = this.claimed.get();
+				if (claimed == (next | CLOSED)) {
+					// closed, and every event dispatched before delivered
+					return;
+				}
+				idle = idle(idle, next);
+				continue;
+			}
+			idle = 0;
+			for (long sequence = next; sequence <= available; sequence++) {
+				deliver(slots[(int) sequence & mask]);
+			}
+			batches++;
+			// the slots of the whole batch are handed back at once
+			consumed.lazySet(available);
+			next = available + 1;
+		}
+	}
+
+	private boolean isPublished(long sequence) {
+		return slots[(int) sequence & mask].sequence == sequence;
+	}
+
+	private int idle(int idle, long next) {
+		switch (waitStrategy) {
+			case BUSY_SPIN:
+				return idle;
+			case YIELD:
+				Thread.yield();
+				return idle;
+			default:
+				if (idle < SPINS_BEFORE_PARK) {
+					return idle + 1;
+				}
+				consumerParked = true;
+				if (!isPublished(next) && (claimed.get() & CLOSED) == 0) {
+					LockSupport.parkNanos(this, MAX_PARK_NANOS);
+				}
+				consumerParked = false;
+				return idle;
+		}
+	}
+
+	private static void deliver(Slot slot) {
+		final Context context = slot.context;
+		final EslEvent event = slot.event;
+		final BiConsumer<Context, EslEvent> delivery = slot.delivery;
+		slot.context = null;
+		slot.event = null;
+		slot.delivery = null;
+		try {
+			delivery.accept(context, event);
+		} catch (Throwable t) {
+			// not to stop the delivering thread, and with it every later event
+			log.error("Failed to deliver event [{}]", event.getEventName(), t);
+		} finally {
+			ReferenceCountUtil.release(event);
+		}
+	}
+
+	/**
+	 * @return the number of events dispatched and not delivered yet
+	 */
+	public long backlog() {
+		return (claimed.get() & ~CLOSED) - 1 - consumed.get();
+	}
+
+	/**
+	 * @return the number of events delivered
+	 */
+	public long delivered() {
+		return consumed.get() + 1;
+	}
+
+	/**
+	 * @return the number of batches delivered, each holding the events published since the previous
+	 * one
+	 */
+	public long batches() {
+		return batches;
+	}
+
+	/**
+	 * @return the number of events dropped as the ring was full, or closed
+	 */
+	public long rejected() {
+		return rejected.sum();
+	}
+
+	/**
+	 * Stops the delivering thread once it has delivered the events already dispatched. The events
+	 * dispatched from now on are dropped, and a producer blocked on a full ring gives up.
+	 */
+	@Override
+	public void close() {
+		claimed.getAndUpdate(next -> next | CLOSED);
+		LockSupport.unpark(consumer);
+	}
+
+	@Override
+	public String toString() {
+		return "RingBufferEventDispatcher[capacity=" + slots.length + ", waitStrategy=" + waitStrategy
+				+ ", overflowPolicy=" + overflowPolicy + ", backlog=" + backlog() + ", delivered=" + delivered()
+				+ ", batches=" + batches() + ", rejected=" + rejected() + ']';
+	}
+
+	private static final class Slot {
+		// of the event the slot holds, once published
+		private volatile long sequence = -1;
+		private Context context;
+		private EslEvent event;
+		private BiConsumer<Context, EslEvent> delivery;
+	}
+}
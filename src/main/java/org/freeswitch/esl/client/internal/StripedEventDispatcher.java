@@ -0,0 +1,219 @@
+package org.freeswitch.esl.client.internal;
+
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.event.EslEventHeaderNames;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Delivers events on a number of lanes, each a thread of its own, keeping the events of a call in
+ * order while the events of different calls are delivered in parallel.
+ * <p/>
+ * The lane of an event is chosen by its {@code Unique-ID} header, or by its {@code Job-UUID} header
+ * for the events of a background job, so that the events of a call, or of a job, are all delivered
+ * one after the other by the same lane, in the order they were received. The events carrying
+ * neither, such as {@code HEARTBEAT}, are delivered in order by the first lane. Both headers are
+ * kept by any header projection (see {@link IModEslApi#setEventSubscriptions}).
+ * <p/>
+ * Each lane holds up to a number of events waiting to be delivered: an event received while its lane
+ * is full is dropped, and counted, rather than holding up the connection it was received on, unless
+ * the {@link OverflowPolicy} of the dispatcher is to block until the lane has room for it.
+ * <p/>
+ * A dispatcher may be shared by several connections. Its threads are daemon threads, stopped by
+ * {@link #close}.
+ */
+public final class StripedEventDispatcher implements IEslEventDispatcher, AutoCloseable {
+	private static final Logger log = LoggerFactory.getLogger(StripedEventDispatcher.class);
+
+	private final Lane[] lanes;
+
+	/**
+	 * A dispatcher dropping the events received while their lane is full.
+	 *
+	 * @param lanes      number of lanes, such as the number of cores
+	 * @param queueDepth most events waiting to be delivered per lane
+	 */
+	public StripedEventDispatcher(int lanes, int queueDepth) {
+		this(lanes, queueDepth, OverflowPolicy.DROP);
+	}
+
+	/**
+	 * @param lanes          number of lanes, such as the number of cores
+	 * @param queueDepth     most events waiting to be delivered per lane
+	 * @param overflowPolicy of the events received while their lane is full
+	 */
+	public StripedEventDispatcher(int lanes, int queueDepth, OverflowPolicy overflowPolicy) {
+		checkArgument(lanes > 0, "lanes must be positive");
+		checkArgument(queueDepth > 0, "queueDepth must be positive");
+		checkNotNull(overflowPolicy, "overflowPolicy");
+		final ThreadFactory threadFactory = new DefaultThreadFactory("esl-event-lane", true);
+		final RejectedExecutionHandler whenFull = overflowPolicy == OverflowPolicy.BLOCK
+				? StripedEventDispatcher::awaitRoom
+				: new ThreadPoolExecutor.AbortPolicy();
+		this.lanes = new Lane[lanes];
+		for (int i = 0; i < lanes; i++) {
+			this.lanes[i] = new Lane(i, queueDepth, threadFactory, whenFull);
+		}
+	}
+
+	@Override
+	public void dispatch(Context context, EslEvent event, BiConsumer<Context, EslEvent> delivery) {
+		final Lane lane = lanes[laneOf(event)];
+		try {
+			lane.executor.execute(() -> {
+				try {
+					delivery.accept(context, event);
+				} finally {
+					ReferenceCountUtil.release(event);
+					lane.delivered++;
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			lane.rejected.increment();
+			log.warn("Lane {} full or closed, dropping event [{}]", lane.index, event.getEventName());
+			ReferenceCountUtil.release(event);
+		}
+	}
+
+	/**
+	 * Queues the delivery of an event once the lane has room for it.
+	 */
+	private static void awaitRoom(Runnable delivery, ThreadPoolExecutor executor) {
+		if (executor.isShutdown()) {
+			throw new RejectedExecutionException("Lane closed");
+		}
+		try {
+			executor.getQueue().put(delivery);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RejectedExecutionException(e);
+		}
+		// the lane may have been closed, and its thread stopped, while waiting
+		if (executor.isShutdown() && executor.remove(delivery)) {
+			throw new RejectedExecutionException("Lane closed");
+		}
+	}
+
+	/**
+	 * @return the index of the lane delivering the event
+	 */
+	int laneOf(EslEvent event) {
+		final Map<String, String> headers = event.getEventHeaders();
+		String key = headers.get(EslEventHeaderNames.UNIQUE_ID);
+		if (key == null) {
+			key = headers.get(EslEventHeaderNames.JOB_UUID);
+			if (key == null) {
+				return 0;
+			}
+		}
+		final int hash = key.hashCode();
+		return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % lanes.length;
+	}
+
+	/**
+	 * @return the counts of each lane, in the order of the lanes
+	 */
+	public List<LaneMetrics> laneMetrics() {
+		final List<LaneMetrics> metrics = new ArrayList<>(lanes.length);
+		for (Lane lane : lanes) {
+			metrics.add(new LaneMetrics(lane.index, lane.executor.getQueue().size(), lane.delivered,
+					lane.rejected.sum()));
+		}
+		return Collections.unmodifiableList(metrics);
+	}
+
+	/**
+	 * Stops the lanes once they have delivered the events already dispatched.
+	 */
+	@Override
+	public void close() {
+		for (Lane lane : lanes) {
+			lane.executor.shutdown();
+		}
+	}
+
+	private static final class Lane {
+		private final int index;
+		private final ThreadPoolExecutor executor;
+		// only updated by the thread of the lane
+		private volatile long delivered;
+		private final LongAdder rejected = new LongAdder();
+
+		private Lane(int index, int queueDepth, ThreadFactory threadFactory, RejectedExecutionHandler whenFull) {
+			this.index = index;
+			this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<>(queueDepth), threadFactory, whenFull);
+			// deliveries queued directly while blocking need the thread to be running
+			executor.prestartCoreThread();
+		}
+	}
+
+	/**
+	 * The counts of a lane at one point in time.
+	 */
+	public static final class LaneMetrics {
+		private final int lane;
+		private final int queued;
+		private final long delivered;
+		private final long rejected;
+
+		LaneMetrics(int lane, int queued, long delivered, long rejected) {
+			this.lane = lane;
+			this.queued = queued;
+			this.delivered = delivered;
+			this.rejected = rejected;
+		}
+
+		/**
+		 * @return the index of the lane
+		 */
+		public int lane() {
+			return lane;
+		}
+
+		/**
+		 * @return the number of events waiting to be delivered
+		 */
+		public int queued() {
+			return queued;
+		}
+
+		/**
+		 * @return the number of events delivered
+		 */
+		public long delivered() {
+			return delivered;
+		}
+
+		/**
+		 * @return the number of events dropped as the lane was full
+		 */
+		public long rejected() {
+			return rejected;
+		}
+
+		@Override
+		public String toString() {
+			return "LaneMetrics[lane=" + lane + ", queued=" + queued + ", delivered=" + delivered
+					+ ", rejected=" + rejected + ']';
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package org.freeswitch.esl.client.internal;
+
+/**
+ * Counts the commands written to a connection and the flushes sending them, showing how well
+ * writes are coalesced (see {@link FlushPolicy}).
+ * <p/>
+ * The counters are only updated by the IO thread of the connection, and may be read by any thread.
+ */
+public final class WriteMetrics {
+	private volatile long commands;
+	private volatile long flushes;
+
+	void recordFlush(int flushedCommands) {
+		// single writer
+		commands += flushedCommands;
+		flushes++;
+	}
+
+	/**
+	 * @return the number of commands flushed
+	 */
+	public long commands() {
+		return commands;
+	}
+
+	/**
+	 * @return the number of flushes
+	 */
+	public long flushes() {
+		return flushes;
+	}
+
+	/**
+	 * @return the average number of commands sent per flush, 0 before the first flush
+	 */
+	public double averageCommandsPerFlush() {
+		final long flushes = this.flushes;
+		return flushes == 0 ? 0 : (double) commands / flushes;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("WriteMetrics[commands=%d, flushes=%d, commandsPerFlush=%.2f]",
+				commands, flushes, averageCommandsPerFlush());
+	}
+}
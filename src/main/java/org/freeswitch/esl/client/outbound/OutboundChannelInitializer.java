@@ -3,38 +3,76 @@ package org.freeswitch.esl.client.outbound;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.handler.codec.string.StringEncoder;
+import org.freeswitch.esl.client.internal.ExecutorEventDispatcher;
+import org.freeswitch.esl.client.internal.IEslEventDispatcher;
+import org.freeswitch.esl.client.transport.message.EslCommandEncoder;
 import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 public class OutboundChannelInitializer extends ChannelInitializer<SocketChannel> {
 
+    private static final EslCommandEncoder ENCODER = new EslCommandEncoder();
+
     private final IClientHandlerFactory clientHandlerFactory;
-    private ExecutorService callbackExecutor = Executors.newSingleThreadExecutor();
+    private IEslEventDispatcher eventDispatcher = new ExecutorEventDispatcher(Executors.newSingleThreadExecutor());
+    private boolean retainFrames = false;
+    private boolean pooledEvents = false;
 
     public OutboundChannelInitializer(IClientHandlerFactory clientHandlerFactory) {
         this.clientHandlerFactory = clientHandlerFactory;
     }
 
     public OutboundChannelInitializer setCallbackExecutor(ExecutorService callbackExecutor) {
-        this.callbackExecutor = callbackExecutor;
+        return setEventDispatcher(new ExecutorEventDispatcher(callbackExecutor));
+    }
+
+    /**
+     * Sets the threads delivering the events to the client handlers, such as a
+     * {@link org.freeswitch.esl.client.internal.StripedEventDispatcher} shared by the connections.
+     */
+    public OutboundChannelInitializer setEventDispatcher(IEslEventDispatcher eventDispatcher) {
+        this.eventDispatcher = checkNotNull(eventDispatcher, "eventDispatcher");
+        return this;
+    }
+
+    /**
+     * Decode messages as retained slices of the inbound buffers rather than heap copies.
+     *
+     * @see EslFrameDecoder
+     */
+    public OutboundChannelInitializer setRetainFrames(boolean retainFrames) {
+        this.retainFrames = retainFrames;
+        return this;
+    }
+
+    /**
+     * Recycle events, implies retained frames. Events handed to
+     * {@link IClientHandler#onEslEvent} must then be retained to be kept after it returns.
+     *
+     * @see org.freeswitch.esl.client.transport.event.EslEvent#newPooledInstance
+     */
+    public OutboundChannelInitializer setPooledEvents(boolean pooledEvents) {
+        this.pooledEvents = pooledEvents;
         return this;
     }
 
     @Override
     protected void initChannel(SocketChannel ch) throws Exception {
         ChannelPipeline pipeline = ch.pipeline();
-        // Add the text line codec combination first
-        pipeline.addLast("encoder", new StringEncoder());
+        // Add the command encoder first
+        pipeline.addLast("encoder", ENCODER);
         // Note that outbound mode requires the decoder to treat many 'headers' as body lines
-        pipeline.addLast("decoder", new EslFrameDecoder(8092, true));
+        pipeline.addLast("decoder", new EslFrameDecoder(8092, true, retainFrames || pooledEvents));
 
         // now the outbound client logic
-        pipeline.addLast("clientHandler",
-                new OutboundClientHandler(
-                        clientHandlerFactory.createClientHandler(),
-                        callbackExecutor));
+        OutboundClientHandler handler = new OutboundClientHandler(
+                clientHandlerFactory.createClientHandler(),
+                eventDispatcher);
+        handler.setPooledEvents(pooledEvents);
+        pipeline.addLast("clientHandler", handler);
     }
 }
@@ -16,12 +16,16 @@
 package org.freeswitch.esl.client.outbound;
 
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.ReferenceCountUtil;
 import org.freeswitch.esl.client.internal.AbstractEslClientHandler;
 import org.freeswitch.esl.client.internal.Context;
+import org.freeswitch.esl.client.internal.ExecutorEventDispatcher;
+import org.freeswitch.esl.client.internal.IEslEventDispatcher;
 import org.freeswitch.esl.client.transport.event.EslEvent;
 import org.freeswitch.esl.client.transport.message.EslMessage;
 
 import java.util.concurrent.ExecutorService;
+import java.util.function.BiConsumer;
 
 /**
  * Specialised {@link AbstractEslClientHandler} that implements the base connecction logic for an
@@ -38,11 +42,17 @@ import java.util.concurrent.ExecutorService;
 class OutboundClientHandler extends AbstractEslClientHandler {
 
 	private final IClientHandler clientHandler;
-	private final ExecutorService callbackExecutor;
+	private final IEslEventDispatcher eventDispatcher;
+	private final BiConsumer<Context, EslEvent> eventDelivery;
 
 	public OutboundClientHandler(IClientHandler clientHandler, ExecutorService callbackExecutor) {
+		this(clientHandler, new ExecutorEventDispatcher(callbackExecutor));
+	}
+
+	public OutboundClientHandler(IClientHandler clientHandler, IEslEventDispatcher eventDispatcher) {
 		this.clientHandler = clientHandler;
-		this.callbackExecutor = callbackExecutor;
+		this.eventDispatcher = eventDispatcher;
+		this.eventDelivery = clientHandler::onEslEvent;
 	}
 
 	@Override
@@ -53,9 +63,7 @@ class OutboundClientHandler extends AbstractEslClientHandler {
 		log.debug("Received new connection from server, sending connect message");
 
 		sendApiSingleLineCommand(ctx.channel(), "connect")
-				.thenAccept(response -> clientHandler.onConnect(
-						new Context(ctx.channel(), OutboundClientHandler.this),
-						new EslEvent(response, true)))
+				.thenAccept(response -> clientHandler.onConnect(context(ctx), new EslEvent(response, true)))
 				.exceptionally(throwable -> {
 					ctx.channel().close();
 					handleDisconnectionNotice();
@@ -65,8 +73,9 @@ class OutboundClientHandler extends AbstractEslClientHandler {
 
 	@Override
 	protected void handleEslEvent(final ChannelHandlerContext ctx, final EslEvent event) {
-		callbackExecutor.execute(() -> clientHandler.onEslEvent(
-				new Context(ctx.channel(), OutboundClientHandler.this), event));
+		// released by the dispatcher once delivered
+		ReferenceCountUtil.retain(event);
+		eventDispatcher.dispatch(context(ctx), event, eventDelivery);
 	}
 
 	@Override
@@ -0,0 +1,291 @@
+package org.freeswitch.esl.client.transport;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Fixed set of header names, looked up straight from the bytes of a header line without creating a
+ * {@link String}.
+ * <p/>
+ * The names are laid out in a perfect hash table computed when the dictionary is created:
+ * the case insensitive hash of a name selects a bucket, and the seed found for that bucket places
+ * every name of the bucket in its own slot. A lookup therefore hashes the bytes once and compares
+ * them against at most one name.
+ * <p/>
+ * The names returned by {@link #name(int)} are the instances the dictionary was created with, so
+ * interned names can be compared by identity. The same applies to a fixed set of well-known header
+ * values.
+ */
+public final class HeaderDictionary {
+	private static final int MAX_SEED = 1 << 24;
+
+	private final String[] names;
+	// bucket -> seed placing the names of the bucket
+	private final int[] seeds;
+	// slot -> hash, index and name of the header name in the slot
+	private final int[] slotHashes;
+	private final int[] slotIndexes;
+	private final String[] slotNames;
+
+	private HeaderDictionary(String[] names) {
+		this.names = names;
+		final int tableSize = Integer.highestOneBit(Math.max(1, names.length) * 2 - 1) * 2;
+		seeds = new int[Math.max(1, tableSize / 8)];
+		slotHashes = new int[tableSize];
+		slotIndexes = new int[tableSize];
+		slotNames = new String[tableSize];
+		Arrays.fill(slotIndexes, -1);
+		place(bucketsBySize());
+	}
+
+	/**
+	 * @param names the header names, compared case insensitively
+	 * @return a dictionary of these names, in which each name's index is its position in the array
+	 * @throws IllegalArgumentException if a name is repeated, or is not plain ASCII
+	 */
+	public static HeaderDictionary of(String... names) {
+		return new HeaderDictionary(names.clone());
+	}
+
+	/**
+	 * @param names the header names, compared case insensitively
+	 * @return a dictionary of these names, in which each name's index is its position in the list
+	 * @throws IllegalArgumentException if a name is repeated, or is not plain ASCII
+	 */
+	public static HeaderDictionary of(List<String> names) {
+		return new HeaderDictionary(names.toArray(new String[names.size()]));
+	}
+
+	private List<List<Integer>> bucketsBySize() {
+		final Map<String, Integer> seen = new HashMap<>(names.length * 2);
+		final List<List<Integer>> buckets = new ArrayList<>(seeds.length);
+		for (int i = 0; i < seeds.length; i++) {
+			buckets.add(new ArrayList<Integer>());
+		}
+		for (int i = 0; i < names.length; i++) {
+			final String name = names[i];
+			for (int c = 0; c < name.length(); c++) {
+				checkArgument(name.charAt(c) < 0x80, "Header name [%s] is not plain ASCII", name);
+			}
+			final Integer previous = seen.put(name.toLowerCase(Locale.ROOT), i);
+			checkArgument(previous == null, "Header name [%s] is repeated", name);
+			buckets.get(bucket(hash(name))).add(i);
+		}
+		buckets.sort((a, b) -> b.size() - a.size());
+		return buckets;
+	}
+
+	private void place(List<List<Integer>> buckets) {
+		// largest bucket first
+		final int[] hashes = new int[buckets.get(0).size()];
+		final int[] slots = new int[hashes.length];
+		for (List<Integer> bucket : buckets) {
+			if (bucket.isEmpty()) {
+				return;
+			}
+			final int size = bucket.size();
+			for (int i = 0; i < size; i++) {
+				hashes[i] = hash(names[bucket.get(i)]);
+			}
+			int seed = 0;
+			while (!fits(hashes, size, seed, slots)) {
+				seed++;
+				checkArgument(seed < MAX_SEED, "No perfect hash found for header names %s", bucket);
+			}
+			seeds[bucket(hashes[0])] = seed;
+			for (int i = 0; i < size; i++) {
+				slotHashes[slots[i]] = hashes[i];
+				slotIndexes[slots[i]] = bucket.get(i);
+				slotNames[slots[i]] = names[bucket.get(i)];
+			}
+		}
+	}
+
+	/**
+	 * @return true if this seed puts every hash of the bucket in a distinct free slot
+	 */
+	private boolean fits(int[] hashes, int size, int seed, int[] slots) {
+		for (int i = 0; i < size; i++) {
+			final int slot = slot(hashes[i], seed);
+			if (slotIndexes[slot] >= 0) {
+				return false;
+			}
+			for (int j = 0; j < i; j++) {
+				if (slots[j] == slot) {
+					return false;
+				}
+			}
+			slots[i] = slot;
+		}
+		return true;
+	}
+
+	private int bucket(int hash) {
+		return mix(hash) & (seeds.length - 1);
+	}
+
+	private int slot(int hash, int seed) {
+		return mix(hash + seed * 0x9E3779B9) & (slotIndexes.length - 1);
+	}
+
+	private int slot(int hash) {
+		return slot(hash, seeds[bucket(hash)]);
+	}
+
+	private static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		return h ^ (h >>> 16);
+	}
+
+	/*
+	 * The hash ignores the 0x20 bit of every character, which folds ASCII letters to lower case. The
+	 * few other characters it confuses are told apart when the name is compared.
+	 */
+	private static int hash(CharSequence name) {
+		int hash = 0;
+		for (int i = 0; i < name.length(); i++) {
+			hash = 31 * hash + (name.charAt(i) | 0x20);
+		}
+		return hash;
+	}
+
+	private static boolean equalsIgnoreCase(int a, int b) {
+		return a == b || ((a | 0x20) == (b | 0x20) && (a | 0x20) >= 'a' && (a | 0x20) <= 'z');
+	}
+
+	/**
+	 * @return the number of names in this dictionary
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	/**
+	 * @param index of a name, between 0 and {@link #size()}
+	 * @return the name, as the instance the dictionary was created with
+	 */
+	public String name(int index) {
+		return names[index];
+	}
+
+	/**
+	 * Finds a header name, ignoring case.
+	 *
+	 * @param name the header name
+	 * @return the index of the name, or -1 if it is not in this dictionary
+	 */
+	public int indexOfIgnoreCase(CharSequence name) {
+		final int hash = hash(name);
+		final int slot = slot(hash);
+		final String candidate = slotNames[slot];
+		if (candidate == null || slotHashes[slot] != hash || candidate.length() != name.length()) {
+			return -1;
+		}
+		for (int i = 0; i < candidate.length(); i++) {
+			if (!equalsIgnoreCase(candidate.charAt(i), name.charAt(i))) {
+				return -1;
+			}
+		}
+		return slotIndexes[slot];
+	}
+
+	/**
+	 * Finds a header name, matching case exactly.
+	 *
+	 * @param name the header name
+	 * @return the index of the name, or -1 if it is not in this dictionary
+	 */
+	public int indexOf(CharSequence name) {
+		final int index = indexOfIgnoreCase(name);
+		return index >= 0 && names[index].contentEquals(name) ? index : -1;
+	}
+
+	/**
+	 * Finds a header name held in a buffer, ignoring case.
+	 *
+	 * @param buffer holding the header name
+	 * @param start  index of the first byte of the name
+	 * @param end    index following the last byte of the name
+	 * @return the index of the name, or -1 if it is not in this dictionary
+	 */
+	public int indexOfIgnoreCase(ByteBuf buffer, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + (buffer.getByte(i) | 0x20);
+		}
+		final int slot = slot(hash);
+		final String candidate = slotNames[slot];
+		if (candidate == null || slotHashes[slot] != hash || candidate.length() != end - start) {
+			return -1;
+		}
+		for (int i = 0; i < candidate.length(); i++) {
+			if (!equalsIgnoreCase(candidate.charAt(i), buffer.getByte(start + i))) {
+				return -1;
+			}
+		}
+		return slotIndexes[slot];
+	}
+
+	/**
+	 * Finds a header name held in a buffer, matching case exactly.
+	 *
+	 * @param buffer holding the header name
+	 * @param start  index of the first byte of the name
+	 * @param end    index following the last byte of the name
+	 * @return the index of the name, or -1 if it is not in this dictionary
+	 */
+	public int indexOf(ByteBuf buffer, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + (buffer.getByte(i) | 0x20);
+		}
+		final int slot = slot(hash);
+		final String candidate = slotNames[slot];
+		if (candidate == null || slotHashes[slot] != hash || candidate.length() != end - start) {
+			return -1;
+		}
+		for (int i = 0; i < candidate.length(); i++) {
+			if (candidate.charAt(i) != buffer.getByte(start + i)) {
+				return -1;
+			}
+		}
+		return slotIndexes[slot];
+	}
+
+	/**
+	 * Finds a header name held in a byte array, matching case exactly.
+	 *
+	 * @param bytes holding the header name
+	 * @param start index of the first byte of the name
+	 * @param end   index following the last byte of the name
+	 * @return the index of the name, or -1 if it is not in this dictionary
+	 */
+	public int indexOf(byte[] bytes, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + (bytes[i] | 0x20);
+		}
+		final int slot = slot(hash);
+		final String candidate = slotNames[slot];
+		if (candidate == null || slotHashes[slot] != hash || candidate.length() != end - start) {
+			return -1;
+		}
+		for (int i = 0; i < candidate.length(); i++) {
+			if (candidate.charAt(i) != bytes[start + i]) {
+				return -1;
+			}
+		}
+		return slotIndexes[slot];
+	}
+}
@@ -15,6 +15,8 @@
  */
 package org.freeswitch.esl.client.transport;
 
+import io.netty.buffer.ByteBuf;
+
 /**
  * This parser provides a static helper method to split a standard Header field
  * into the name and value parts.
@@ -71,6 +73,118 @@ public class HeaderParser {
 		};
 	}
 
+	/**
+	 * Byte level equivalent of {@link #splitHeader(String)}, for a header line held in a buffer.
+	 * No strings are created, the positions of the header name and value are stored in
+	 * {@code bounds} as
+	 * <pre>
+	 *   [ nameStart, nameEnd, valueStart, valueEnd ]
+	 * </pre>
+	 *
+	 * @param buffer holding the header line
+	 * @param start  index of the first byte of the line
+	 * @param end    index following the last byte of the line
+	 * @param bounds array of at least 4 elements receiving the positions
+	 */
+	public static void splitHeader(ByteBuf buffer, int start, int end, int[] bounds) {
+		int nameStart;
+		int nameEnd;
+		int colonEnd;
+		int valueStart;
+		int valueEnd;
+
+		nameStart = findNonWhitespace(buffer, start, end);
+		for (nameEnd = nameStart; nameEnd < end; nameEnd++) {
+			byte b = buffer.getByte(nameEnd);
+			if (b == ':' || isWhitespace(b)) {
+				break;
+			}
+		}
+
+		for (colonEnd = nameEnd; colonEnd < end; colonEnd++) {
+			if (buffer.getByte(colonEnd) == ':') {
+				colonEnd++;
+				break;
+			}
+		}
+
+		valueStart = findNonWhitespace(buffer, colonEnd, end);
+		if (valueStart == end) {
+			valueEnd = end;
+		} else {
+			for (valueEnd = end; valueEnd > valueStart; valueEnd--) {
+				if (!isWhitespace(buffer.getByte(valueEnd - 1))) {
+					break;
+				}
+			}
+		}
+
+		bounds[0] = nameStart;
+		bounds[1] = nameEnd;
+		bounds[2] = valueStart;
+		bounds[3] = valueEnd;
+	}
+
+	/**
+	 * Same as {@link #splitHeader(ByteBuf, int, int, int[])} for a header line held in an array.
+	 *
+	 * @param bytes  holding the header line
+	 * @param start  index of the first byte of the line
+	 * @param end    index following the last byte of the line
+	 * @param bounds array of at least 4 elements receiving the positions
+	 */
+	public static void splitHeader(byte[] bytes, int start, int end, int[] bounds) {
+		int nameStart;
+		int nameEnd;
+		int colonEnd;
+		int valueStart;
+		int valueEnd;
+
+		for (nameStart = start; nameStart < end && isWhitespace(bytes[nameStart]); nameStart++) {
+			// skip leading whitespace
+		}
+		for (nameEnd = nameStart; nameEnd < end; nameEnd++) {
+			byte b = bytes[nameEnd];
+			if (b == ':' || isWhitespace(b)) {
+				break;
+			}
+		}
+
+		for (colonEnd = nameEnd; colonEnd < end; colonEnd++) {
+			if (bytes[colonEnd] == ':') {
+				colonEnd++;
+				break;
+			}
+		}
+
+		for (valueStart = colonEnd; valueStart < end && isWhitespace(bytes[valueStart]); valueStart++) {
+			// skip leading whitespace
+		}
+		for (valueEnd = end; valueEnd > valueStart && isWhitespace(bytes[valueEnd - 1]); valueEnd--) {
+			// skip trailing whitespace
+		}
+
+		bounds[0] = nameStart;
+		bounds[1] = nameEnd;
+		bounds[2] = valueStart;
+		bounds[3] = valueEnd;
+	}
+
+	private static int findNonWhitespace(ByteBuf buffer, int offset, int end) {
+		int result;
+		for (result = offset; result < end; result++) {
+			if (!isWhitespace(buffer.getByte(result))) {
+				break;
+			}
+		}
+		return result;
+	}
+
+	private static boolean isWhitespace(byte b) {
+		// every ISO-8859-1 whitespace character is at most a space
+		return b >= 0 && b <= ' ' && Character.isWhitespace((char) b);
+	}
+
 	private static int findNonWhitespace(String sb, int offset) {
 		int result;
 		for (result = offset; result < sb.length(); result++) {
@@ -15,20 +15,24 @@
  */
 package org.freeswitch.esl.client.transport;
 
+import org.freeswitch.esl.client.transport.message.EslCommand;
+
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class SendMsg {
-	private final List<String> msgLines = new ArrayList<>();
-	private final boolean hasUuid;
+	private final String uuid;
+	// header names and values, in the order they were added
+	private final List<String> names = new ArrayList<>();
+	private final List<String> values = new ArrayList<>();
 
 	/**
 	 * Constructor for use with outbound socket client only.  This client mode does not need a call
 	 * UUID for context.
 	 */
 	public SendMsg() {
-		msgLines.add("sendmsg");
-		hasUuid = false;
+		uuid = null;
 	}
 
 	/**
@@ -37,8 +41,7 @@ public class SendMsg {
 	 * @param uuid of the call to send message to (it should be in 'park' to be operated on).
 	 */
 	public SendMsg(String uuid) {
-		msgLines.add("sendmsg " + uuid);
-		hasUuid = true;
+		this.uuid = uuid;
 	}
 
 	/**
@@ -50,8 +53,7 @@ public class SendMsg {
 	 * @param command the string command [ execute | hangup ]
 	 */
 	public SendMsg addCallCommand(String command) {
-		msgLines.add("call-command: " + command);
-		return this;
+		return add("call-command", command);
 	}
 
 	/**
@@ -63,8 +65,7 @@ public class SendMsg {
 	 * @param appName the string app name to execute
 	 */
 	public SendMsg addExecuteAppName(String appName) {
-		msgLines.add("execute-app-name: " + appName);
-		return this;
+		return add("execute-app-name", appName);
 	}
 
 	/**
@@ -76,8 +77,7 @@ public class SendMsg {
 	 * @param arg the string arg
 	 */
 	public SendMsg addExecuteAppArg(String arg) {
-		msgLines.add("execute-app-arg: " + arg);
-		return this;
+		return add("execute-app-arg", arg);
 	}
 
 	/**
@@ -89,8 +89,7 @@ public class SendMsg {
 	 * @param count the int number of times to loop
 	 */
 	public SendMsg addLoops(int count) {
-		msgLines.add("loops: " + count);
-		return this;
+		return add("loops", Integer.toString(count));
 	}
 
 	/**
@@ -102,8 +101,7 @@ public class SendMsg {
 	 * @param cause the string cause
 	 */
 	public SendMsg addHangupCause(String cause) {
-		msgLines.add("hangup-cause: " + cause);
-		return this;
+		return add("hangup-cause", cause);
 	}
 
 	/**
@@ -115,8 +113,7 @@ public class SendMsg {
 	 * @param value the string value part of the line
 	 */
 	public SendMsg addNomediaUuid(String value) {
-		msgLines.add("nomedia-uuid: " + value);
-		return this;
+		return add("nomedia-uuid", value);
 	}
 
 	/**
@@ -126,8 +123,7 @@ public class SendMsg {
 	 *  </pre>
 	 */
 	public SendMsg addEventLock() {
-		msgLines.add("event-lock: true");
-		return this;
+		return add("event-lock", "true");
 	}
 
 	/**
@@ -141,17 +137,47 @@ public class SendMsg {
 	 * @param value part of line
 	 */
 	public SendMsg addGenericLine(String name, String value) {
-		msgLines.add(name + ": " + value);
+		return add(name, value);
+	}
+
+	private SendMsg add(String name, String value) {
+		names.add(name);
+		// as concatenated before, a null value is sent as "null"
+		values.add(String.valueOf(value));
 		return this;
 	}
 
 	/**
 	 * The list of strings that make up the message to send to FreeSWITCH.
+	 * <p/>
+	 * The list is built from the message on each call, and can no longer be changed: a line added to
+	 * it would not be sent, as the message is sent with {@link #toCommand()}.
 	 *
 	 * @return list of strings, as they were added to this message.
+	 * @deprecated add lines with {@link #addGenericLine}, and see {@link #toCommand()} for the
+	 * message as it is sent
 	 */
+	@Deprecated
 	public List<String> getMsgLines() {
-		return msgLines;
+		final List<String> msgLines = new ArrayList<>(names.size() + 1);
+		msgLines.add(uuid == null ? "sendmsg" : "sendmsg " + uuid);
+		for (int i = 0; i < names.size(); i++) {
+			msgLines.add(names.get(i) + ": " + values.get(i));
+		}
+		return Collections.unmodifiableList(msgLines);
+	}
+
+	/**
+	 * The command to send to FreeSWITCH, whose well-known header names are encoded once for all.
+	 *
+	 * @return the {@code sendmsg} command of this message
+	 */
+	public EslCommand toCommand() {
+		final EslCommand.Builder command = EslCommand.sendMsg(uuid);
+		for (int i = 0; i < names.size(); i++) {
+			command.header(names.get(i), values.get(i));
+		}
+		return command.build();
 	}
 
 	/**
@@ -160,15 +186,15 @@ public class SendMsg {
 	 * @return true if constructed with a UUID.
 	 */
 	public boolean hasUuid() {
-		return hasUuid;
+		return uuid != null;
 	}
 
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder("SendMsg: ");
-		if (msgLines.size() > 1) {
-			sb.append(msgLines.get(1));
-		} else if (msgLines.size() > 0) {
+		if (!names.isEmpty()) {
+			sb.append(names.get(0)).append(": ").append(values.get(0));
+		} else {
 			sb.append(0);
 		}
 
@@ -0,0 +1,90 @@
+package org.freeswitch.esl.client.transport;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.CharsetUtil;
+
+/**
+ * Decodes the UTF-8 text of ESL messages from byte ranges.
+ * <p/>
+ * Nearly all of that text is plain ASCII, so a range is first checked for bytes with their high bit
+ * set, a block of bytes at a time with a single branch per block, which the JIT can vectorise. A
+ * plain ASCII range is then copied into a string in one go, and only a range holding other
+ * characters, such as a caller name, goes through the UTF-8 decoder. Malformed sequences are
+ * decoded as U+FFFD.
+ */
+public final class Utf8 {
+	private static final int BLOCK = 16;
+	/**
+	 * Scratch buffers larger than this are not kept for reuse.
+	 */
+	private static final int MAX_RETAINED_SCRATCH = 64 * 1024;
+
+	private static final ThreadLocal<byte[]> SCRATCH = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[1024];
+		}
+	};
+
+	private Utf8() {
+	}
+
+	/**
+	 * @param bytes holding the text
+	 * @param start index of the first byte of the text
+	 * @param end   index following the last byte of the text
+	 * @return true if no byte of the range has its high bit set
+	 */
+	public static boolean isAscii(byte[] bytes, int start, int end) {
+		int i = start;
+		for (; i + BLOCK <= end; i += BLOCK) {
+			int bits = 0;
+			for (int j = i; j < i + BLOCK; j++) {
+				bits |= bytes[j];
+			}
+			if (bits < 0) {
+				return false;
+			}
+		}
+		int bits = 0;
+		for (; i < end; i++) {
+			bits |= bytes[i];
+		}
+		return bits >= 0;
+	}
+
+	/**
+	 * @param bytes holding the text
+	 * @param start index of the first byte of the text
+	 * @param end   index following the last byte of the text
+	 * @return the decoded text
+	 */
+	public static String decode(byte[] bytes, int start, int end) {
+		// ISO-8859-1 maps each byte to the char of the same value, a plain copy for ASCII
+		return new String(bytes, start, end - start,
+				isAscii(bytes, start, end) ? CharsetUtil.ISO_8859_1 : CharsetUtil.UTF_8);
+	}
+
+	/**
+	 * @param buffer holding the text
+	 * @param start  index of the first byte of the text
+	 * @param end    index following the last byte of the text
+	 * @return the decoded text
+	 */
+	public static String decode(ByteBuf buffer, int start, int end) {
+		if (buffer.hasArray()) {
+			final int offset = buffer.arrayOffset();
+			return decode(buffer.array(), offset + start, offset + end);
+		}
+		final int length = end - start;
+		byte[] scratch = SCRATCH.get();
+		if (scratch.length < length) {
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+			if (scratch.length <= MAX_RETAINED_SCRATCH) {
+				SCRATCH.set(scratch);
+			}
+		}
+		buffer.getBytes(start, scratch, 0, length);
+		return decode(scratch, 0, length);
+	}
+}
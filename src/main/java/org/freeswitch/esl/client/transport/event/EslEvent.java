@@ -15,22 +15,20 @@
  */
 package org.freeswitch.esl.client.transport.event;
 
-import org.freeswitch.esl.client.transport.HeaderParser;
+import com.google.common.base.Joiner;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.freeswitch.esl.client.transport.event.EslEventHeaders.Format;
 import org.freeswitch.esl.client.transport.message.EslHeaders;
 import org.freeswitch.esl.client.transport.message.EslHeaders.Name;
 import org.freeswitch.esl.client.transport.message.EslHeaders.Value;
 import org.freeswitch.esl.client.transport.message.EslMessage;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URLDecoder;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
 
 /**
  * FreeSWITCH Event Socket <strong>events</strong> are decoded into this data object.
@@ -43,6 +41,14 @@ import static com.google.common.base.MoreObjects.toStringHelper;
  * is always expected to have an "Event-Name" eventHeader. Commonly used eventHeader names are coded
  * in {@link EslEventHeaderNames}
  * <p/>
+ * Creating an event only indexes the eventHeader lines of the message body; each eventHeader value
+ * is parsed and URL decoded on first access. Events received as JSON are indexed in the same way,
+ * their values being unescaped rather than URL decoded. Events received as XML are streamed, without
+ * building a document, and their body is only read when asked for.
+ * <p/>
+ * An event created with a {@link HeaderProjection} only holds the headers of the projection, the
+ * others are skipped without being decoded.
+ * <p/>
  * Any eventBody lines are cached in a list.
  * <p/>
  * The messageHeader lines from the original message are cached in a map keyed by {@link EslHeaders.Name}.
@@ -50,34 +56,117 @@ import static com.google.common.base.MoreObjects.toStringHelper;
  * @see EslEventHeaderNames
  */
 public class EslEvent {
-	private final Logger log = LoggerFactory.getLogger(this.getClass());
-
-	private final Map<Name, String> messageHeaders;
-	private final Map<String, String> eventHeaders;
-	private final List<String> eventBody;
+	private EslMessage message;
+	private final EslEventHeaders eventHeaders;
 	private boolean decodeEventHeaders = true;
 
 	public EslEvent(EslMessage rawMessage) {
 		this(rawMessage, false);
 	}
 
+	/**
+	 * Used by {@link PooledEslEvent}, whose headers are reused by each event it carries in turn.
+	 */
+	EslEvent() {
+		eventHeaders = new EslEventHeaders();
+	}
+
 	public EslEvent(EslMessage rawMessage, boolean parseCommandReply) {
-		messageHeaders = rawMessage.getHeaders();
-		eventHeaders = new HashMap<>(rawMessage.getBodyLines().size());
-		eventBody = new ArrayList<>();
-		// plain or xml body
-		if (rawMessage.getContentType().equals(Value.TEXT_EVENT_PLAIN)) {
-			parsePlainBody(rawMessage.getBodyLines());
-		} else if (rawMessage.getContentType().equals(Value.TEXT_EVENT_XML)) {
-			throw new IllegalStateException("XML events are not yet supported");
+		this(rawMessage, null, parseCommandReply);
+	}
+
+	/**
+	 * @param rawMessage an event message
+	 * @param projection of the event headers to decode, null for all of them
+	 */
+	public EslEvent(EslMessage rawMessage, HeaderProjection projection) {
+		this(rawMessage, projection, false);
+	}
+
+	private EslEvent(EslMessage rawMessage, HeaderProjection projection, boolean parseCommandReply) {
+		message = rawMessage;
+		// plain, json or xml body
+		final Format format = format(rawMessage.getContentType());
+		if (format != null) {
+			eventHeaders = new EslEventHeaders(rawMessage.getBodyBytes(), format, projection, decodeEventHeaders);
 		} else if (rawMessage.getContentType().equals(Value.COMMAND_REPLY) && parseCommandReply) {
-			parsePlainBody(rawMessage.getBodyLines());
+			// the event is carried as body lines, rebuild its plain form
+			eventHeaders = new EslEventHeaders(Unpooled.copiedBuffer(
+					Joiner.on('\n').join(rawMessage.getBodyLines()), CharsetUtil.UTF_8),
+					Format.PLAIN, projection, decodeEventHeaders);
 		} else {
 			throw new IllegalStateException("Unexpected EVENT content-type: " +
 				rawMessage.getContentType());
 		}
 	}
 
+	private static Format format(String contentType) {
+		switch (contentType) {
+			case Value.TEXT_EVENT_PLAIN:
+				return Format.PLAIN;
+			case Value.TEXT_EVENT_JSON:
+				return Format.JSON;
+			case Value.TEXT_EVENT_XML:
+				return Format.XML;
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Obtains an event for a {@code text/event-plain}, {@code text/event-json} or
+	 * {@code text/event-xml} message from a pool of recycled events, to avoid allocating events and
+	 * their header index at high event rates.
+	 * <p/>
+	 * The event is {@link io.netty.util.ReferenceCounted}: it retains the message, and must be
+	 * released once processed, after which it is reused for a later message and must no longer be
+	 * accessed, including the maps and lists obtained from it. Accessing a released event throws
+	 * {@link io.netty.util.IllegalReferenceCountException}. Events which are never released are
+	 * reported by Netty's {@link io.netty.util.ResourceLeakDetector}; at the {@code PARANOID}
+	 * level, events are not recycled, so that any later access to them or to their header map is
+	 * reported.
+	 *
+	 * @param rawMessage a {@code text/event-plain}, {@code text/event-json} or {@code text/event-xml}
+	 *                   message
+	 * @return a pooled event with a reference count of 1
+	 */
+	public static EslEvent newPooledInstance(EslMessage rawMessage) {
+		return newPooledInstance(rawMessage, null);
+	}
+
+	/**
+	 * Obtains a pooled event which only holds the headers of a projection.
+	 *
+	 * @param rawMessage an event message
+	 * @param projection of the event headers to decode, null for all of them
+	 * @return a pooled event with a reference count of 1
+	 * @see #newPooledInstance(EslMessage)
+	 */
+	public static EslEvent newPooledInstance(EslMessage rawMessage, HeaderProjection projection) {
+		checkArgument(format(rawMessage.getContentType()) != null,
+				"Unexpected EVENT content-type: %s", rawMessage.getContentType());
+		return PooledEslEvent.newInstance(rawMessage, projection);
+	}
+
+	/**
+	 * Used by {@link PooledEslEvent} to index the event carried by a message.
+	 */
+	void init(EslMessage rawMessage, HeaderProjection projection) {
+		message = rawMessage;
+		eventHeaders.reset(rawMessage.getBodyBytes(), format(rawMessage.getContentType()), projection,
+				decodeEventHeaders);
+	}
+
+	/**
+	 * Used by {@link PooledEslEvent} to drop the current message before the event is reused.
+	 */
+	EslMessage clear() {
+		final EslMessage rawMessage = message;
+		message = null;
+		eventHeaders.recycle();
+		return rawMessage;
+	}
+
 	/**
 	 * The message headers of the original ESL message from which this event was decoded.
 	 * The message headers are stored in a map keyed by {@link EslHeaders.Name}. The string mapped value
@@ -86,13 +175,15 @@ public class EslEvent {
 	 * @return map of header values
 	 */
 	public Map<Name, String> getMessageHeaders() {
-		return messageHeaders;
+		return message.getHeaders();
 	}
 
 	/**
 	 * The event headers of this event. The headers are parsed and stored in a map keyed by the string
 	 * name of the header, and the string mapped value is the parsed content of the event header line
 	 * (ie, it does not include the header name).
+	 * <p/>
+	 * The map is a read-only view, values are only parsed as they are read.
 	 *
 	 * @return map of event header values
 	 */
@@ -106,7 +197,7 @@ public class EslEvent {
 	 * @return list of decoded event body lines, may be an empty list.
 	 */
 	public List<String> getEventBodyLines() {
-		return eventBody;
+		return eventHeaders.getBodyLines();
 	}
 
 	/**
@@ -151,49 +242,16 @@ public class EslEvent {
 	 * @return true if the eventBody list is not empty.
 	 */
 	public boolean hasEventBody() {
-		return !eventBody.isEmpty();
-	}
-
-	private void parsePlainBody(final List<String> rawBodyLines) {
-		boolean isEventBody = false;
-		for (String rawLine : rawBodyLines) {
-			if (!isEventBody) {
-				// split the line
-				String[] headerParts = HeaderParser.splitHeader(rawLine);
-				if (decodeEventHeaders) {
-					try {
-						String decodedValue = URLDecoder.decode(headerParts[1], "UTF-8");
-						log.trace("decoded from: [{}]", headerParts[1]);
-						log.trace("decoded   to: [{}]", decodedValue);
-						eventHeaders.put(headerParts[0], decodedValue);
-					} catch (UnsupportedEncodingException e) {
-						log.warn("Could not URL decode [{}]", headerParts[1]);
-						eventHeaders.put(headerParts[0], headerParts[1]);
-					}
-				} else {
-					eventHeaders.put(headerParts[0], headerParts[1]);
-				}
-				if (headerParts[0].equals(EslEventHeaderNames.CONTENT_LENGTH)) {
-					// the remaining lines will be considered body lines
-					isEventBody = true;
-				}
-			} else {
-				// ignore blank line (always is one following the content-length
-				if (rawLine.length() > 0) {
-					eventBody.add(rawLine);
-				}
-			}
-		}
-
+		return !getEventBodyLines().isEmpty();
 	}
 
 	@Override
 	public String toString() {
 		return toStringHelper(this)
 				.add("name", getEventName())
-				.add("headers", messageHeaders.size())
+				.add("headers", getMessageHeaders().size())
 				.add("eventHeaders", eventHeaders.size())
-				.add("eventBody", eventBody.size() + " lines")
+				.add("eventBody", getEventBodyLines().size() + " lines")
 				.toString();
 	}
 }
@@ -78,6 +78,14 @@ public class EslEventHeaderNames {
 	 * {@code "Job-UUID"}
 	 */
 	public static final String JOB_UUID = "Job-UUID";
+	/**
+	 * {@code "Unique-ID"}
+	 */
+	public static final String UNIQUE_ID = "Unique-ID";
+	/**
+	 * {@code "Event-Subclass"}
+	 */
+	public static final String EVENT_SUBCLASS = "Event-Subclass";
 
 	private EslEventHeaderNames() {
 		/* private class */
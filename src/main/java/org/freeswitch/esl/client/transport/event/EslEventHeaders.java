@@ -0,0 +1,743 @@
+package org.freeswitch.esl.client.transport.event;
+
+import com.google.common.base.Splitter;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.IllegalReferenceCountException;
+import org.freeswitch.esl.client.transport.HeaderParser;
+import org.freeswitch.esl.client.transport.Utf8;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only map view of the headers of an {@link EslEvent}, backed by the raw bytes of the event.
+ * <p/>
+ * Creating the view only indexes where each header name and value lies, in arrays sized to the
+ * number of lines, and hashes each name into an open addressing table of header indexes. A value
+ * is parsed and URL decoded the first time it is looked up, and then kept. Header names are
+ * compared straight against the bytes, so looking up a header does not create any string for the
+ * other headers.
+ * <p/>
+ * Well-known header names are resolved while indexing to their canonical {@link String}, which
+ * costs no allocation and lets a lookup by an equal string literal match by identity.
+ * <p/>
+ * A header name repeated in the event maps to its last value.
+ * <p/>
+ * With a {@link HeaderProjection}, only the projected headers are indexed, keyed by the names of
+ * the projection; the others are skipped as soon as their name is scanned.
+ * <p/>
+ * JSON events are indexed the same way by a single pass over the bytes of the JSON object, which
+ * records the bounds of each member without creating any token. String values are unescaped on
+ * first access, array values are rendered as FreeSWITCH renders array headers in plain events,
+ * {@code ARRAY::first|:second}, and the {@code _body} member holds the event body.
+ * <p/>
+ * XML events are streamed by {@link EslXmlEventParser}, whose reader produces each name and value
+ * as a string anyway: those are stored, URL decoded, as the headers are indexed. The event body is
+ * only read if asked for.
+ * <p/>
+ * A pooled event reuses its headers for successive events: {@link #reset} indexes new bytes into
+ * the existing arrays, growing them only when needed, and {@link #recycle} drops the references
+ * to the previous event. In between, the view cannot be read.
+ * <p/>
+ * Once indexed, the view may be read by several threads at the same time, as when the events of a
+ * call are delivered by a listener thread while another reads them: a lookup only scans the bytes,
+ * and only writes the memoised name and value strings, which any thread may equally compute.
+ */
+final class EslEventHeaders extends AbstractMap<String, String> {
+	/**
+	 * The formats events are received in.
+	 */
+	enum Format {
+		PLAIN, JSON, XML
+	}
+
+
+	private static final byte[] NO_BYTES = new byte[0];
+	private static final int[] NO_INTS = new int[0];
+	private static final String[] NO_STRINGS = new String[0];
+	private static final boolean[] NONE_SHADOWED = new boolean[0];
+
+	private byte[] bytes = NO_BYTES;
+	// copy of the bytes when they are not held in an array, kept for reuse
+	private byte[] copy = NO_BYTES;
+	private int end;
+	private Format format;
+	// null to index every header
+	private HeaderProjection projection;
+	private boolean decodeValues;
+	// whether any header name is only known as a string, such as a name with non-ASCII bytes, a JSON
+	// name with escapes or any XML name, in which case names are compared as strings rather than bytes
+	private boolean escapedNames;
+	private boolean escapedName;
+	private final int[] header = new int[4];
+	// nameStart, nameEnd, valueStart, valueEnd of each header line
+	private int[] bounds = NO_INTS;
+	// String.hashCode() of each header name, computed from the bytes
+	private int[] hashes = NO_INTS;
+	// memoised header names, canonical instances for well-known names are set when indexing
+	private String[] names = NO_STRINGS;
+	private String[] values = NO_STRINGS;
+	// open addressing table of the last header index + 1 for each name, 0 for a free slot
+	private int[] table = NO_INTS;
+	// upper bound of the number of headers
+	private int lines;
+	private int count;
+	private int size;
+	// for each header line, whether a later line has the same name; empty if none has
+	private boolean[] shadowed = NONE_SHADOWED;
+	private boolean[] shadowedCache = NONE_SHADOWED;
+	private int bodyStart;
+	// end of the JSON event body, plain event bodies end with the bytes
+	private int bodyEnd;
+	// memoised on first access, possibly by a listener thread: volatile for the list to be published
+	// with its contents
+	private volatile List<String> bodyLines;
+	private boolean recycled = true;
+
+	/**
+	 * Creates empty headers, to be {@link #reset} before use.
+	 */
+	EslEventHeaders() {
+	}
+
+	/**
+	 * @param buffer       holding the event header lines, optionally followed by an event body
+	 * @param format       of the event held in the buffer
+	 * @param projection   of the headers to index, null for all of them
+	 * @param decodeValues true to URL decode, or JSON unescape, the header values
+	 */
+	EslEventHeaders(ByteBuf buffer, Format format, HeaderProjection projection, boolean decodeValues) {
+		reset(buffer, format, projection, decodeValues);
+	}
+
+	/**
+	 * Indexes the headers held in a buffer, reusing the arrays of the previous headers when they are
+	 * large enough. The buffer must stay readable for as long as these headers are used.
+	 *
+	 * @param buffer       holding the event header lines, optionally followed by an event body
+	 * @param format       of the event held in the buffer
+	 * @param projection   of the headers to index, null for all of them
+	 * @param decodeValues true to URL decode, or JSON unescape, the header values
+	 * @throws IllegalArgumentException if a JSON or XML event is malformed
+	 */
+	void reset(ByteBuf buffer, Format format, HeaderProjection projection, boolean decodeValues) {
+		this.format = format;
+		this.projection = projection;
+		this.decodeValues = decodeValues;
+		final int length = buffer.readableBytes();
+		final int start;
+		if (buffer.hasArray()) {
+			bytes = buffer.array();
+			start = buffer.arrayOffset() + buffer.readerIndex();
+		} else {
+			if (copy.length < length) {
+				copy = new byte[length];
+			}
+			buffer.getBytes(buffer.readerIndex(), copy, 0, length);
+			bytes = copy;
+			start = 0;
+		}
+		end = start + length;
+		if (format == Format.JSON) {
+			// a JSON member is followed by a comma, except the last one
+			lines = count(start, (byte) ',');
+		} else if (format == Format.XML) {
+			// at least one tag per header
+			lines = count(start, (byte) '<');
+		} else {
+			lines = count(start, (byte) '\n');
+		}
+		// a projection can only be exceeded by repeated headers, the arrays then grow to the lines
+		final int capacity = projection == null ? lines : Math.min(lines, projection.size());
+		if (hashes.length < capacity) {
+			bounds = new int[capacity * 4];
+			hashes = new int[capacity];
+			names = new String[capacity];
+			values = new String[capacity];
+		}
+		if (table.length < tableSize(capacity)) {
+			table = new int[tableSize(capacity)];
+		} else {
+			Arrays.fill(table, 0);
+		}
+		count = 0;
+		size = 0;
+		shadowed = NONE_SHADOWED;
+		escapedNames = false;
+		escapedName = false;
+		bodyStart = -1;
+		bodyEnd = end;
+		bodyLines = null;
+		recycled = false;
+		if (format == Format.JSON) {
+			indexJson(start);
+		} else if (format == Format.XML) {
+			escapedNames = true;
+			if (EslXmlEventParser.readHeaders(bytes, start, end, this)) {
+				bodyStart = start;
+			}
+		} else {
+			index(start);
+		}
+	}
+
+	/**
+	 * Drops the references to the bytes and strings of the current headers, which can no longer be
+	 * read until the next {@link #reset}.
+	 */
+	void recycle() {
+		Arrays.fill(names, 0, count, null);
+		Arrays.fill(values, 0, count, null);
+		bytes = NO_BYTES;
+		projection = null;
+		end = 0;
+		count = 0;
+		size = 0;
+		bodyLines = null;
+		recycled = true;
+	}
+
+	private void ensureAccessible() {
+		if (recycled) {
+			throw new IllegalReferenceCountException(0);
+		}
+	}
+
+	private int count(int start, byte separator) {
+		int lines = 1;
+		for (int i = start; i < end; i++) {
+			if (bytes[i] == separator) {
+				lines++;
+			}
+		}
+		return lines;
+	}
+
+	private void index(int start) {
+		int lineStart = start;
+		while (lineStart < end) {
+			final int lineEnd = lineEnd(lineStart);
+			if (lineEnd > lineStart) {
+				HeaderParser.splitHeader(bytes, lineStart, lineEnd, header);
+				add();
+				if (nameIs(header[0], header[1], EslEventHeaderNames.CONTENT_LENGTH)) {
+					// the remaining lines will be considered body lines
+					bodyStart = lineEnd + 1;
+					return;
+				}
+			}
+			lineStart = lineEnd + 1;
+		}
+	}
+
+	private void indexJson(int start) {
+		int i = expect(skipWhitespace(start), '{');
+		if (peek(i) == '}') {
+			return;
+		}
+		for (; ; ) {
+			header[0] = expect(i, '"');
+			header[1] = stringEnd(header[0]);
+			escapedName = !isAscii(header[0], header[1]) || contains(header[0], header[1], (byte) '\\');
+			i = expect(skipWhitespace(header[1] + 1), ':');
+			if (peek(i) == '"') {
+				header[2] = skipWhitespace(i) + 1;
+				header[3] = stringEnd(header[2]);
+				i = header[3] + 1;
+			} else {
+				header[2] = skipWhitespace(i);
+				header[3] = valueEnd(header[2]);
+				i = header[3];
+			}
+			if (nameIs(header[0], header[1], "_body")) {
+				bodyStart = header[2];
+				bodyEnd = header[3];
+			} else {
+				add();
+			}
+			i = skipWhitespace(i);
+			if (i < end && bytes[i] == '}') {
+				return;
+			}
+			i = skipWhitespace(expect(i, ','));
+		}
+	}
+
+	private int skipWhitespace(int i) {
+		while (i < end && (bytes[i] == ' ' || bytes[i] == '\n' || bytes[i] == '\r' || bytes[i] == '\t')) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * @return the first byte after whitespace, or 0 at the end of the bytes
+	 */
+	private byte peek(int i) {
+		i = skipWhitespace(i);
+		return i < end ? bytes[i] : 0;
+	}
+
+	/**
+	 * @return the index following the expected byte, after any whitespace
+	 */
+	private int expect(int i, char expected) {
+		i = skipWhitespace(i);
+		if (i == end || bytes[i] != expected) {
+			throw new IllegalArgumentException("Malformed JSON event, expected '" + expected + "' at offset " + i);
+		}
+		return i + 1;
+	}
+
+	/**
+	 * @return the index of the closing quote of the string starting at {@code i}
+	 */
+	private int stringEnd(int i) {
+		final int start = i;
+		for (; i < end; i++) {
+			final byte b = bytes[i];
+			if (b == '"') {
+				return i;
+			}
+			if (b == '\\') {
+				i++;
+			}
+		}
+		throw new IllegalArgumentException("Malformed JSON event, unterminated string at offset " + start);
+	}
+
+	/**
+	 * @return the index following a number, literal, array or object starting at {@code i}
+	 */
+	private int valueEnd(int i) {
+		int depth = 0;
+		for (; i < end; i++) {
+			final byte b = bytes[i];
+			if (b == '"') {
+				i = stringEnd(i + 1);
+			} else if (b == '[' || b == '{') {
+				depth++;
+			} else if (b == ']' || b == '}') {
+				if (depth == 0) {
+					return i;
+				}
+				if (--depth == 0) {
+					return i + 1;
+				}
+			} else if (depth == 0 && (b == ',' || b == ' ' || b == '\n' || b == '\r' || b == '\t')) {
+				return i;
+			}
+		}
+		if (depth > 0) {
+			throw new IllegalArgumentException("Malformed JSON event, unterminated value at offset " + i);
+		}
+		return i;
+	}
+
+	private boolean nameIs(int nameStart, int nameEnd, String name) {
+		if (nameEnd - nameStart != name.length()) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (bytes[nameStart + i] != name.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int lineEnd(int lineStart) {
+		int lineEnd = lineStart;
+		while (lineEnd < end && bytes[lineEnd] != '\n') {
+			lineEnd++;
+		}
+		return lineEnd;
+	}
+
+	/**
+	 * Adds a header read by {@link EslXmlEventParser}.
+	 *
+	 * @param name  of the header
+	 * @param value of the header, URL encoded
+	 */
+	void add(String name, String value) {
+		final String canonical;
+		if (projection != null) {
+			canonical = projection.name(name);
+			if (canonical == null) {
+				return;
+			}
+		} else {
+			final int known = WellKnownEventHeaders.DICTIONARY.indexOf(name);
+			canonical = known >= 0 ? WellKnownEventHeaders.DICTIONARY.name(known) : name;
+		}
+		if (count == hashes.length) {
+			grow();
+		}
+		final int index = count++;
+		names[index] = canonical;
+		final int event = names[index] == EslEventHeaderNames.EVENT_NAME
+				? WellKnownEventHeaders.EVENT_NAMES.indexOf(value)
+				: -1;
+		if (event >= 0) {
+			values[index] = WellKnownEventHeaders.EVENT_NAMES.name(event);
+		} else {
+			values[index] = decodeValues ? EslValueDecoder.decode(value) : value;
+		}
+		hashes[index] = names[index].hashCode();
+		insert(index);
+	}
+
+	private void add() {
+		String name;
+		if (escapedName) {
+			escapedName = false;
+			name = EslValueDecoder.decodeJson(bytes, header[0], header[1]);
+			if (projection != null && (name = projection.name(name)) == null) {
+				return;
+			}
+			escapedNames = true;
+		} else if (projection != null) {
+			name = projection.name(bytes, header[0], header[1]);
+			if (name == null) {
+				return;
+			}
+		} else {
+			final int known = WellKnownEventHeaders.DICTIONARY.indexOf(bytes, header[0], header[1]);
+			name = known >= 0 ? WellKnownEventHeaders.DICTIONARY.name(known) : null;
+			if (name == null && !isAscii(header[0], header[1])) {
+				// hashed and compared as the decoded string, as lookups are
+				name = string(header[0], header[1]);
+				escapedNames = true;
+			}
+		}
+
+		if (count == hashes.length) {
+			grow();
+		}
+		final int index = count++;
+		System.arraycopy(header, 0, bounds, index * 4, 4);
+		names[index] = name;
+		if (name != null) {
+			hashes[index] = name.hashCode();
+		} else {
+			int hash = 0;
+			for (int i = header[0]; i < header[1]; i++) {
+				hash = 31 * hash + (bytes[i] & 0xFF);
+			}
+			hashes[index] = hash;
+		}
+		insert(index);
+	}
+
+	private boolean contains(int start, int end, byte b) {
+		for (int i = start; i < end; i++) {
+			if (bytes[i] == b) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isAscii(int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (bytes[i] < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return a power of two for a table of this many headers to be at most 2/3 full
+	 */
+	private static int tableSize(int headers) {
+		return Integer.highestOneBit(headers + (headers >> 1)) << 1;
+	}
+
+	/**
+	 * Grows the arrays sized to a projection to the number of lines, when a projected header is
+	 * repeated, and rebuilds the table for them.
+	 */
+	private void grow() {
+		bounds = Arrays.copyOf(bounds, lines * 4);
+		hashes = Arrays.copyOf(hashes, lines);
+		names = Arrays.copyOf(names, lines);
+		values = Arrays.copyOf(values, lines);
+		if (shadowed != NONE_SHADOWED) {
+			shadowed = Arrays.copyOf(shadowed, lines);
+			shadowedCache = shadowed;
+		}
+		table = new int[tableSize(lines)];
+		final int mask = table.length - 1;
+		for (int index = 0; index < count; index++) {
+			if (index < shadowed.length && shadowed[index]) {
+				continue;
+			}
+			int slot = spread(hashes[index]) & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = index + 1;
+		}
+	}
+
+	private void insert(int index) {
+		final int mask = table.length - 1;
+		for (int slot = spread(hashes[index]) & mask; ; slot = (slot + 1) & mask) {
+			final int other = table[slot] - 1;
+			if (other < 0) {
+				table[slot] = index + 1;
+				size++;
+				return;
+			}
+			if (hashes[other] == hashes[index] && sameName(other, index)) {
+				// the later line wins
+				if (shadowed == NONE_SHADOWED) {
+					if (shadowedCache.length < hashes.length) {
+						shadowedCache = new boolean[hashes.length];
+					} else {
+						Arrays.fill(shadowedCache, false);
+					}
+					shadowed = shadowedCache;
+				}
+				shadowed[other] = true;
+				table[slot] = index + 1;
+				return;
+			}
+		}
+	}
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	private boolean sameName(int a, int b) {
+		if (names[a] != null && names[a] == names[b]) {
+			return true;
+		}
+		if (escapedNames) {
+			return name(a).equals(name(b));
+		}
+		final int aStart = bounds[a * 4];
+		final int bStart = bounds[b * 4];
+		final int length = bounds[a * 4 + 1] - aStart;
+		if (length != bounds[b * 4 + 1] - bStart) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (bytes[aStart + i] != bytes[bStart + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean nameEquals(int header, String name) {
+		if (names[header] == name) {
+			return true;
+		}
+		if (escapedNames) {
+			return name(header).equals(name);
+		}
+		final int nameStart = bounds[header * 4];
+		final int length = bounds[header * 4 + 1] - nameStart;
+		if (length != name.length()) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if ((bytes[nameStart + i] & 0xFF) != name.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the index of the last header line with this name, or -1
+	 */
+	private int indexOf(String name) {
+		final int hash = name.hashCode();
+		final int mask = table.length - 1;
+		for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+			final int header = table[slot] - 1;
+			if (header < 0) {
+				return -1;
+			}
+			if (hashes[header] == hash && nameEquals(header, name)) {
+				return header;
+			}
+		}
+	}
+
+	private String name(int header) {
+		String name = names[header];
+		if (name == null) {
+			name = format == Format.JSON
+					? EslValueDecoder.decodeJson(bytes, bounds[header * 4], bounds[header * 4 + 1])
+					: string(bounds[header * 4], bounds[header * 4 + 1]);
+			names[header] = name;
+		}
+		return name;
+	}
+
+	private String value(int header) {
+		String value = values[header];
+		if (value == null) {
+			final int valueStart = bounds[header * 4 + 2];
+			final int valueEnd = bounds[header * 4 + 3];
+			final int known = names[header] == EslEventHeaderNames.EVENT_NAME
+					? WellKnownEventHeaders.EVENT_NAMES.indexOf(bytes, valueStart, valueEnd)
+					: -1;
+			if (known >= 0) {
+				value = WellKnownEventHeaders.EVENT_NAMES.name(known);
+			} else if (format == Format.JSON) {
+				value = jsonValue(valueStart, valueEnd);
+			} else {
+				value = decodeValues
+						? EslValueDecoder.decode(bytes, valueStart, valueEnd)
+						: string(valueStart, valueEnd);
+			}
+			values[header] = value;
+		}
+		return value;
+	}
+
+	private String jsonValue(int start, int end) {
+		if (bytes[start - 1] == '"') {
+			return decodeValues ? EslValueDecoder.decodeJson(bytes, start, end) : string(start, end);
+		}
+		if (bytes[start] != '[') {
+			// a number, a literal or an object, as is
+			return string(start, end);
+		}
+		final StringBuilder array = new StringBuilder("ARRAY::");
+		int i = start + 1;
+		while (peek(i) == '"') {
+			final int elementStart = skipWhitespace(i) + 1;
+			final int elementEnd = stringEnd(elementStart);
+			if (array.length() > "ARRAY::".length()) {
+				array.append("|:");
+			}
+			array.append(decodeValues
+					? EslValueDecoder.decodeJson(bytes, elementStart, elementEnd)
+					: string(elementStart, elementEnd));
+			i = skipWhitespace(elementEnd + 1);
+			if (i < end && bytes[i] == ',') {
+				i++;
+			}
+		}
+		return array.toString();
+	}
+
+	private String string(int start, int end) {
+		return Utf8.decode(bytes, start, end);
+	}
+
+	/**
+	 * Any event body lines that followed the event "Content-Length" header, blank lines excluded.
+	 *
+	 * @return list of event body lines, may be an empty list.
+	 */
+	List<String> getBodyLines() {
+		ensureAccessible();
+		List<String> bodyLines = this.bodyLines;
+		if (bodyLines == null) {
+			if (bodyStart < 0) {
+				bodyLines = Collections.emptyList();
+			} else if (format == Format.JSON) {
+				final String body = decodeValues
+						? EslValueDecoder.decodeJson(bytes, bodyStart, bodyEnd)
+						: string(bodyStart, bodyEnd);
+				bodyLines = Splitter.on('\n').omitEmptyStrings().splitToList(body);
+			} else if (format == Format.XML) {
+				bodyLines = Splitter.on('\n').omitEmptyStrings().splitToList(
+						EslXmlEventParser.readBody(bytes, bodyStart, end));
+			} else {
+				final List<String> lines = new ArrayList<>();
+				int lineStart = bodyStart;
+				while (lineStart < end) {
+					final int lineEnd = lineEnd(lineStart);
+					// ignore blank line (always is one following the content-length
+					if (lineEnd > lineStart) {
+						lines.add(string(lineStart, lineEnd));
+					}
+					lineStart = lineEnd + 1;
+				}
+				bodyLines = lines;
+			}
+			this.bodyLines = bodyLines;
+		}
+		return bodyLines;
+	}
+
+	@Override
+	public String get(Object key) {
+		ensureAccessible();
+		if (!(key instanceof String)) {
+			return null;
+		}
+		final int header = indexOf((String) key);
+		return header < 0 ? null : value(header);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		ensureAccessible();
+		return key instanceof String && indexOf((String) key) >= 0;
+	}
+
+	@Override
+	public int size() {
+		ensureAccessible();
+		return size;
+	}
+
+	@Override
+	public Set<Entry<String, String>> entrySet() {
+		ensureAccessible();
+		return new AbstractSet<Entry<String, String>>() {
+			@Override
+			public Iterator<Entry<String, String>> iterator() {
+				return new Iterator<Entry<String, String>>() {
+					private int next = advance(0);
+
+					private int advance(int from) {
+						while (from < shadowed.length && shadowed[from]) {
+							from++;
+						}
+						return from;
+					}
+
+					@Override
+					public boolean hasNext() {
+						return next < count;
+					}
+
+					@Override
+					public Entry<String, String> next() {
+						ensureAccessible();
+						if (next >= count) {
+							throw new NoSuchElementException();
+						}
+						final int header = next;
+						next = advance(header + 1);
+						return new SimpleImmutableEntry<>(name(header), value(header));
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return EslEventHeaders.this.size();
+			}
+		};
+	}
+}
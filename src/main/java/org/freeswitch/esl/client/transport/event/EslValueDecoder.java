@@ -0,0 +1,237 @@
+package org.freeswitch.esl.client.transport.event;
+
+import io.netty.util.CharsetUtil;
+import org.freeswitch.esl.client.transport.Utf8;
+
+/**
+ * Decodes the event header values sent by FreeSWITCH, URL encoded in plain events and JSON string
+ * literals in JSON events.
+ * <p/>
+ * This replaces {@link java.net.URLDecoder} for header values: most values contain neither a
+ * {@code '%'} nor a {@code '+'}, and are turned into a string straight from the source bytes.
+ * Otherwise the escapes are decoded from the source bytes into a per thread scratch buffer, which
+ * is then decoded as UTF-8 in one go.
+ * <p/>
+ * Unlike {@link java.net.URLDecoder}, a {@code '%'} which is not followed by two hex digits is kept
+ * as is rather than failing the whole value. Likewise, a malformed JSON escape is kept as is.
+ */
+final class EslValueDecoder {
+	/**
+	 * Scratch buffers larger than this are not kept for reuse.
+	 */
+	private static final int MAX_RETAINED_SCRATCH = 4096;
+
+	private static final ThreadLocal<byte[]> SCRATCH = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[256];
+		}
+	};
+
+	private EslValueDecoder() {
+	}
+
+	/**
+	 * @param bytes holding the encoded value
+	 * @param start index of the first byte of the value
+	 * @param end   index following the last byte of the value
+	 * @return the decoded value
+	 */
+	static String decode(byte[] bytes, int start, int end) {
+		int escape = start;
+		while (escape < end && bytes[escape] != '%' && bytes[escape] != '+') {
+			escape++;
+		}
+		if (escape == end) {
+			return Utf8.decode(bytes, start, end);
+		}
+
+		final byte[] scratch = scratch(end - start);
+		int decoded = escape - start;
+		System.arraycopy(bytes, start, scratch, 0, decoded);
+		for (int i = escape; i < end; i++) {
+			final byte b = bytes[i];
+			if (b == '+') {
+				scratch[decoded++] = ' ';
+			} else if (b == '%' && i + 2 < end && hexValue(bytes[i + 1]) >= 0 && hexValue(bytes[i + 2]) >= 0) {
+				scratch[decoded++] = (byte) (hexValue(bytes[i + 1]) << 4 | hexValue(bytes[i + 2]));
+				i += 2;
+			} else {
+				scratch[decoded++] = b;
+			}
+		}
+		return new String(scratch, 0, decoded, CharsetUtil.UTF_8);
+	}
+
+	/**
+	 * @param value the encoded value
+	 * @return the decoded value, {@code value} itself if it has no escape
+	 */
+	static String decode(String value) {
+		int escape = 0;
+		while (escape < value.length() && value.charAt(escape) != '%' && value.charAt(escape) != '+') {
+			escape++;
+		}
+		if (escape == value.length()) {
+			return value;
+		}
+
+		// any character which is not ASCII, although it should have been encoded, takes up to 3 bytes
+		final byte[] scratch = scratch(value.length() * 3);
+		int decoded = 0;
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			if (c == '+') {
+				scratch[decoded++] = ' ';
+			} else if (c == '%' && i + 2 < value.length() && hexValue(value.charAt(i + 1)) >= 0
+					&& hexValue(value.charAt(i + 2)) >= 0) {
+				scratch[decoded++] = (byte) (hexValue(value.charAt(i + 1)) << 4 | hexValue(value.charAt(i + 2)));
+				i += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+					&& Character.isLowSurrogate(value.charAt(i + 1))) {
+				decoded = putUtf8(scratch, decoded, Character.toCodePoint(c, value.charAt(++i)));
+			} else {
+				decoded = putUtf8(scratch, decoded, c);
+			}
+		}
+		return new String(scratch, 0, decoded, CharsetUtil.UTF_8);
+	}
+
+	/**
+	 * @param bytes holding the content of a JSON string, without its quotes
+	 * @param start index of the first byte of the content
+	 * @param end   index of the closing quote
+	 * @return the unescaped value
+	 */
+	static String decodeJson(byte[] bytes, int start, int end) {
+		int escape = start;
+		while (escape < end && bytes[escape] != '\\' && bytes[escape] >= 0) {
+			escape++;
+		}
+		if (escape == end) {
+			// plain ASCII, checked above
+			return new String(bytes, start, end - start, CharsetUtil.ISO_8859_1);
+		}
+
+		// an escape never decodes to more bytes than it is made of
+		final byte[] scratch = scratch(end - start);
+		int decoded = escape - start;
+		System.arraycopy(bytes, start, scratch, 0, decoded);
+		for (int i = escape; i < end; i++) {
+			final byte b = bytes[i];
+			if (b != '\\' || i + 1 == end) {
+				scratch[decoded++] = b;
+				continue;
+			}
+			final byte escaped = bytes[i + 1];
+			final int unescaped = unescape(escaped);
+			if (unescaped >= 0) {
+				scratch[decoded++] = (byte) unescaped;
+				i++;
+			} else if (escaped == 'u' && i + 6 <= end && hexValue(bytes, i + 2) >= 0) {
+				int codePoint = hexValue(bytes, i + 2);
+				i += 5;
+				if (Character.isHighSurrogate((char) codePoint) && i + 7 <= end
+						&& bytes[i + 1] == '\\' && bytes[i + 2] == 'u') {
+					final int low = hexValue(bytes, i + 3);
+					if (low >= 0 && Character.isLowSurrogate((char) low)) {
+						codePoint = Character.toCodePoint((char) codePoint, (char) low);
+						i += 6;
+					}
+				}
+				decoded = putUtf8(scratch, decoded, codePoint);
+			} else {
+				scratch[decoded++] = b;
+			}
+		}
+		return new String(scratch, 0, decoded, CharsetUtil.UTF_8);
+	}
+
+	private static byte[] scratch(int length) {
+		byte[] scratch = SCRATCH.get();
+		if (scratch.length < length) {
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+			if (scratch.length <= MAX_RETAINED_SCRATCH) {
+				SCRATCH.set(scratch);
+			}
+		}
+		return scratch;
+	}
+
+	private static int unescape(byte b) {
+		switch (b) {
+			case '"':
+			case '\\':
+			case '/':
+				return b;
+			case 'b':
+				return '\b';
+			case 'f':
+				return '\f';
+			case 'n':
+				return '\n';
+			case 'r':
+				return '\r';
+			case 't':
+				return '\t';
+			default:
+				return -1;
+		}
+	}
+
+	private static int putUtf8(byte[] scratch, int at, int codePoint) {
+		if (codePoint < 0x80) {
+			scratch[at++] = (byte) codePoint;
+		} else if (codePoint < 0x800) {
+			scratch[at++] = (byte) (0xC0 | codePoint >> 6);
+			scratch[at++] = (byte) (0x80 | codePoint & 0x3F);
+		} else if (Character.isSurrogate((char) codePoint)) {
+			// an unpaired surrogate, decoded as U+FFFD
+			scratch[at++] = (byte) 0xEF;
+			scratch[at++] = (byte) 0xBF;
+			scratch[at++] = (byte) 0xBD;
+		} else if (codePoint < 0x10000) {
+			scratch[at++] = (byte) (0xE0 | codePoint >> 12);
+			scratch[at++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+			scratch[at++] = (byte) (0x80 | codePoint & 0x3F);
+		} else {
+			scratch[at++] = (byte) (0xF0 | codePoint >> 18);
+			scratch[at++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+			scratch[at++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+			scratch[at++] = (byte) (0x80 | codePoint & 0x3F);
+		}
+		return at;
+	}
+
+	/**
+	 * @return the value of the four hex digits at {@code start}, or -1
+	 */
+	private static int hexValue(byte[] bytes, int start) {
+		int value = 0;
+		for (int i = start; i < start + 4; i++) {
+			final int digit = hexValue(bytes[i]);
+			if (digit < 0) {
+				return -1;
+			}
+			value = value << 4 | digit;
+		}
+		return value;
+	}
+
+	private static int hexValue(char c) {
+		return c < 0x80 ? hexValue((byte) c) : -1;
+	}
+
+	private static int hexValue(byte b) {
+		if (b >= '0' && b <= '9') {
+			return b - '0';
+		}
+		if (b >= 'a' && b <= 'f') {
+			return b - 'a' + 10;
+		}
+		if (b >= 'A' && b <= 'F') {
+			return b - 'A' + 10;
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,122 @@
+package org.freeswitch.esl.client.transport.event;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+
+/**
+ * Streams the XML events sent by FreeSWITCH, in the form
+ * <pre>
+ *   &lt;event&gt;
+ *     &lt;headers&gt;
+ *       &lt;Event-Name&gt;CHANNEL_CREATE&lt;/Event-Name&gt;
+ *       ...
+ *     &lt;/headers&gt;
+ *     &lt;body&gt;...&lt;/body&gt;
+ *   &lt;/event&gt;
+ * </pre>
+ * with a StAX reader, handing each header straight to the {@link EslEventHeaders} being indexed
+ * rather than building a document. Reading the headers stops at the end of the headers element, so
+ * the body, which may be large, is only read if it is asked for.
+ * <p/>
+ * DTDs and external entities are not supported, so that an event can neither expand entities nor
+ * make the reader fetch anything.
+ */
+final class EslXmlEventParser {
+	private static final XMLInputFactory FACTORY = newFactory();
+
+	private EslXmlEventParser() {
+	}
+
+	private static XMLInputFactory newFactory() {
+		final XMLInputFactory factory = XMLInputFactory.newFactory();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		return factory;
+	}
+
+	/**
+	 * Adds the headers of an XML event to {@code headers}.
+	 *
+	 * @param bytes   holding the XML event
+	 * @param start   index of the first byte of the event
+	 * @param end     index following the last byte of the event
+	 * @param headers to add the headers to
+	 * @return true if the event has a body
+	 * @throws IllegalArgumentException if the event is malformed
+	 */
+	static boolean readHeaders(byte[] bytes, int start, int end, EslEventHeaders headers) {
+		try {
+			final XMLStreamReader reader = open(bytes, start, end);
+			try {
+				if (next(reader, "headers")) {
+					while (reader.nextTag() == XMLStreamReader.START_ELEMENT) {
+						headers.add(reader.getLocalName(), reader.getElementText());
+					}
+					return reader.nextTag() == XMLStreamReader.START_ELEMENT && reader.getLocalName().equals("body");
+				}
+				return false;
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IllegalArgumentException("Malformed XML event", e);
+		}
+	}
+
+	/**
+	 * @param bytes holding the XML event
+	 * @param start index of the first byte of the event
+	 * @param end   index following the last byte of the event
+	 * @return the text of the body of the event, or an empty string if it has none
+	 * @throws IllegalArgumentException if the event is malformed
+	 */
+	static String readBody(byte[] bytes, int start, int end) {
+		try {
+			final XMLStreamReader reader = open(bytes, start, end);
+			try {
+				return next(reader, "body") ? reader.getElementText() : "";
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IllegalArgumentException("Malformed XML event", e);
+		}
+	}
+
+	private static XMLStreamReader open(byte[] bytes, int start, int end) throws XMLStreamException {
+		final XMLStreamReader reader = FACTORY.createXMLStreamReader(
+				new ByteArrayInputStream(bytes, start, end - start), "UTF-8");
+		// the event element
+		reader.nextTag();
+		return reader;
+	}
+
+	/**
+	 * Moves to the next child of the event element with the given name, skipping the other ones.
+	 *
+	 * @return false if the event element has no such child
+	 */
+	private static boolean next(XMLStreamReader reader, String name) throws XMLStreamException {
+		while (reader.nextTag() == XMLStreamReader.START_ELEMENT) {
+			if (reader.getLocalName().equals(name)) {
+				return true;
+			}
+			skip(reader);
+		}
+		return false;
+	}
+
+	private static void skip(XMLStreamReader reader) throws XMLStreamException {
+		for (int depth = 1; depth > 0; ) {
+			final int event = reader.next();
+			if (event == XMLStreamReader.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamReader.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+}
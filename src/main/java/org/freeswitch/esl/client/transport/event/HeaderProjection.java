@@ -0,0 +1,133 @@
+package org.freeswitch.esl.client.transport.event;
+
+import org.freeswitch.esl.client.transport.HeaderDictionary;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The set of event headers a consumer declares it reads. An event decoded with a projection only
+ * indexes the headers of the set: the other header lines are skipped as they are scanned, and
+ * nothing is created for them, neither their name nor their value.
+ * <p/>
+ * The headers the library relies on are always part of a projection: {@code Event-Name} and
+ * {@code Job-UUID}, which complete background jobs, {@code Unique-ID}, by which a
+ * {@link org.freeswitch.esl.client.internal.StripedEventDispatcher} keeps the events of a call in
+ * order, and {@code Event-Subclass}, by which {@code CUSTOM} events are routed to their listeners.
+ * Header names are matched exactly, and the names of the projection are the ones the
+ * headers of a projected event are keyed by, so that a lookup by the same string matches by
+ * identity.
+ *
+ * @see EslEvent#EslEvent(org.freeswitch.esl.client.transport.message.EslMessage, HeaderProjection)
+ */
+public final class HeaderProjection {
+	private final HeaderDictionary dictionary;
+
+	private HeaderProjection(HeaderDictionary dictionary) {
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * @param names of the headers to decode
+	 * @return a projection on these headers, and on the headers the library relies on
+	 * @throws IllegalArgumentException if a name is not plain ASCII, or two names only differ by case
+	 */
+	public static HeaderProjection of(String... names) {
+		return of(Arrays.asList(names));
+	}
+
+	/**
+	 * @param names of the headers to decode
+	 * @return a projection on these headers, and on the headers the library relies on
+	 * @throws IllegalArgumentException if a name is not plain ASCII, or two names only differ by case
+	 */
+	public static HeaderProjection of(Collection<String> names) {
+		final Set<String> projected = new LinkedHashSet<>();
+		projected.add(EslEventHeaderNames.EVENT_NAME);
+		projected.add(EslEventHeaderNames.JOB_UUID);
+		projected.add(EslEventHeaderNames.UNIQUE_ID);
+		projected.add(EslEventHeaderNames.EVENT_SUBCLASS);
+		for (String name : names) {
+			checkNotNull(name, "name");
+			// prefer the canonical instance of a well-known name
+			final int known = WellKnownEventHeaders.DICTIONARY.indexOf(name);
+			projected.add(known >= 0 ? WellKnownEventHeaders.DICTIONARY.name(known) : name);
+		}
+		return new HeaderProjection(HeaderDictionary.of(new ArrayList<>(projected)));
+	}
+
+	/**
+	 * @param names of more headers to decode
+	 * @return a projection on the headers of this one and these, this one if it already has them
+	 * @throws IllegalArgumentException if a name is not plain ASCII, or two names only differ by case
+	 */
+	public HeaderProjection with(Collection<String> names) {
+		for (String name : names) {
+			if (!contains(name)) {
+				final List<String> merged = new ArrayList<>(names());
+				merged.addAll(names);
+				return of(merged);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * @return true if the header is projected
+	 */
+	public boolean contains(String name) {
+		return dictionary.indexOf(name) >= 0;
+	}
+
+	/**
+	 * @return the names of the projected headers
+	 */
+	public List<String> names() {
+		return new AbstractList<String>() {
+			@Override
+			public String get(int index) {
+				return dictionary.name(index);
+			}
+
+			@Override
+			public int size() {
+				return dictionary.size();
+			}
+		};
+	}
+
+	/**
+	 * @return the number of projected headers
+	 */
+	int size() {
+		return dictionary.size();
+	}
+
+	/**
+	 * @return the projected name held in the bytes, or null if the header is not projected
+	 */
+	String name(byte[] bytes, int start, int end) {
+		final int index = dictionary.indexOf(bytes, start, end);
+		return index < 0 ? null : dictionary.name(index);
+	}
+
+	/**
+	 * @return the projected instance of the name, or null if the header is not projected
+	 */
+	String name(String name) {
+		final int index = dictionary.indexOf(name);
+		return index < 0 ? null : dictionary.name(index);
+	}
+
+	@Override
+	public String toString() {
+		return "HeaderProjection" + names();
+	}
+}
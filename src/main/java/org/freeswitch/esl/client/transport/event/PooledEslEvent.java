@@ -0,0 +1,164 @@
+package org.freeswitch.esl.client.transport.event;
+
+import io.netty.util.IllegalReferenceCountException;
+import io.netty.util.Recycler;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ReferenceCounted;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakDetectorFactory;
+import io.netty.util.ResourceLeakTracker;
+import org.freeswitch.esl.client.transport.message.EslHeaders.Name;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * An {@link EslEvent} obtained from {@link EslEvent#newPooledInstance}, which is recycled once
+ * released.
+ * <p/>
+ * The event retains its message until it is released. Its header index is reused by the next
+ * event the instance carries, so a steady flow of events does not allocate any event, index or
+ * message once the pools are warm.
+ */
+final class PooledEslEvent extends EslEvent implements ReferenceCounted {
+	private static final ResourceLeakDetector<PooledEslEvent> leakDetector =
+			ResourceLeakDetectorFactory.instance().newResourceLeakDetector(PooledEslEvent.class);
+
+	private static final Recycler<PooledEslEvent> RECYCLER = new Recycler<PooledEslEvent>() {
+		@Override
+		protected PooledEslEvent newObject(Handle<PooledEslEvent> handle) {
+			return new PooledEslEvent(handle);
+		}
+	};
+
+	private static final AtomicIntegerFieldUpdater<PooledEslEvent> refCntUpdater =
+			AtomicIntegerFieldUpdater.newUpdater(PooledEslEvent.class, "refCnt");
+
+	// null when the event is not recycled
+	private final Recycler.Handle<PooledEslEvent> handle;
+	private volatile int refCnt;
+	private ResourceLeakTracker<PooledEslEvent> leak;
+
+	private PooledEslEvent(Recycler.Handle<PooledEslEvent> handle) {
+		this.handle = handle;
+	}
+
+	static PooledEslEvent newInstance(EslMessage message, HeaderProjection projection) {
+		// when paranoid, never reuse an event so that any access after release is caught
+		final PooledEslEvent event = ResourceLeakDetector.getLevel() == ResourceLeakDetector.Level.PARANOID
+				? new PooledEslEvent(null)
+				: RECYCLER.get();
+		event.init(message, projection);
+		ReferenceCountUtil.retain(message);
+		refCntUpdater.set(event, 1);
+		event.leak = leakDetector.track(event);
+		return event;
+	}
+
+	@Override
+	public int refCnt() {
+		return refCnt;
+	}
+
+	@Override
+	public PooledEslEvent retain() {
+		return retain(1);
+	}
+
+	@Override
+	public PooledEslEvent retain(int increment) {
+		checkArgument(increment > 0, "increment must be positive: %s", increment);
+		for (; ; ) {
+			final int refCnt = this.refCnt;
+			final int next = refCnt + increment;
+			if (refCnt <= 0 || next < refCnt) {
+				throw new IllegalReferenceCountException(refCnt, increment);
+			}
+			if (refCntUpdater.compareAndSet(this, refCnt, next)) {
+				return this;
+			}
+		}
+	}
+
+	@Override
+	public PooledEslEvent touch() {
+		return touch(null);
+	}
+
+	@Override
+	public PooledEslEvent touch(Object hint) {
+		final ResourceLeakTracker<PooledEslEvent> leak = this.leak;
+		if (leak != null) {
+			leak.record(hint);
+		}
+		return this;
+	}
+
+	@Override
+	public boolean release() {
+		return release(1);
+	}
+
+	@Override
+	public boolean release(int decrement) {
+		checkArgument(decrement > 0, "decrement must be positive: %s", decrement);
+		for (; ; ) {
+			final int refCnt = this.refCnt;
+			if (refCnt < decrement) {
+				throw new IllegalReferenceCountException(refCnt, -decrement);
+			}
+			if (refCntUpdater.compareAndSet(this, refCnt, refCnt - decrement)) {
+				if (refCnt == decrement) {
+					deallocate();
+					return true;
+				}
+				return false;
+			}
+		}
+	}
+
+	private void deallocate() {
+		if (leak != null) {
+			leak.close(this);
+			leak = null;
+		}
+		ReferenceCountUtil.release(clear());
+		if (handle != null) {
+			handle.recycle(this);
+		}
+	}
+
+	private void ensureAccessible() {
+		if (refCnt == 0) {
+			throw new IllegalReferenceCountException(0);
+		}
+	}
+
+	@Override
+	public Map<Name, String> getMessageHeaders() {
+		ensureAccessible();
+		return super.getMessageHeaders();
+	}
+
+	@Override
+	public Map<String, String> getEventHeaders() {
+		ensureAccessible();
+		return super.getEventHeaders();
+	}
+
+	@Override
+	public List<String> getEventBodyLines() {
+		ensureAccessible();
+		return super.getEventBodyLines();
+	}
+
+	@Override
+	public String toString() {
+		return refCnt == 0 ? toStringHelper(this).add("refCnt", 0).toString() : super.toString();
+	}
+}
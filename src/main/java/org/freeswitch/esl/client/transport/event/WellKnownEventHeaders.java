@@ -0,0 +1,173 @@
+package org.freeswitch.esl.client.transport.event;
+
+import org.freeswitch.esl.client.transport.HeaderDictionary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Header names FreeSWITCH commonly sends in events, and the names of its events, so that header
+ * keys and event names of an {@link EslEvent} can share canonical {@link String} instances instead
+ * of being created for each event.
+ * <p/>
+ * The names are interned, and so are the same instances as the equal string literals used to look
+ * headers up, such as the constants of {@link EslEventHeaderNames}.
+ */
+final class WellKnownEventHeaders {
+	/**
+	 * Headers set on every event, and by the core on specific events.
+	 */
+	private static final String[] EVENT = {
+			"Event-Name", "Event-Subclass", "Core-UUID", "FreeSWITCH-Hostname", "FreeSWITCH-Switchname",
+			"FreeSWITCH-IPv4", "FreeSWITCH-IPv6", "Event-Date-Local", "Event-Date-GMT", "Event-Date-Timestamp",
+			"Event-Calling-File", "Event-Calling-Function", "Event-Calling-Line-Number", "Event-Sequence",
+			"Event-Info", "Content-Length", "Content-Type",
+			// channel
+			"Channel-State", "Channel-Call-State", "Channel-State-Number", "Channel-Name", "Unique-ID",
+			"Call-Direction", "Presence-Call-Direction", "Channel-HIT-Dialplan", "Channel-Presence-ID",
+			"Channel-Presence-Data", "Presence-Data-Cols", "Channel-Call-UUID", "Answer-State",
+			"Original-Channel-Call-State", "Channel-Read-Codec-Name", "Channel-Read-Codec-Rate",
+			"Channel-Read-Codec-Bit-Rate", "Channel-Reported-Read-Codec-Rate", "Channel-Write-Codec-Name",
+			"Channel-Write-Codec-Rate", "Channel-Write-Codec-Bit-Rate", "Channel-Reported-Write-Codec-Rate",
+			"Channel-Video-Read-Codec-Name", "Channel-Video-Read-Codec-Rate", "Channel-Video-Write-Codec-Name",
+			"Channel-Video-Write-Codec-Rate", "Channel-Call-State-Number", "Hangup-Cause", "Other-Type",
+			"Bridge-A-Unique-ID", "Bridge-B-Unique-ID", "Transfer-Source", "Resurrect-Source",
+			// applications, api and background jobs
+			"Application", "Application-Data", "Application-Response", "Application-UUID",
+			"Application-UUID-Name", "API-Command", "API-Command-Argument", "Job-UUID", "Job-Command",
+			"Job-Command-Arg", "Command", "Reply-Text", "Socket-Mode", "Control",
+			// media
+			"DTMF-Digit", "DTMF-Duration", "DTMF-Source", "Playback-File-Path", "Playback-File-Type",
+			"Playback-Status", "Record-File-Path", "Record-Completion-Cause", "Media-Bug-Function",
+			"Media-Bug-Target", "Detected-Speech-Type", "Speech-Type",
+			// heartbeat
+			"FreeSWITCH-Version", "Up-Time", "Uptime-msec", "Session-Count", "Max-Sessions", "Session-Per-Sec",
+			"Session-Per-Sec-Last", "Session-Per-Sec-Max", "Session-Per-Sec-FiveMin", "Session-Since-Startup",
+			"Session-Peak-Max", "Session-Peak-FiveMin", "Idle-CPU", "Heartbeat-Interval",
+			// presence and registrations
+			"proto", "login", "from", "status", "rpid", "event_type", "alt_event_type", "event_count",
+			"presence-source", "Presence-Privacy", "profile-name", "from-user", "from-host", "to-user",
+			"to-host", "contact", "call-id", "expires", "network-ip", "network-port", "username", "realm",
+			"user-agent", "gateway_name", "State", "Ping-Status", "Phrase",
+			// conferences
+			"Conference-Name", "Conference-Domain", "Conference-Size", "Conference-Ghosts",
+			"Conference-Profile-Name", "Conference-Unique-ID", "Floor", "Video", "Hear", "See", "Speak",
+			"Talking", "Mute-Detect", "Member-ID", "Member-Type", "Member-Ghost", "Energy-Level",
+			"Current-Energy", "Action",
+	};
+
+	/**
+	 * Fields of a caller profile, sent prefixed with the role of the profile.
+	 */
+	private static final String[] CALLER_PROFILE = {
+			"Direction", "Logical-Direction", "Username", "Dialplan", "Caller-ID-Name", "Caller-ID-Number",
+			"Orig-Caller-ID-Name", "Orig-Caller-ID-Number", "Callee-ID-Name", "Callee-ID-Number", "Network-Addr",
+			"ANI", "ANI-II", "Destination-Number", "Unique-ID", "Source", "Transfer-Source", "Context", "RDNIS",
+			"Channel-Name", "Profile-Index", "Profile-Created-Time", "Channel-Created-Time",
+			"Channel-Answered-Time", "Channel-Progress-Time", "Channel-Progress-Media-Time",
+			"Channel-Hangup-Time", "Channel-Transfer-Time", "Channel-Resurrect-Time", "Channel-Bridged-Time",
+			"Channel-Last-Hold", "Channel-Hold-Accum", "Screen-Bit", "Privacy-Hide-Name", "Privacy-Hide-Number",
+	};
+
+	private static final String[] CALLER_PROFILE_PREFIXES = {
+			"Caller-", "Other-Leg-", "Originator-", "Originatee-",
+	};
+
+	/**
+	 * Channel variables, sent prefixed with {@code "variable_"}.
+	 */
+	private static final String[] VARIABLES = {
+			"direction", "uuid", "session_id", "call_uuid", "channel_name", "presence_id", "presence_data",
+			"call_direction", "originating_leg_uuid", "originator", "originator_codec", "origination_uuid",
+			"signal_bond", "bridge_to", "last_bridge_to", "bridge_channel", "bridge_uuid", "last_sent_callee_id_name",
+			"last_sent_callee_id_number", "endpoint_disposition", "current_application",
+			"current_application_data", "current_application_response", "last_app", "last_arg",
+			"hangup_cause", "hangup_cause_q850", "digits_dialed", "start_stamp", "profile_start_stamp",
+			"answer_stamp", "bridge_stamp", "progress_stamp", "progress_media_stamp", "end_stamp", "start_epoch",
+			"start_uepoch", "profile_start_epoch", "profile_start_uepoch", "answer_epoch", "answer_uepoch",
+			"bridge_epoch", "bridge_uepoch", "last_hold_epoch", "last_hold_uepoch", "hold_accum_seconds",
+			"hold_accum_usec", "hold_accum_ms", "resurrect_epoch", "resurrect_uepoch", "progress_epoch",
+			"progress_uepoch", "progress_media_epoch", "progress_media_uepoch", "end_epoch", "end_uepoch",
+			"caller_id", "duration", "billsec", "progresssec", "answersec", "waitsec", "progress_mediasec",
+			"flow_billsec", "mduration", "billmsec", "progressmsec", "answermsec", "waitmsec",
+			"progress_mediamsec", "flow_billmsec", "uduration", "billusec", "progressusec", "answerusec",
+			"waitusec", "progress_mediausec", "flow_billusec", "dialed_user", "dialed_domain",
+			// users and accounts
+			"domain_name", "user_name", "user_context", "accountcode", "toll_allow", "callgroup",
+			"effective_caller_id_name", "effective_caller_id_number", "outbound_caller_id_name",
+			"outbound_caller_id_number", "default_gateway", "default_areacode", "transfer_fallback_extension",
+			"export_vars", "record_stereo", "call_timeout", "continue_on_fail", "hangup_after_bridge",
+			"ringback", "transfer_ringback", "max_forwards", "dtmf_type", "tenant_id",
+			// codecs and media
+			"read_codec", "read_rate", "original_read_codec", "original_read_rate", "write_codec",
+			"write_rate", "video_read_codec", "video_write_codec", "absolute_codec_string", "codec_string",
+			"ep_codec_string", "media_webrtc", "rtp_use_codec_string", "rtp_use_codec_name",
+			"rtp_use_codec_rate", "rtp_use_codec_ptime", "rtp_use_codec_channels", "rtp_use_codec_fmtp",
+			"rtp_last_audio_codec_string", "rtp_audio_recv_pt", "rtp_audio_send_pt", "rtp_use_pt",
+			"rtp_remote_sdp_str", "rtp_local_sdp_str", "rtp_2833_send_payload", "rtp_2833_recv_payload",
+			"rtp_use_timer_name", "remote_media_ip", "remote_media_port", "local_media_ip",
+			"local_media_port", "advertised_media_ip", "switch_r_sdp", "switch_m_sdp", "recovery_profile_name",
+			// sofia
+			"sofia_profile_name", "sofia_profile_url", "sip_profile_name", "sip_call_id", "sip_local_network_addr",
+			"sip_network_ip", "sip_network_port", "sip_invite_stamp", "sip_received_ip", "sip_received_port",
+			"sip_via_protocol", "sip_authorized", "sip_acl_authed_by", "sip_acl_token", "sip_from_user",
+			"sip_from_user_stripped", "sip_from_uri", "sip_from_host", "sip_from_port", "sip_from_tag",
+			"sip_from_display", "sip_from_params", "sip_to_user", "sip_to_uri", "sip_to_host", "sip_to_port",
+			"sip_to_tag", "sip_to_display", "sip_to_params", "sip_req_user", "sip_req_uri", "sip_req_host",
+			"sip_req_port", "sip_contact_params", "sip_contact_user", "sip_contact_port", "sip_contact_uri",
+			"sip_contact_host", "sip_user_agent", "sip_via_host", "sip_via_port", "sip_via_rport",
+			"sip_full_via", "sip_full_from", "sip_full_to", "sip_full_route", "sip_recover_via",
+			"sip_recover_contact", "sip_allow", "sip_accept", "sip_cseq", "sip_local_sdp_str",
+			"sip_outgoing_contact_uri", "sip_destination_url", "sip_term_status", "sip_term_cause",
+			"sip_hangup_phrase", "sip_hangup_disposition", "sip_invite_failure_status",
+			"sip_invite_failure_phrase", "sip_reply_host", "sip_reply_port", "sip_gateway_name",
+			"sip_nat_detected", "sip_user_agent_header", "sip_auth_username", "sip_auth_realm",
+			"sip_P-Asserted-Identity", "sip_Privacy", "sip_h_X-Tenant-ID",
+	};
+
+	/**
+	 * Values of the {@code "Event-Name"} header.
+	 */
+	static final HeaderDictionary EVENT_NAMES = HeaderDictionary.of(
+			"CUSTOM", "CLONE", "CHANNEL_CREATE", "CHANNEL_DESTROY", "CHANNEL_STATE", "CHANNEL_CALLSTATE",
+			"CHANNEL_ANSWER", "CHANNEL_HANGUP", "CHANNEL_HANGUP_COMPLETE", "CHANNEL_EXECUTE",
+			"CHANNEL_EXECUTE_COMPLETE", "CHANNEL_HOLD", "CHANNEL_UNHOLD", "CHANNEL_BRIDGE", "CHANNEL_UNBRIDGE",
+			"CHANNEL_PROGRESS", "CHANNEL_PROGRESS_MEDIA", "CHANNEL_OUTGOING", "CHANNEL_PARK", "CHANNEL_UNPARK",
+			"CHANNEL_APPLICATION", "CHANNEL_ORIGINATE", "CHANNEL_UUID", "API", "LOG", "INBOUND_CHAN",
+			"OUTBOUND_CHAN", "STARTUP", "SHUTDOWN", "PUBLISH", "UNPUBLISH", "TALK", "NOTALK", "SESSION_CRASH",
+			"MODULE_LOAD", "MODULE_UNLOAD", "DTMF", "MESSAGE", "PRESENCE_IN", "NOTIFY_IN", "PRESENCE_OUT",
+			"PRESENCE_PROBE", "MESSAGE_WAITING", "MESSAGE_QUERY", "ROSTER", "CODEC", "BACKGROUND_JOB",
+			"DETECTED_SPEECH", "DETECTED_TONE", "PRIVATE_COMMAND", "HEARTBEAT", "TRAP", "ADD_SCHEDULE",
+			"DEL_SCHEDULE", "EXE_SCHEDULE", "RE_SCHEDULE", "RELOADXML", "NOTIFY", "PHONE_FEATURE",
+			"PHONE_FEATURE_SUBSCRIBE", "SEND_MESSAGE", "RECV_MESSAGE", "REQUEST_PARAMS", "CHANNEL_DATA",
+			"GENERAL", "COMMAND", "SESSION_HEARTBEAT", "CLIENT_DISCONNECTED", "SERVER_DISCONNECTED",
+			"SEND_INFO", "RECV_INFO", "RECV_RTCP_MESSAGE", "SEND_RTCP_MESSAGE", "CALL_SECURE", "NAT",
+			"RECORD_START", "RECORD_STOP", "PLAYBACK_START", "PLAYBACK_STOP", "CALL_UPDATE", "FAILURE",
+			"SOCKET_DATA", "MEDIA_BUG_START", "MEDIA_BUG_STOP", "CONFERENCE_DATA_QUERY", "CONFERENCE_DATA",
+			"CALL_SETUP_REQ", "CALL_SETUP_RESULT", "CALL_DETAIL", "DEVICE_STATE", "TEXT", "SHUTDOWN_REQUESTED",
+			"ALL");
+
+	/**
+	 * Header names.
+	 */
+	static final HeaderDictionary DICTIONARY;
+
+	static {
+		final List<String> names = new ArrayList<>();
+		for (String name : EVENT) {
+			names.add(name);
+		}
+		for (String prefix : CALLER_PROFILE_PREFIXES) {
+			for (String field : CALLER_PROFILE) {
+				names.add((prefix + field).intern());
+			}
+		}
+		for (String variable : VARIABLES) {
+			names.add(("variable_" + variable).intern());
+		}
+		DICTIONARY = HeaderDictionary.of(names);
+	}
+
+	private WellKnownEventHeaders() {
+	}
+}
@@ -0,0 +1,222 @@
+package org.freeswitch.esl.client.transport.message;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.util.CharsetUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Strings.isNullOrEmpty;
+
+/**
+ * A command to send to FreeSWITCH, written by the {@link EslCommandEncoder} straight into the
+ * outbound buffer.
+ * <p/>
+ * A command is kept as the fragments it is made of rather than as a single string: the constant
+ * ones, such as {@code "api "} or {@code "call-command: execute\n"}, are encoded once and copied as
+ * is, and the others, such as the arguments, are encoded as UTF-8 into the outbound buffer. No
+ * intermediate string is built for the whole command.
+ */
+public final class EslCommand {
+	private static final byte[] LF = bytes("\n");
+	private static final byte[] SPACE = bytes(" ");
+	private static final byte[] API = bytes("api ");
+	private static final byte[] BGAPI = bytes("bgapi ");
+	private static final byte[] SENDMSG = bytes("sendmsg");
+	private static final byte[] SENDMSG_UUID = bytes("sendmsg ");
+	private static final byte[] HEADER_SEPARATOR = bytes(": ");
+	private static final byte[] CALL_COMMAND_EXECUTE = bytes("call-command: execute\n");
+	private static final byte[] EVENT_LOCK_TRUE = bytes("event-lock: true\n");
+	private static final byte[] JOB_UUID = bytes("Job-UUID: ");
+
+	// "name: " fragments of the headers of sendmsg commands
+	private static final Map<String, byte[]> HEADERS = new HashMap<>();
+
+	static {
+		for (String name : new String[]{"call-command", "execute-app-name", "execute-app-arg", "loops",
+				"hangup-cause", "nomedia-uuid", "event-lock", "event-uuid", "content-type", "content-length"}) {
+			HEADERS.put(name, bytes(name + ": "));
+		}
+	}
+
+	// byte[] or CharSequence
+	private final Object[] parts;
+
+	private EslCommand(Object[] parts) {
+		this.parts = parts;
+	}
+
+	private static byte[] bytes(String fragment) {
+		return fragment.getBytes(CharsetUtil.US_ASCII);
+	}
+
+	/**
+	 * @param command a single line command, such as {@code "noevents"}
+	 * @return the command
+	 */
+	public static EslCommand of(String command) {
+		checkArgument(!isNullOrEmpty(command), "command cannot be null or empty");
+		return new EslCommand(new Object[]{command, LF, LF});
+	}
+
+	/**
+	 * @param command API command to send
+	 * @param arg     command arguments, may be null
+	 * @return the {@code api} command
+	 */
+	public static EslCommand api(String command, String arg) {
+		return withArgument(API, command, arg);
+	}
+
+	/**
+	 * @param command API command to send
+	 * @param arg     command arguments, may be null
+	 * @return the {@code bgapi} command
+	 */
+	public static EslCommand bgapi(String command, String arg) {
+		return withArgument(BGAPI, command, arg);
+	}
+
+	/**
+	 * @param command API command to send
+	 * @param arg     command arguments, may be null
+	 * @param jobUuid the BACKGROUND_JOB event of the job is to carry, rather than one chosen by the
+	 *                server
+	 * @return the {@code bgapi} command
+	 */
+	public static EslCommand bgapi(String command, String arg, String jobUuid) {
+		checkArgument(!isNullOrEmpty(command), "command cannot be null or empty");
+		checkArgument(!isNullOrEmpty(jobUuid), "jobUuid cannot be null or empty");
+		return new EslCommand(isNullOrEmpty(arg)
+				? new Object[]{BGAPI, command, LF, JOB_UUID, jobUuid, LF, LF}
+				: new Object[]{BGAPI, command, SPACE, arg, LF, JOB_UUID, jobUuid, LF, LF});
+	}
+
+	private static EslCommand withArgument(byte[] verb, String command, String arg) {
+		checkArgument(!isNullOrEmpty(command), "command cannot be null or empty");
+		return new EslCommand(isNullOrEmpty(arg)
+				? new Object[]{verb, command, LF, LF}
+				: new Object[]{verb, command, SPACE, arg, LF, LF});
+	}
+
+	/**
+	 * @param lines of a multi line command, the first one being the command itself
+	 * @return the command
+	 */
+	public static EslCommand lines(List<String> lines) {
+		checkArgument(!lines.isEmpty(), "lines cannot be empty");
+		final Object[] parts = new Object[lines.size() * 2 + 1];
+		int i = 0;
+		for (String line : lines) {
+			parts[i++] = checkNotNull(line, "line");
+			parts[i++] = LF;
+		}
+		parts[i] = LF;
+		return new EslCommand(parts);
+	}
+
+	/**
+	 * @param uuid of the call to send the message to, null in outbound mode
+	 * @return a builder of a {@code sendmsg} command
+	 */
+	public static Builder sendMsg(String uuid) {
+		return new Builder(uuid);
+	}
+
+	/**
+	 * Builds a {@code sendmsg} command, one header at a time.
+	 */
+	public static final class Builder {
+		private final List<Object> parts = new ArrayList<>();
+
+		private Builder(String uuid) {
+			if (uuid == null) {
+				parts.add(SENDMSG);
+			} else {
+				parts.add(SENDMSG_UUID);
+				parts.add(uuid);
+			}
+			parts.add(LF);
+		}
+
+		/**
+		 * Adds the line {@code name: value}.
+		 *
+		 * @param name  of the header
+		 * @param value of the header
+		 * @return this builder
+		 */
+		public Builder header(String name, String value) {
+			checkNotNull(name, "name");
+			checkNotNull(value, "value");
+			if (name.equals("call-command") && value.equals("execute")) {
+				parts.add(CALL_COMMAND_EXECUTE);
+			} else if (name.equals("event-lock") && value.equals("true")) {
+				parts.add(EVENT_LOCK_TRUE);
+			} else {
+				final byte[] header = HEADERS.get(name);
+				if (header != null) {
+					parts.add(header);
+				} else {
+					parts.add(name);
+					parts.add(HEADER_SEPARATOR);
+				}
+				parts.add(value);
+				parts.add(LF);
+			}
+			return this;
+		}
+
+		/**
+		 * @return the command
+		 */
+		public EslCommand build() {
+			parts.add(LF);
+			return new EslCommand(parts.toArray());
+		}
+	}
+
+	/**
+	 * @return the most bytes the command can be encoded to, each character of its text counting for
+	 * the 3 bytes it may take
+	 */
+	public int maxLength() {
+		int length = 0;
+		for (Object part : parts) {
+			length += part instanceof byte[]
+					? ((byte[]) part).length
+					: ByteBufUtil.utf8MaxBytes((CharSequence) part);
+		}
+		return length;
+	}
+
+	/**
+	 * @param out to write the command to, terminating blank line included
+	 */
+	void encode(ByteBuf out) {
+		for (Object part : parts) {
+			if (part instanceof byte[]) {
+				out.writeBytes((byte[]) part);
+			} else {
+				ByteBufUtil.writeUtf8(out, (CharSequence) part);
+			}
+		}
+	}
+
+	/**
+	 * @return the command as it is sent, without its terminating blank line
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		for (Object part : parts) {
+			sb.append(part instanceof byte[] ? new String((byte[]) part, CharsetUtil.US_ASCII) : part);
+		}
+		return sb.substring(0, sb.length() - 2);
+	}
+}
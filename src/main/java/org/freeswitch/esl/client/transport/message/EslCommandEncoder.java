@@ -0,0 +1,32 @@
+package org.freeswitch.esl.client.transport.message;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+/**
+ * Encodes the {@link EslCommand}s written to a channel, each into a buffer of the channel's
+ * allocator, direct when the transport prefers it, sized to the command up front so that it never
+ * has to grow.
+ * <p/>
+ * The encoder holds no state, and a single instance may be shared by every channel.
+ */
+@ChannelHandler.Sharable
+public class EslCommandEncoder extends MessageToByteEncoder<EslCommand> {
+
+	public EslCommandEncoder() {
+		super(EslCommand.class);
+	}
+
+	@Override
+	protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, EslCommand command, boolean preferDirect) {
+		final int length = command.maxLength();
+		return preferDirect ? ctx.alloc().ioBuffer(length) : ctx.alloc().heapBuffer(length);
+	}
+
+	@Override
+	protected void encode(ChannelHandlerContext ctx, EslCommand command, ByteBuf out) {
+		command.encode(out);
+	}
+}
@@ -16,15 +16,21 @@
 package org.freeswitch.esl.client.transport.message;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.ReplayingDecoder;
+import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.AttributeKey;
+import io.netty.util.ByteProcessor;
 import org.freeswitch.esl.client.transport.HeaderParser;
+import org.freeswitch.esl.client.transport.Utf8;
 import org.freeswitch.esl.client.transport.message.EslHeaders.Name;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Decoder used by the IO processing pipeline. Client consumers should never need to use
@@ -44,25 +50,53 @@ import java.util.List;
  *    Loop until receive buffer size is >= Content-length
  *    Extract content-length bytes from buffer and process
  * </pre>
+ * Header lines are located with a bulk scan for the line feed and indexed as they arrive, so a
+ * partial frame is never scanned twice. Nothing is consumed from the buffer until the whole frame
+ * is available, it is then cut at once.
+ * <p/>
+ * By default the bytes of each frame are copied to the heap. When constructed to retain frames,
+ * each message instead holds a retained slice of the inbound buffer and is reference counted; it
+ * must then be released once processed.
+ * <p/>
+ * The body of an {@code api/response} can be streamed instead: when the channel has a
+ * {@link #BODY_CONSUMERS} attribute providing an {@link IEslBodyConsumer} for it, the body is
+ * handed to the consumer as it arrives, and the message, which then has no body, is only sent
+ * upstream once the whole body has been consumed.
  */
-public class EslFrameDecoder extends ReplayingDecoder<EslFrameDecoder.State> {
+public class EslFrameDecoder extends ByteToMessageDecoder {
 	/**
 	 * Line feed character
 	 */
 	static final byte LF = 10;
 
+	/**
+	 * Channel attribute asked for a consumer of each {@code api/response} body when its headers have
+	 * been read; a null consumer, or no attribute, leaves the body to be read in full.
+	 */
+	public static final AttributeKey<Supplier<IEslBodyConsumer>> BODY_CONSUMERS =
+			AttributeKey.valueOf(EslFrameDecoder.class, "BODY_CONSUMERS");
+
 	protected enum State {
 		READ_HEADER,
 		READ_BODY,
+		STREAM_BODY,
 	}
 
 	private final Logger log = LoggerFactory.getLogger(this.getClass());
 	private final int maxHeaderSize;
+	private final int[] headerBounds = new int[4];
+	private State state = State.READ_HEADER;
 	private EslMessage currentMessage;
+	// number of bytes of the current frame already scanned
+	private int frameOffset;
+	// whether the content type of the current message is api/response
+	private boolean apiResponse;
+	private IEslBodyConsumer bodyConsumer;
+	private int bodyRemaining;
 	private boolean treatUnknownHeadersAsBody = false;
+	private boolean retainFrames = false;
 
 	public EslFrameDecoder(int maxHeaderSize) {
-		super(State.READ_HEADER);
 		if (maxHeaderSize <= 0) {
 			throw new IllegalArgumentException(
 				"maxHeaderSize must be a positive integer: " +
@@ -76,124 +110,199 @@ public class EslFrameDecoder extends ReplayingDecoder<EslFrameDecoder.State> {
 		this.treatUnknownHeadersAsBody = treatUnknownHeadersAsBody;
 	}
 
+	public EslFrameDecoder(int maxHeaderSize, boolean treatUnknownHeadersAsBody, boolean retainFrames) {
+		this(maxHeaderSize, treatUnknownHeadersAsBody);
+		this.retainFrames = retainFrames;
+	}
+
 	@Override
 	protected void decode(ChannelHandlerContext ctx, ByteBuf buffer, List<Object> out) throws Exception {
-		State state = state();
-
 		log.trace("decode() : state [{}]", state);
 		switch (state) {
 			case READ_HEADER:
 				if (currentMessage == null) {
-					currentMessage = new EslMessage();
+					currentMessage = retainFrames ? RetainedEslMessage.newInstance() : new EslMessage();
+					frameOffset = 0;
+					apiResponse = false;
 				}
 				/*
-								*  read '\n' terminated lines until reach a single '\n'
-								*/
-				boolean reachedDoubleLF = false;
-				while (!reachedDoubleLF) {
-					// this will read or fail
-					String headerLine = readToLineFeedOrFail(buffer, maxHeaderSize);
-					log.debug("read header line [{}]", headerLine);
-					if (!headerLine.isEmpty()) {
-						// split the header line
-						String[] headerParts = HeaderParser.splitHeader(headerLine);
-						Name headerName = Name.fromLiteral(headerParts[0]);
-						if (headerName == null) {
-							if (treatUnknownHeadersAsBody) {
-								// cache this 'header' as a body line <-- useful for Outbound client mode
-								currentMessage.addBodyLine(headerLine);
-							} else {
-								throw new IllegalStateException("Unhandled ESL header [" + headerParts[0] + ']');
-							}
-						}
-						currentMessage.addHeader(headerName, headerParts[1]);
-					} else {
-						reachedDoubleLF = true;
-					}
-					// do not read in this line again
-					checkpoint();
+				 *  read '\n' terminated lines until reach a single '\n'
+				 */
+				if (!readHeaders(buffer)) {
+					// wait for the rest of the header block
+					return;
 				}
 				// have read all headers - check for content-length
-				if (currentMessage.hasContentLength()) {
-					checkpoint(State.READ_BODY);
-					log.debug("have content-length, decoding body ..");
-					//  force the next section
-
-					break;
-				} else {
-					// end of message
-					checkpoint(State.READ_HEADER);
-					// send message upstream
-					EslMessage decodedMessage = currentMessage;
-					currentMessage = null;
-
-					out.add(decodedMessage);
-					break;
+				if (!currentMessage.hasContentLength()) {
+					// end of message, send it upstream
+					out.add(completeMessage(buffer, frameOffset, -1));
+					return;
 				}
-
-			case READ_BODY:
-				/*
-								*   read the content-length specified
-								*/
-				int contentLength = currentMessage.getContentLength();
-				ByteBuf bodyBytes = buffer.readBytes(contentLength);
-				log.debug("read [{}] body bytes", bodyBytes.writerIndex());
-				// most bodies are line based, so split on LF
-				while (bodyBytes.isReadable()) {
-					String bodyLine = readLine(bodyBytes, contentLength);
-					log.debug("read body line [{}]", bodyLine);
-					currentMessage.addBodyLine(bodyLine);
+				if (apiResponse && (bodyConsumer = bodyConsumer(ctx)) != null) {
+					log.debug("have content-length, streaming body ..");
+					// the message keeps its headers, the body goes to the consumer
+					currentMessage.setFrame(cut(buffer, frameOffset), -1);
+					bodyRemaining = currentMessage.contentLength();
+					state = State.STREAM_BODY;
+					streamBody(buffer, out);
+					return;
 				}
+				log.debug("have content-length, decoding body ..");
+				state = State.READ_BODY;
+				// the body may already be here
+				readBody(buffer, out);
+				return;
 
-				// end of message
-				checkpoint(State.READ_HEADER);
-				// send message upstream
-				EslMessage decodedMessage = currentMessage;
-				currentMessage = null;
+			case READ_BODY:
+				readBody(buffer, out);
+				return;
 
-				out.add(decodedMessage);
-				break;
+			case STREAM_BODY:
+				streamBody(buffer, out);
+				return;
 
 			default:
 				throw new Error("Illegal state: [" + state + ']');
 		}
 	}
 
-	private String readToLineFeedOrFail(ByteBuf buffer, int maxLineLegth) throws TooLongFrameException {
-		StringBuilder sb = new StringBuilder(64);
+	/**
+	 * Reads the content-length specified, once all of it is available.
+	 */
+	private void readBody(ByteBuf buffer, List<Object> out) {
+		final int frameLength = frameOffset + currentMessage.contentLength();
+		if (buffer.readableBytes() < frameLength) {
+			// wait for the rest of the body
+			return;
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("read [{}] body bytes", frameLength - frameOffset);
+		}
+		// end of message, send it upstream
+		out.add(completeMessage(buffer, frameLength, frameOffset));
+	}
+
+	/**
+	 * Indexes every complete header line available in the buffer, without consuming it.
+	 *
+	 * @return true once the blank line terminating the header block has been reached
+	 */
+	private boolean readHeaders(ByteBuf buffer) throws TooLongFrameException {
+		final int frameStart = buffer.readerIndex();
 		while (true) {
-			// this read might fail
-			byte nextByte = buffer.readByte();
-			if (nextByte == LF) {
-				return sb.toString();
-			} else {
-				// Abort decoding if the decoded line is too large.
-				if (sb.length() >= maxLineLegth) {
-					throw new TooLongFrameException(
-						"ESL header line is longer than " + maxLineLegth + " bytes.");
+			final int lineStart = frameStart + frameOffset;
+			final int lineEnd = buffer.forEachByte(lineStart, buffer.writerIndex() - lineStart, ByteProcessor.FIND_LF);
+			if (lineEnd < 0) {
+				// Abort decoding if the partial line is already too large.
+				checkHeaderLineLength(buffer.writerIndex() - lineStart);
+				return false;
+			}
+			checkHeaderLineLength(lineEnd - lineStart);
+			frameOffset = lineEnd + 1 - frameStart;
+			if (lineEnd == lineStart) {
+				return true;
+			}
+			// split the header line
+			HeaderParser.splitHeader(buffer, lineStart, lineEnd, headerBounds);
+			final int valueStart = headerBounds[2];
+			final int valueEnd = headerBounds[3];
+			Name headerName = Name.fromBytes(buffer, headerBounds[0], headerBounds[1]);
+			log.trace("read header [{}]", headerName);
+			if (headerName == null) {
+				if (treatUnknownHeadersAsBody) {
+					// cache this 'header' as a body line <-- useful for Outbound client mode
+					currentMessage.addBodyLine(lineStart - frameStart, lineEnd - frameStart);
+				} else {
+					throw new IllegalStateException("Unhandled ESL header [" +
+							Utf8.decode(buffer, headerBounds[0], headerBounds[1]) + ']');
 				}
-				sb.append((char) nextByte);
+			} else if (headerName == Name.CONTENT_LENGTH) {
+				currentMessage.setContentLength(parseContentLength(buffer, valueStart, valueEnd));
+			} else if (headerName == Name.CONTENT_TYPE) {
+				apiResponse = contentEquals(buffer, valueStart, valueEnd, EslHeaders.Value.API_RESPONSE);
 			}
+			currentMessage.addHeader(headerName, valueStart - frameStart, valueEnd - frameStart);
 		}
 	}
 
-	private String readLine(ByteBuf buffer, int maxLineLength) throws TooLongFrameException {
-		StringBuilder sb = new StringBuilder(64);
-		while (buffer.isReadable()) {
-			// this read should always succeed
-			byte nextByte = buffer.readByte();
-			if (nextByte == LF) {
-				return sb.toString();
-			} else {
-				// Abort decoding if the decoded line is too large.
-				if (sb.length() >= maxLineLength) {
-					throw new TooLongFrameException(
-						"ESL message line is longer than " + maxLineLength + " bytes.");
-				}
-				sb.append((char) nextByte);
+	private void checkHeaderLineLength(int length) throws TooLongFrameException {
+		if (length > maxHeaderSize) {
+			throw new TooLongFrameException(
+				"ESL header line is longer than " + maxHeaderSize + " bytes.");
+		}
+	}
+
+	private static int parseContentLength(ByteBuf buffer, int start, int end) {
+		if (start == end || end - start > 9) {
+			throw new NumberFormatException("Invalid Content-Length [" +
+					Utf8.decode(buffer, start, end) + ']');
+		}
+		int value = 0;
+		for (int i = start; i < end; i++) {
+			final byte digit = buffer.getByte(i);
+			if (digit < '0' || digit > '9') {
+				throw new NumberFormatException("Invalid Content-Length [" +
+						Utf8.decode(buffer, start, end) + ']');
 			}
+			value = value * 10 + digit - '0';
+		}
+		return value;
+	}
+
+	private static boolean contentEquals(ByteBuf buffer, int start, int end, String value) {
+		if (end - start != value.length()) {
+			return false;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			if (buffer.getByte(start + i) != value.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static IEslBodyConsumer bodyConsumer(ChannelHandlerContext ctx) {
+		final Supplier<IEslBodyConsumer> consumers = ctx.channel().attr(BODY_CONSUMERS).get();
+		return consumers == null ? null : consumers.get();
+	}
+
+	/**
+	 * Hands the available part of the body to the consumer, and sends the message upstream once the
+	 * whole body has been consumed.
+	 */
+	private void streamBody(ByteBuf buffer, List<Object> out) throws Exception {
+		final int length = Math.min(buffer.readableBytes(), bodyRemaining);
+		if (length > 0) {
+			bodyConsumer.onData(buffer.slice(buffer.readerIndex(), length));
+			buffer.skipBytes(length);
+			bodyRemaining -= length;
 		}
+		if (bodyRemaining == 0) {
+			bodyConsumer.onEnd();
+			bodyConsumer = null;
+			state = State.READ_HEADER;
+			out.add(currentMessage);
+			currentMessage = null;
+		}
+	}
+
+	/**
+	 * Cuts the complete frame from the buffer and attaches it to the current message.
+	 */
+	private EslMessage completeMessage(ByteBuf buffer, int frameLength, int bodyOffset) {
+		final ByteBuf frame = cut(buffer, frameLength);
+		state = State.READ_HEADER;
+		EslMessage decodedMessage = currentMessage;
+		currentMessage = null;
+		decodedMessage.setFrame(frame, bodyOffset);
+		return decodedMessage;
+	}
 
-		return sb.toString();
+	private ByteBuf cut(ByteBuf buffer, int length) {
+		final ByteBuf frame = retainFrames
+				? buffer.retainedSlice(buffer.readerIndex(), length)
+				: Unpooled.wrappedBuffer(ByteBufUtil.getBytes(buffer, buffer.readerIndex(), length));
+		buffer.skipBytes(length);
+		return frame;
 	}
 }
@@ -15,6 +15,9 @@
  */
 package org.freeswitch.esl.client.transport.message;
 
+import io.netty.buffer.ByteBuf;
+import org.freeswitch.esl.client.transport.HeaderDictionary;
+
 /**
  * Container class for enumeration of ESL message header names, and some commonly used
  * header string values.
@@ -26,11 +29,6 @@ public class EslHeaders {
 	 * Note this enum will need to be kept in synch with any new headers introduced on the server side.
 	 */
 	public enum Name {
-		/*
-				*  Minor optimization - put most often used headers at the top for fastest resolution
-				*  in static fromLiteral().
-				*/
-
 		/**
 		 * {@code "Content-Type"}
 		 */
@@ -56,6 +54,17 @@ public class EslHeaders {
 		 */
 		Control("Control"),;
 
+		private static final Name[] NAMES = values();
+		private static final HeaderDictionary DICTIONARY;
+
+		static {
+			final String[] literals = new String[NAMES.length];
+			for (Name name : NAMES) {
+				literals[name.ordinal()] = name.literal;
+			}
+			DICTIONARY = HeaderDictionary.of(literals);
+		}
+
 		private final String literal;
 
 		Name(String literal) {
@@ -67,13 +76,21 @@ public class EslHeaders {
 		}
 
 		public static Name fromLiteral(String literal) {
-			for (Name name : values()) {
-				if (name.literal.equalsIgnoreCase(literal)) {
-					return name;
-				}
+			if (literal == null) {
+				return null;
 			}
+			final int index = DICTIONARY.indexOfIgnoreCase(literal);
+			return index < 0 ? null : NAMES[index];
+		}
 
-			return null;
+		/**
+		 * Resolves a header name straight from the bytes of a header line, ignoring case.
+		 *
+		 * @return the header name, or null if it is not a standard ESL header
+		 */
+		static Name fromBytes(ByteBuf buffer, int start, int end) {
+			final int index = DICTIONARY.indexOfIgnoreCase(buffer, start, end);
+			return index < 0 ? null : NAMES[index];
 		}
 	}
 
@@ -108,6 +125,10 @@ public class EslHeaders {
 		 * {@code "text/event-xml"}
 		 */
 		public static final String TEXT_EVENT_XML = "text/event-xml";
+		/**
+		 * {@code "text/event-json"}
+		 */
+		public static final String TEXT_EVENT_JSON = "text/event-json";
 		/**
 		 * {@code "text/disconnect-notice"}
 		 */
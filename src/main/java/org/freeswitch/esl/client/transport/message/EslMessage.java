@@ -15,11 +15,15 @@
  */
 package org.freeswitch.esl.client.transport.message;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.freeswitch.esl.client.transport.HeaderDictionary;
+import org.freeswitch.esl.client.transport.Utf8;
 import org.freeswitch.esl.client.transport.message.EslHeaders.Name;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.freeswitch.esl.client.transport.message.EslHeaders.Value;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,16 +40,61 @@ import static com.google.common.base.MoreObjects.toStringHelper;
  * is always expected to have a "Content-Type" header
  * <p/>
  * Any Body lines are cached in a list.
+ * <p/>
+ * The message keeps the raw bytes of its frame and an index of where each header value and body
+ * line lies. A header value or the body lines are only turned into strings the first time they are
+ * asked for. When the {@link EslFrameDecoder} is configured to retain frames, the bytes are a
+ * reference counted slice of the inbound buffer, and the message is only readable until it is
+ * released (see {@link #copy()}).
  *
  * @see EslHeaders.Name
  */
 public class EslMessage {
-	private final Logger log = LoggerFactory.getLogger(this.getClass());
+	private static final Name[] NAMES = Name.values();
+	/**
+	 * Index slot of header lines which do not match any {@link Name}, in outbound mode.
+	 */
+	private static final int UNKNOWN_HEADER = NAMES.length;
+	private static final int[] NO_LINES = new int[0];
+	/**
+	 * Content types known in advance, so that their header values need not be created per message.
+	 */
+	private static final HeaderDictionary CONTENT_TYPES = HeaderDictionary.of(
+			Value.AUTH_REQUEST, Value.API_RESPONSE, Value.COMMAND_REPLY, Value.TEXT_EVENT_PLAIN,
+			Value.TEXT_EVENT_XML, Value.TEXT_EVENT_JSON, Value.TEXT_DISCONNECT_NOTICE, "text/rude-rejection", "log/data");
 
-	private final Map<Name, String> headers = new HashMap<>();
-	private final List<String> body = new ArrayList<>();
+	// [start, end) offsets into the frame of each header value, two slots per Name ordinal
+	private final int[] headerBounds;
+	private final String[] headerValues = new String[NAMES.length + 1];
+	// [start, end) offsets of header lines to be treated as body lines
+	private int[] headerLineBounds = NO_LINES;
+	private int headerLineCount;
 
-	private Integer contentLength = null;
+	private ByteBuf frame = Unpooled.EMPTY_BUFFER;
+	private int bodyOffset = -1;
+
+	// memoised on first access, possibly by another thread than the decoder's: volatile, so that
+	// a thread seeing a map or list also sees its contents
+	private volatile Map<Name, String> headers;
+	private volatile List<String> body;
+	private int contentLength = -1;
+
+	public EslMessage() {
+		headerBounds = new int[(NAMES.length + 1) * 2];
+		Arrays.fill(headerBounds, -1);
+	}
+
+	/**
+	 * Copy constructor, the index is copied as the source may be recycled once released.
+	 */
+	EslMessage(EslMessage source, ByteBuf frame) {
+		this.headerBounds = source.headerBounds.clone();
+		this.headerLineBounds = Arrays.copyOf(source.headerLineBounds, source.headerLineCount * 2);
+		this.headerLineCount = source.headerLineCount;
+		this.bodyOffset = source.bodyOffset;
+		this.contentLength = source.contentLength;
+		this.frame = frame;
+	}
 
 	/**
 	 * All the received message headers in a map keyed by {@link EslHeaders.Name}. The string mapped value
@@ -54,6 +103,16 @@ public class EslMessage {
 	 * @return map of header values
 	 */
 	public Map<Name, String> getHeaders() {
+		Map<Name, String> headers = this.headers;
+		if (headers == null) {
+			headers = new HashMap<>();
+			for (int slot = 0; slot <= UNKNOWN_HEADER; slot++) {
+				if (headerBounds[slot * 2] >= 0) {
+					headers.put(slot == UNKNOWN_HEADER ? null : NAMES[slot], headerValue(slot));
+				}
+			}
+			this.headers = headers;
+		}
 		return headers;
 	}
 
@@ -64,7 +123,11 @@ public class EslMessage {
 	 * @return true if an only if there is a header entry with the supplied header name
 	 */
 	public boolean hasHeader(Name headerName) {
-		return headers.containsKey(headerName);
+		final Map<Name, String> headers = this.headers;
+		if (headers != null) {
+			return headers.containsKey(headerName);
+		}
+		return headerBounds[slot(headerName) * 2] >= 0;
 	}
 
 	/**
@@ -74,7 +137,12 @@ public class EslMessage {
 	 * @return same as getHeaders().get( headerName )
 	 */
 	public String getHeaderValue(Name headerName) {
-		return headers.get(headerName);
+		final Map<Name, String> headers = this.headers;
+		if (headers != null) {
+			return headers.get(headerName);
+		}
+		final int slot = slot(headerName);
+		return headerBounds[slot * 2] >= 0 ? headerValue(slot) : null;
 	}
 
 	/**
@@ -83,7 +151,7 @@ public class EslMessage {
 	 * @return true if and only if a header exists with name "Content-Length"
 	 */
 	public boolean hasContentLength() {
-		return headers.containsKey(Name.CONTENT_LENGTH);
+		return hasHeader(Name.CONTENT_LENGTH);
 	}
 
 	/**
@@ -92,13 +160,10 @@ public class EslMessage {
 	 * @return integer value of header with name "Content-Length"
 	 */
 	public Integer getContentLength() {
-		if (contentLength != null) {
-			return contentLength;
+		if (contentLength < 0 && hasContentLength()) {
+			contentLength = Integer.parseInt(getHeaderValue(Name.CONTENT_LENGTH));
 		}
-		if (hasContentLength()) {
-			contentLength = Integer.valueOf(headers.get(Name.CONTENT_LENGTH));
-		}
-		return contentLength;
+		return contentLength < 0 ? null : contentLength;
 	}
 
 	/**
@@ -107,7 +172,7 @@ public class EslMessage {
 	 * @return header value of header with name "Content-Type"
 	 */
 	public String getContentType() {
-		return headers.get(Name.CONTENT_TYPE);
+		return getHeaderValue(Name.CONTENT_TYPE);
 	}
 
 	/**
@@ -116,25 +181,42 @@ public class EslMessage {
 	 * @return list with a string for each line received, may be an empty list
 	 */
 	public List<String> getBodyLines() {
+		List<String> body = this.body;
+		if (body == null) {
+			final List<String> lines = new ArrayList<>();
+			for (int i = 0; i < headerLineCount; i++) {
+				lines.add(decode(headerLineBounds[i * 2], headerLineBounds[i * 2 + 1]));
+			}
+			if (bodyOffset >= 0) {
+				// most bodies are line based, so split on LF
+				final int bodyEnd = frame.writerIndex();
+				int lineStart = bodyOffset;
+				while (lineStart < bodyEnd) {
+					int lineEnd = frame.indexOf(lineStart, bodyEnd, EslFrameDecoder.LF);
+					if (lineEnd < 0) {
+						lineEnd = bodyEnd;
+					}
+					lines.add(decode(lineStart, lineEnd));
+					lineStart = lineEnd + 1;
+				}
+			}
+			this.body = body = lines;
+		}
 		return body;
 	}
 
 	/**
-	 * Used by the {@link EslFrameDecoder}.
-	 */
-	void addHeader(Name name, String value) {
-		log.debug("adding header [{}] [{}]", name, value);
-		headers.put(name, value);
-	}
-
-	/**
-	 * Used by the {@link EslFrameDecoder}
+	 * The raw bytes of the message body, that is the content-length bytes following the header
+	 * block. The returned buffer shares the bytes of this message: it must not be released, and is
+	 * only readable as long as this message is.
+	 *
+	 * @return the body bytes, may be an empty buffer
 	 */
-	void addBodyLine(String line) {
-		if (line == null) {
-			return;
+	public ByteBuf getBodyBytes() {
+		if (bodyOffset < 0) {
+			return Unpooled.EMPTY_BUFFER;
 		}
-		body.add(line);
+		return frame.slice(bodyOffset, frame.writerIndex() - bodyOffset);
 	}
 
 	/**
@@ -146,12 +228,139 @@ public class EslMessage {
 		return getHeaderValue(Name.REPLY_TEXT).trim().equals("+OK");
 	}
 
+	/**
+	 * Creates a copy of this message whose bytes are held on the heap, so it stays readable
+	 * independently of the lifecycle of the inbound buffer this message was decoded from.
+	 *
+	 * @return an equivalent message which does not need to be released
+	 */
+	public EslMessage copy() {
+		return new EslMessage(this, Unpooled.copiedBuffer(frame));
+	}
+
+	/**
+	 * The raw bytes of the frame this message was decoded from, used by {@link #copy()}.
+	 */
+	ByteBuf frame() {
+		return frame;
+	}
+
+	/**
+	 * Used by the {@link EslFrameDecoder}, offsets are relative to the start of the frame.
+	 */
+	void addHeader(Name name, int valueStart, int valueEnd) {
+		final int slot = slot(name);
+		headerBounds[slot * 2] = valueStart;
+		headerBounds[slot * 2 + 1] = valueEnd;
+	}
+
+	/**
+	 * Used by the {@link EslFrameDecoder}, offsets are relative to the start of the frame.
+	 */
+	void addBodyLine(int lineStart, int lineEnd) {
+		if (headerLineCount * 2 == headerLineBounds.length) {
+			headerLineBounds = Arrays.copyOf(headerLineBounds, Math.max(16, headerLineBounds.length * 2));
+		}
+		headerLineBounds[headerLineCount * 2] = lineStart;
+		headerLineBounds[headerLineCount * 2 + 1] = lineEnd;
+		headerLineCount++;
+	}
+
+	/**
+	 * Used by the {@link EslFrameDecoder}, which has already parsed the value of the header.
+	 */
+	void setContentLength(int contentLength) {
+		this.contentLength = contentLength;
+	}
+
+	/**
+	 * Used by the {@link EslFrameDecoder}, same as {@link #getContentLength()} without boxing.
+	 */
+	int contentLength() {
+		return contentLength;
+	}
+
+	/**
+	 * Used by the {@link EslFrameDecoder} once the whole frame has been received.
+	 *
+	 * @param frame      the bytes of the frame, starting with the first header line
+	 * @param bodyOffset offset of the body in the frame, or -1 if there is no body
+	 */
+	void setFrame(ByteBuf frame, int bodyOffset) {
+		this.frame = frame;
+		this.bodyOffset = bodyOffset;
+	}
+
+	/**
+	 * Used by {@link RetainedEslMessage} to clear this message before it is reused.
+	 */
+	void reset() {
+		Arrays.fill(headerBounds, -1);
+		Arrays.fill(headerValues, null);
+		headerLineCount = 0;
+		frame = Unpooled.EMPTY_BUFFER;
+		bodyOffset = -1;
+		headers = null;
+		body = null;
+		contentLength = -1;
+	}
+
+	private static int slot(Name name) {
+		return name == null ? UNKNOWN_HEADER : name.ordinal();
+	}
+
+	private String headerValue(int slot) {
+		String value = headerValues[slot];
+		if (value == null) {
+			final int start = headerBounds[slot * 2];
+			final int end = headerBounds[slot * 2 + 1];
+			final int known = slot == Name.CONTENT_TYPE.ordinal() ? CONTENT_TYPES.indexOf(frame, start, end) : -1;
+			value = known >= 0 ? CONTENT_TYPES.name(known) : decode(start, end);
+			headerValues[slot] = value;
+		}
+		return value;
+	}
+
+	private String decode(int start, int end) {
+		return Utf8.decode(frame, start, end);
+	}
+
+	private int headerCount() {
+		final Map<Name, String> headers = this.headers;
+		if (headers != null) {
+			return headers.size();
+		}
+		int count = 0;
+		for (int slot = 0; slot <= UNKNOWN_HEADER; slot++) {
+			if (headerBounds[slot * 2] >= 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private int bodyLineCount() {
+		final List<String> body = this.body;
+		if (body != null) {
+			return body.size();
+		}
+		int count = headerLineCount;
+		if (bodyOffset >= 0) {
+			final int bodyEnd = frame.writerIndex();
+			for (int lineStart = bodyOffset; lineStart < bodyEnd; count++) {
+				final int lineEnd = frame.indexOf(lineStart, bodyEnd, EslFrameDecoder.LF);
+				lineStart = lineEnd < 0 ? bodyEnd : lineEnd + 1;
+			}
+		}
+		return count;
+	}
+
 	@Override
 	public String toString() {
 		return toStringHelper(this)
 				.add("contentType", getContentType())
-				.add("headers", headers.size())
-				.add("body", body.size() + " lines")
+				.add("headers", headerCount())
+				.add("body", bodyLineCount() + " lines")
 				.toString();
 	}
 
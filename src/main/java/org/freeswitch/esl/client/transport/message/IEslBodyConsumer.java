@@ -0,0 +1,44 @@
+package org.freeswitch.esl.client.transport.message;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.function.Consumer;
+
+/**
+ * Receives the body of an {@code api/response} message while it arrives, instead of the body being
+ * buffered in full and split into {@link EslMessage#getBodyLines() body lines}. Memory is then
+ * bounded by what the socket delivers at once rather than by the size of the response, which
+ * matters for commands such as {@code show channels} on a busy server.
+ * <p/>
+ * Both methods are called on the IO thread of the connection, and must neither block nor take
+ * long: no other message of the connection is read meanwhile.
+ */
+public interface IEslBodyConsumer {
+
+	/**
+	 * Receives the next part of the body.
+	 *
+	 * @param data the bytes received, only readable during this call
+	 * @throws Exception to abort the consumption; the rest of the body is then skipped, and the
+	 *                   command fails with this exception
+	 */
+	void onData(ByteBuf data) throws Exception;
+
+	/**
+	 * Called once the whole body has been received, before the command completes.
+	 *
+	 * @throws Exception to fail the command
+	 */
+	default void onEnd() throws Exception {
+	}
+
+	/**
+	 * @param lines receiving each line of the body in turn, without its line feed, as
+	 *              {@link EslMessage#getBodyLines()} would list them
+	 * @return a consumer splitting the body into lines, which only buffers a line split between
+	 * two parts of the body
+	 */
+	static IEslBodyConsumer lines(Consumer<String> lines) {
+		return new LineBodyConsumer(lines);
+	}
+}
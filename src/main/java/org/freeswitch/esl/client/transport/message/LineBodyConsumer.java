@@ -0,0 +1,64 @@
+package org.freeswitch.esl.client.transport.message;
+
+import io.netty.buffer.ByteBuf;
+import org.freeswitch.esl.client.transport.Utf8;
+
+import java.util.function.Consumer;
+
+/**
+ * Splits a streamed body into lines on LF, as {@link EslMessage#getBodyLines()} does. A line lying
+ * within one part of the body is decoded straight from it; only a line split between two parts is
+ * copied, into a buffer which grows to the longest such line.
+ */
+final class LineBodyConsumer implements IEslBodyConsumer {
+	private final Consumer<String> lines;
+	private byte[] partial = new byte[128];
+	private int partialLength;
+
+	LineBodyConsumer(Consumer<String> lines) {
+		this.lines = lines;
+	}
+
+	@Override
+	public void onData(ByteBuf data) {
+		int lineStart = data.readerIndex();
+		final int end = data.writerIndex();
+		while (lineStart < end) {
+			final int lineEnd = data.indexOf(lineStart, end, EslFrameDecoder.LF);
+			if (lineEnd < 0) {
+				append(data, lineStart, end);
+				return;
+			}
+			if (partialLength == 0) {
+				lines.accept(Utf8.decode(data, lineStart, lineEnd));
+			} else {
+				append(data, lineStart, lineEnd);
+				flushPartial();
+			}
+			lineStart = lineEnd + 1;
+		}
+	}
+
+	@Override
+	public void onEnd() {
+		if (partialLength > 0) {
+			flushPartial();
+		}
+	}
+
+	private void append(ByteBuf data, int start, int end) {
+		final int length = end - start;
+		if (partial.length < partialLength + length) {
+			final byte[] grown = new byte[Math.max(partialLength + length, partial.length * 2)];
+			System.arraycopy(partial, 0, grown, 0, partialLength);
+			partial = grown;
+		}
+		data.getBytes(start, partial, partialLength, length);
+		partialLength += length;
+	}
+
+	private void flushPartial() {
+		lines.accept(Utf8.decode(partial, 0, partialLength));
+		partialLength = 0;
+	}
+}
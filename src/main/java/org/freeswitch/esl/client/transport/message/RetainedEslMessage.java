@@ -0,0 +1,79 @@
+package org.freeswitch.esl.client.transport.message;
+
+import io.netty.util.Recycler;
+import io.netty.util.ReferenceCounted;
+
+/**
+ * An {@link EslMessage} whose frame is a retained slice of the inbound buffer, produced by an
+ * {@link EslFrameDecoder} configured to retain frames.
+ * <p/>
+ * The reference count is the one of the frame. The message is released by the last handler in
+ * the pipeline once it has been processed; anything that needs it afterwards must either take a
+ * {@link #copy()} first or {@link #retain()} it. Once released, the message is recycled and will
+ * be reused for a later frame.
+ */
+class RetainedEslMessage extends EslMessage implements ReferenceCounted {
+	private static final Recycler<RetainedEslMessage> RECYCLER = new Recycler<RetainedEslMessage>() {
+		@Override
+		protected RetainedEslMessage newObject(Handle<RetainedEslMessage> handle) {
+			return new RetainedEslMessage(handle);
+		}
+	};
+
+	private final Recycler.Handle<RetainedEslMessage> handle;
+
+	private RetainedEslMessage(Recycler.Handle<RetainedEslMessage> handle) {
+		this.handle = handle;
+	}
+
+	static RetainedEslMessage newInstance() {
+		return RECYCLER.get();
+	}
+
+	@Override
+	public int refCnt() {
+		return frame().refCnt();
+	}
+
+	@Override
+	public RetainedEslMessage retain() {
+		frame().retain();
+		return this;
+	}
+
+	@Override
+	public RetainedEslMessage retain(int increment) {
+		frame().retain(increment);
+		return this;
+	}
+
+	@Override
+	public RetainedEslMessage touch() {
+		frame().touch();
+		return this;
+	}
+
+	@Override
+	public RetainedEslMessage touch(Object hint) {
+		frame().touch(hint);
+		return this;
+	}
+
+	@Override
+	public boolean release() {
+		return recycleIf(frame().release());
+	}
+
+	@Override
+	public boolean release(int decrement) {
+		return recycleIf(frame().release(decrement));
+	}
+
+	private boolean recycleIf(boolean deallocated) {
+		if (deallocated) {
+			reset();
+			handle.recycle(this);
+		}
+		return deallocated;
+	}
+}
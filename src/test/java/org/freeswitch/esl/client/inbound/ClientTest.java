@@ -0,0 +1,168 @@
+package org.freeswitch.esl.client.inbound;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.LineBasedFrameDecoder;
+import io.netty.util.CharsetUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ClientTest
+{
+    private EventLoopGroup group;
+    private Channel serverChannel;
+    private volatile boolean requestAuth = true;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        group = new NioEventLoopGroup( 1 );
+        serverChannel = new ServerBootstrap()
+                .group( group )
+                .channel( NioServerSocketChannel.class )
+                .childHandler( new ChannelInitializer<SocketChannel>()
+                {
+                    @Override
+                    protected void initChannel( SocketChannel ch )
+                    {
+                        ch.pipeline().addLast( new LineBasedFrameDecoder( 8192 ), new Authenticator() );
+                    }
+                } )
+                .bind( new InetSocketAddress( "127.0.0.1", 0 ) ).sync().channel();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        serverChannel.close().sync();
+        group.shutdownGracefully( 0, 1, TimeUnit.SECONDS ).sync();
+    }
+
+    @Test
+    public void connectAsyncCompletesOnAuthReply() throws Exception
+    {
+        Client client = new Client();
+
+        assertSame( client, client.connectAsync( serverChannel.localAddress(), "ClueCon", 5 )
+                .get( 5, TimeUnit.SECONDS ) );
+        assertTrue( client.canSend() );
+        client.close();
+    }
+
+    @Test
+    public void connectAsyncCompletesOffTheIoThread() throws Exception
+    {
+        Client client = new Client();
+
+        String thread = client.connectAsync( serverChannel.localAddress(), "ClueCon", 5 )
+                .thenApply( connected -> Thread.currentThread().getName() )
+                .get( 5, TimeUnit.SECONDS );
+        assertFalse( thread, thread.startsWith( "nioEventLoopGroup" ) );
+        client.close();
+    }
+
+    @Test
+    public void wrongPasswordFails() throws Exception
+    {
+        assertFailure( "Authentication failed: -ERR invalid", "secret", 5 );
+    }
+
+    @Test
+    public void missingAuthRequestTimesOut() throws Exception
+    {
+        requestAuth = false;
+
+        assertFailure( "Timeout connecting to " + serverChannel.localAddress(), "ClueCon", 1 );
+    }
+
+    @Test
+    public void blockingConnectThrowsFailure() throws Exception
+    {
+        try
+        {
+            new Client().connect( serverChannel.localAddress(), "secret", 5 );
+            fail( "connected" );
+        }
+        catch ( InboundConnectionFailure e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().startsWith( "Authentication failed" ) );
+        }
+    }
+
+    private void assertFailure( String message, String password, int timeoutSeconds ) throws Exception
+    {
+        try
+        {
+            new Client().connectAsync( serverChannel.localAddress(), password, timeoutSeconds )
+                    .get( 5, TimeUnit.SECONDS );
+            fail( "connected" );
+        }
+        catch ( ExecutionException e )
+        {
+            assertTrue( e.getCause() instanceof InboundConnectionFailure );
+            assertEquals( message, e.getCause().getMessage() );
+        }
+    }
+
+    /**
+     * Requests authentication as FreeSWITCH does, accepting the password {@code ClueCon} and
+     * closing the connection after rejecting any other.
+     */
+    private class Authenticator extends SimpleChannelInboundHandler<ByteBuf>
+    {
+        private String command;
+
+        @Override
+        public void channelActive( ChannelHandlerContext ctx )
+        {
+            if ( requestAuth )
+            {
+                ctx.writeAndFlush( reply( "Content-Type: auth/request\n\n" ) );
+            }
+        }
+
+        @Override
+        protected void channelRead0( ChannelHandlerContext ctx, ByteBuf line )
+        {
+            if ( line.isReadable() )
+            {
+                command = line.toString( CharsetUtil.UTF_8 );
+            }
+            else if ( command.equals( "auth ClueCon" ) )
+            {
+                ctx.writeAndFlush( reply( "Content-Type: command/reply\nReply-Text: +OK accepted\n\n" ) );
+            }
+            else
+            {
+                ctx.writeAndFlush( reply( "Content-Type: command/reply\nReply-Text: -ERR invalid\n\n" ) )
+                        .addListener( ChannelFutureListener.CLOSE );
+            }
+        }
+
+        private ByteBuf reply( String text )
+        {
+            return Unpooled.copiedBuffer( text, CharsetUtil.UTF_8 );
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.freeswitch.esl.client.inbound;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.freeswitch.esl.client.inbound.EventFilter.header;
+
+/**
+ * Cost of matching a CHANNEL_STATE event against the filters of a number of subscriptions, each on
+ * the channel state and the tenant of the call, with an {@link EventFilterIndex} and by testing each
+ * filter in turn.
+ * <p/>
+ * Run with:
+ * <pre>
+ *   java -cp &lt;test classpath&gt; org.openjdk.jmh.Main EventFilterBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventFilterBenchmark {
+
+	@Param({"10", "1000", "10000"})
+	public int subscriptions;
+
+	private List<EventFilter> filters;
+	private EventFilterIndex<Integer> index;
+	private EslEvent event;
+
+	@Setup
+	public void setup() {
+		filters = new ArrayList<>();
+		final List<Integer> ids = new ArrayList<>();
+		for (int i = 0; i < subscriptions; i++) {
+			filters.add(header("Channel-State").is(i % 2 == 0 ? "CS_EXECUTE" : "CS_HANGUP")
+					.and(header("variable_tenant_id").in("tenant-" + i, "tenant-" + (i + 1))));
+			ids.add(i);
+		}
+		index = new EventFilterIndex<>(filters, ids);
+		final String body = "Event-Name: CHANNEL_STATE\nChannel-State: CS_EXECUTE\nvariable_tenant_id: tenant-"
+				+ subscriptions / 2 + "\n\n";
+		final EmbeddedChannel channel = new EmbeddedChannel(new EslFrameDecoder(8192));
+		channel.writeInbound(Unpooled.copiedBuffer("Content-Length: " + body.length()
+				+ "\nContent-Type: text/event-plain\n\n" + body, StandardCharsets.UTF_8));
+		channel.finish();
+		event = new EslEvent((EslMessage) channel.readInbound());
+	}
+
+	@Benchmark
+	public void index(Blackhole blackhole) {
+		blackhole.consume(index.match(event));
+	}
+
+	@Benchmark
+	public void eachFilter(Blackhole blackhole) {
+		final List<Integer> matched = new ArrayList<>();
+		for (int i = 0; i < filters.size(); i++) {
+			if (filters.get(i).matches(event)) {
+				matched.add(i);
+			}
+		}
+		blackhole.consume(matched);
+	}
+}
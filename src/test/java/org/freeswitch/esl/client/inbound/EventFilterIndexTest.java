@@ -0,0 +1,121 @@
+package org.freeswitch.esl.client.inbound;
+
+import static org.freeswitch.esl.client.inbound.EventFilter.eventName;
+import static org.freeswitch.esl.client.inbound.EventFilter.header;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.junit.Test;
+
+public class EventFilterIndexTest
+{
+    private static final EventFilter EXECUTING_ACME = header( "Channel-State" ).is( "CS_EXECUTE" )
+            .and( header( "variable_tenant_id" ).in( "acme", "globex" ) );
+
+    @Test
+    public void filterMatchesOnItsOwn()
+    {
+        assertTrue( EXECUTING_ACME.matches( event( "Channel-State: CS_EXECUTE\nvariable_tenant_id: acme" ) ) );
+        assertFalse( EXECUTING_ACME.matches( event( "Channel-State: CS_ROUTING\nvariable_tenant_id: acme" ) ) );
+        assertFalse( EXECUTING_ACME.matches( event( "Channel-State: CS_EXECUTE" ) ) );
+        assertEquals( "Channel-State == CS_EXECUTE && variable_tenant_id in [acme, globex]",
+                EXECUTING_ACME.toString() );
+    }
+
+    @Test
+    public void eventMatchedAgainstSubscriptionsInTheirOrder()
+    {
+        EventFilterIndex<String> index = index(
+                "executing acme", EXECUTING_ACME,
+                "answer", eventName( "CHANNEL_ANSWER" ),
+                "not initech", header( "variable_tenant_id" ).isNot( "initech" ),
+                "acme or hangup", header( "variable_tenant_id" ).is( "acme" ).or( eventName( "CHANNEL_HANGUP" ) ),
+                "with uuid", header( "Unique-ID" ).present() );
+
+        assertEquals( Arrays.asList( "executing acme", "not initech", "acme or hangup" ),
+                index.match( event( "Event-Name: CHANNEL_STATE\nChannel-State: CS_EXECUTE\nvariable_tenant_id: acme" ) ) );
+        assertEquals( Arrays.asList( "answer", "not initech", "acme or hangup", "with uuid" ),
+                index.match( event( "Event-Name: CHANNEL_ANSWER\nvariable_tenant_id: acme\nUnique-ID: 1" ) ) );
+        assertEquals( Arrays.asList( "acme or hangup" ),
+                index.match( event( "Event-Name: CHANNEL_HANGUP\nvariable_tenant_id: initech" ) ) );
+        assertEquals( Collections.singletonList( "not initech" ), index.match( event( "Event-Name: HEARTBEAT" ) ) );
+    }
+
+    @Test
+    public void indexMatchesLikeEachFilter()
+    {
+        List<EventFilter> filters = new ArrayList<>();
+        List<Integer> subscriptions = new ArrayList<>();
+        for ( int i = 0; i < 2000; i++ )
+        {
+            EventFilter tenant = header( "variable_tenant_id" ).in( "tenant-" + i, "tenant-" + ( i + 1 ) );
+            filters.add( i % 3 == 0 ? tenant.and( header( "Channel-State" ).is( "CS_EXECUTE" ) )
+                    : i % 3 == 1 ? tenant.and( eventName( "CHANNEL_STATE" ).or( eventName( "CHANNEL_ANSWER" ) ) )
+                    : tenant.and( header( "Channel-State" ).isNot( "CS_HANGUP" ) ) );
+            subscriptions.add( i );
+        }
+        EventFilterIndex<Integer> index = new EventFilterIndex<>( filters, subscriptions );
+
+        for ( String state : Arrays.asList( "CS_EXECUTE", "CS_HANGUP" ) )
+        {
+            for ( int tenant = 0; tenant < 2001; tenant += 7 )
+            {
+                EslEvent event = event( "Event-Name: CHANNEL_STATE\nChannel-State: " + state
+                        + "\nvariable_tenant_id: tenant-" + tenant );
+                List<Integer> expected = new ArrayList<>();
+                for ( int i = 0; i < filters.size(); i++ )
+                {
+                    if ( filters.get( i ).matches( event ) )
+                    {
+                        expected.add( i );
+                    }
+                }
+                assertEquals( expected, index.match( event ) );
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void filterWithTooManyAlternativesRejected()
+    {
+        EventFilter filter = eventName( "A" ).or( eventName( "B" ) );
+        for ( int i = 0; i < 8; i++ )
+        {
+            filter = filter.and( eventName( "A" ).or( eventName( "B" ) ) );
+        }
+    }
+
+    private static EventFilterIndex<String> index( Object... subscriptionsAndFilters )
+    {
+        List<EventFilter> filters = new ArrayList<>();
+        List<String> subscriptions = new ArrayList<>();
+        for ( int i = 0; i < subscriptionsAndFilters.length; i += 2 )
+        {
+            subscriptions.add( (String) subscriptionsAndFilters[i] );
+            filters.add( (EventFilter) subscriptionsAndFilters[i + 1] );
+        }
+        return new EventFilterIndex<>( filters, subscriptions );
+    }
+
+    private static EslEvent event( String headers )
+    {
+        String body = headers + "\n\n";
+        EmbeddedChannel channel = new EmbeddedChannel( new EslFrameDecoder( 8192 ) );
+        channel.writeInbound( Unpooled.copiedBuffer( "Content-Length: " + body.length()
+                + "\nContent-Type: text/event-plain\n\n" + body, StandardCharsets.UTF_8 ) );
+        channel.finish();
+        return new EslEvent( (EslMessage) channel.readInbound() );
+    }
+}
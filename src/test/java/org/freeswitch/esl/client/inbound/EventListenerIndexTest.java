@@ -0,0 +1,152 @@
+package org.freeswitch.esl.client.inbound;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.freeswitch.esl.client.internal.Context;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.junit.Test;
+
+public class EventListenerIndexTest
+{
+    private final EventListenerIndex index = new EventListenerIndex();
+    private final List<String> delivered = new ArrayList<>();
+
+    @Test
+    public void eventWithoutListenersNotRouted()
+    {
+        index.addForName( "CHANNEL_ANSWER", listener( "answer" ) );
+
+        assertNull( index.route( event( "Event-Name: HEARTBEAT" ) ) );
+    }
+
+    @Test
+    public void eventDeliveredToListenersOfItsName()
+    {
+        index.add( listener( "any" ) );
+        index.addForName( "CHANNEL_ANSWER", listener( "answer" ) );
+        index.addForName( "CHANNEL_HANGUP", listener( "hangup" ) );
+
+        assertEquals( Arrays.asList( "any", "answer" ), deliver( event( "Event-Name: CHANNEL_ANSWER" ) ) );
+        assertEquals( Collections.singletonList( "any" ), deliver( event( "Event-Name: HEARTBEAT" ) ) );
+    }
+
+    @Test
+    public void customEventDeliveredToListenersOfItsSubclass()
+    {
+        index.addForSubclass( "conference::maintenance", listener( "exact" ) );
+        index.addForSubclass( "conference::*", listener( "conference" ) );
+        index.addForSubclass( "sofia::*", listener( "sofia" ) );
+        index.addForName( "CUSTOM", listener( "custom" ) );
+
+        EslEvent conference = event( "Event-Name: CUSTOM\nEvent-Subclass: conference::maintenance" );
+        assertEquals( Arrays.asList( "exact", "conference", "custom" ), deliver( conference ) );
+        // routed again from the cached route of the subclass
+        assertEquals( Arrays.asList( "exact", "conference", "custom" ), deliver( conference ) );
+        assertEquals( Arrays.asList( "sofia", "custom" ),
+                deliver( event( "Event-Name: CUSTOM\nEvent-Subclass: sofia::register" ) ) );
+        assertEquals( Collections.singletonList( "custom" ),
+                deliver( event( "Event-Name: CUSTOM\nEvent-Subclass: callcenter::info" ) ) );
+    }
+
+    @Test
+    public void eventDeliveredToListenersOfMatchingPredicates()
+    {
+        index.addForPredicate( event -> "CS_EXECUTE".equals( event.getEventHeaders().get( "Channel-State" ) ),
+                listener( "execute" ) );
+        index.addForName( "CHANNEL_STATE", listener( "state" ) );
+        index.addForPredicate( event -> { throw new IllegalStateException( "failing predicate" ); },
+                listener( "failing" ) );
+
+        assertEquals( Arrays.asList( "execute", "state" ),
+                deliver( event( "Event-Name: CHANNEL_STATE\nChannel-State: CS_EXECUTE" ) ) );
+        assertEquals( Collections.singletonList( "state" ),
+                deliver( event( "Event-Name: CHANNEL_STATE\nChannel-State: CS_ROUTING" ) ) );
+    }
+
+    @Test
+    public void eventDeliveredToListenersOfMatchingFilters()
+    {
+        index.add( listener( "any" ) );
+        index.addForFilter( EventFilter.header( "variable_tenant_id" ).in( "acme", "globex" ), listener( "tenant" ) );
+        index.addForPredicate( event -> event.getEventHeaders().containsKey( "Unique-ID" ), listener( "call" ) );
+        index.addForFilter( EventFilter.eventName( "CHANNEL_ANSWER" ), listener( "answer" ) );
+
+        assertEquals( Arrays.asList( "any", "tenant", "call", "answer" ),
+                deliver( event( "Event-Name: CHANNEL_ANSWER\nUnique-ID: 1\nvariable_tenant_id: acme" ) ) );
+        assertEquals( Arrays.asList( "any", "answer" ), deliver( event( "Event-Name: CHANNEL_ANSWER" ) ) );
+    }
+
+    @Test
+    public void listenerAddedBetweenEventsDelivered()
+    {
+        index.addForName( "CHANNEL_ANSWER", listener( "answer" ) );
+        assertEquals( Collections.singletonList( "answer" ), deliver( event( "Event-Name: CHANNEL_ANSWER" ) ) );
+
+        index.addForFilter( EventFilter.eventName( "CHANNEL_ANSWER" ), listener( "filter" ) );
+        index.add( listener( "any" ) );
+        assertEquals( Arrays.asList( "answer", "filter", "any" ),
+                deliver( event( "Event-Name: CHANNEL_ANSWER" ) ) );
+    }
+
+    @Test
+    public void removedListenerNoLongerDelivered()
+    {
+        IEslEventListener answer = listener( "answer" );
+        index.addForName( "CHANNEL_ANSWER", answer );
+        index.addForSubclass( "conference::*", answer );
+        index.add( listener( "any" ) );
+
+        assertTrue( index.remove( answer ) );
+        assertEquals( Collections.singletonList( "any" ), deliver( event( "Event-Name: CHANNEL_ANSWER" ) ) );
+        assertEquals( Collections.singletonList( "any" ),
+                deliver( event( "Event-Name: CUSTOM\nEvent-Subclass: conference::maintenance" ) ) );
+    }
+
+    @Test
+    public void failingListenerDoesNotKeepOthersFromEvent()
+    {
+        index.add( ( ctx, event ) -> { throw new IllegalStateException( "failing listener" ); } );
+        index.add( listener( "any" ) );
+
+        assertEquals( Collections.singletonList( "any" ), deliver( event( "Event-Name: HEARTBEAT" ) ) );
+    }
+
+    private IEslEventListener listener( String name )
+    {
+        return ( ctx, event ) -> delivered.add( name );
+    }
+
+    private List<String> deliver( EslEvent event )
+    {
+        delivered.clear();
+        BiConsumer<Context, EslEvent> route = index.route( event );
+        if ( route != null )
+        {
+            route.accept( null, event );
+        }
+        return new ArrayList<>( delivered );
+    }
+
+    private static EslEvent event( String headers )
+    {
+        String body = headers + "\n\n";
+        EmbeddedChannel channel = new EmbeddedChannel( new EslFrameDecoder( 8192 ) );
+        channel.writeInbound( Unpooled.copiedBuffer( "Content-Length: " + body.length()
+                + "\nContent-Type: text/event-plain\n\n" + body, StandardCharsets.UTF_8 ) );
+        channel.finish();
+        return new EslEvent( (EslMessage) channel.readInbound() );
+    }
+}
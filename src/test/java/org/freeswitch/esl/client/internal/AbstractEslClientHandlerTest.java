@@ -0,0 +1,294 @@
+package org.freeswitch.esl.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.event.EslEventHeaderNames;
+import org.freeswitch.esl.client.transport.message.EslCommand;
+import org.freeswitch.esl.client.transport.message.EslHeaders.Name;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AbstractEslClientHandlerTest
+{
+    private EchoServer server;
+    private TestHandler handler;
+    private Channel channel;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        server = new EchoServer();
+        handler = new TestHandler();
+        channel = server.connect( handler );
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        channel.close().sync();
+        server.close();
+    }
+
+    @Test
+    public void concurrentCommandsGetTheirOwnReplies() throws Exception
+    {
+        ExecutorService callers = Executors.newFixedThreadPool( 64 );
+        try
+        {
+            List<Future<?>> results = new ArrayList<>();
+            for ( int t = 0; t < 64; t++ )
+            {
+                final int caller = t;
+                results.add( callers.submit( () ->
+                {
+                    for ( int i = 0; i < 100; i++ )
+                    {
+                        String command = "echo " + caller + '-' + i;
+                        EslMessage reply = handler.sendApiSingleLineCommand( channel, command ).join();
+                        assertEquals( "+OK " + command, reply.getHeaderValue( Name.REPLY_TEXT ) );
+                    }
+                    return null;
+                } ) );
+            }
+            for ( Future<?> result : results )
+            {
+                result.get( 30, TimeUnit.SECONDS );
+            }
+        }
+        finally
+        {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void commandsWrittenTogetherAreFlushedTogether() throws Exception
+    {
+        assertEquals( 4, flushesFor( 500 ) );
+        assertEquals( 500, handler.getWriteMetrics().commands() );
+        assertEquals( 125.0, handler.getWriteMetrics().averageCommandsPerFlush(), 0.0 );
+    }
+
+    @Test
+    public void flushesOnceBytesPendingReachThreshold() throws Exception
+    {
+        // "echo" then its terminating blank line, 4 * 3 + 2 bytes at most
+        handler.setFlushPolicy( FlushPolicy.coalescing( 1000, 28 ) );
+        assertEquals( 50, flushesFor( 100 ) );
+    }
+
+    @Test
+    public void immediatePolicyFlushesEachCommand() throws Exception
+    {
+        handler.setFlushPolicy( FlushPolicy.IMMEDIATE );
+        assertEquals( 500, flushesFor( 500 ) );
+    }
+
+    @Test
+    public void batchSentInOneFlush() throws Exception
+    {
+        List<EslCommand> commands = new ArrayList<>();
+        for ( int i = 0; i < 300; i++ )
+        {
+            commands.add( EslCommand.of( "echo " + i ) );
+        }
+
+        List<EslMessage> replies = handler.sendCommands( channel, commands ).get( 5, TimeUnit.SECONDS );
+
+        assertEquals( 300, replies.size() );
+        for ( int i = 0; i < 300; i++ )
+        {
+            assertEquals( "+OK echo " + i, replies.get( i ).getHeaderValue( Name.REPLY_TEXT ) );
+        }
+        assertEquals( 1, handler.getWriteMetrics().flushes() );
+    }
+
+    @Test
+    public void batchFailsWithFirstFailure() throws Exception
+    {
+        CompletableFuture<List<EslMessage>> replies = handler.sendCommands( channel,
+                Arrays.asList( EslCommand.of( "echo" ), EslCommand.of( "hold" ) ) );
+        channel.close().sync();
+
+        try
+        {
+            replies.get( 5, TimeUnit.SECONDS );
+            fail( "completed" );
+        }
+        catch ( ExecutionException e )
+        {
+            assertTrue( e.getCause() instanceof ClosedChannelException );
+        }
+    }
+
+    private long flushesFor( int commands ) throws Exception
+    {
+        // sent within a single run of the event loop
+        List<CompletableFuture<EslMessage>> replies = channel.eventLoop().submit( () ->
+        {
+            List<CompletableFuture<EslMessage>> sent = new ArrayList<>();
+            for ( int i = 0; i < commands; i++ )
+            {
+                sent.add( handler.sendApiSingleLineCommand( channel, "echo" ) );
+            }
+            return sent;
+        } ).get();
+        for ( CompletableFuture<EslMessage> reply : replies )
+        {
+            reply.get( 5, TimeUnit.SECONDS );
+        }
+        return handler.getWriteMetrics().flushes();
+    }
+
+    @Test
+    public void pendingCallsFailOnceChannelCloses() throws Exception
+    {
+        CompletableFuture<EslMessage> pending = handler.sendApiSingleLineCommand( channel, "hold" );
+        channel.close().sync();
+
+        assertClosed( pending );
+        assertClosed( handler.sendApiSingleLineCommand( channel, "echo" ) );
+    }
+
+    @Test
+    public void commandFailsPastItsDeadline() throws Exception
+    {
+        CompletableFuture<EslMessage> late = handler.sendCommand( channel, EslCommand.of( "sleep 500" ), null,
+                50, TimeUnit.MILLISECONDS );
+        CompletableFuture<EslMessage> next = handler.sendApiSingleLineCommand( channel, "echo" );
+
+        assertTimedOut( late );
+        assertFalse( next.isDone() );
+        // the late reply to the first command is discarded rather than handed over to the next one
+        assertEquals( "+OK echo", next.get( 5, TimeUnit.SECONDS ).getHeaderValue( Name.REPLY_TEXT ) );
+        assertEquals( "+OK after", handler.sendApiSingleLineCommand( channel, "after" )
+                .get( 5, TimeUnit.SECONDS ).getHeaderValue( Name.REPLY_TEXT ) );
+    }
+
+    @Test
+    public void defaultDeadlineAppliesToCommandsWithoutTheirOwn() throws Exception
+    {
+        handler.setCommandTimeout( 50, TimeUnit.MILLISECONDS );
+        CompletableFuture<EslMessage> late = handler.sendApiSingleLineCommand( channel, "sleep 500" );
+        handler.setCommandTimeout( 0, TimeUnit.MILLISECONDS );
+        CompletableFuture<EslMessage> next = handler.sendApiSingleLineCommand( channel, "echo" );
+
+        assertTimedOut( late );
+        assertEquals( "+OK echo", next.get( 5, TimeUnit.SECONDS ).getHeaderValue( Name.REPLY_TEXT ) );
+    }
+
+    @Test
+    public void replyToCancelledCommandIsDiscarded() throws Exception
+    {
+        CompletableFuture<EslMessage> cancelled = handler.sendApiSingleLineCommand( channel, "sleep 100" );
+        CompletableFuture<EslMessage> next = handler.sendApiSingleLineCommand( channel, "echo" );
+        assertTrue( cancelled.cancel( false ) );
+
+        assertEquals( "+OK echo", next.get( 5, TimeUnit.SECONDS ).getHeaderValue( Name.REPLY_TEXT ) );
+    }
+
+    @Test
+    public void replyWithinDeadlineCompletes() throws Exception
+    {
+        EslMessage reply = handler.sendCommand( channel, EslCommand.of( "echo" ), null, 5, TimeUnit.SECONDS )
+                .get( 5, TimeUnit.SECONDS );
+
+        assertEquals( "+OK echo", reply.getHeaderValue( Name.REPLY_TEXT ) );
+    }
+
+    @Test
+    public void backgroundJobCompletedByEventPrecedingReply() throws Exception
+    {
+        EslEvent job = handler.sendBackgroundApiCommand( channel, "status", null ).get( 5, TimeUnit.SECONDS );
+
+        assertEquals( "BACKGROUND_JOB", job.getEventName() );
+        String jobUuid = job.getEventHeaders().get( EslEventHeaderNames.JOB_UUID );
+        assertEquals( 36, jobUuid.length() );
+        assertEquals( 4, UUID.fromString( jobUuid ).version() );
+    }
+
+    @Test
+    public void backgroundJobsGetTheirOwnEvents() throws Exception
+    {
+        List<CompletableFuture<EslEvent>> jobs = new ArrayList<>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            jobs.add( handler.sendBackgroundApiCommand( channel, "bgapi status" ) );
+        }
+        Set<String> jobUuids = new HashSet<>();
+        for ( CompletableFuture<EslEvent> job : jobs )
+        {
+            jobUuids.add( job.get( 5, TimeUnit.SECONDS ).getEventHeaders().get( EslEventHeaderNames.JOB_UUID ) );
+        }
+        assertEquals( 100, jobUuids.size() );
+        assertEquals( 0, handler.getBackgroundJobs().inFlight() );
+        assertEquals( 100, handler.getBackgroundJobs().completed() );
+    }
+
+    private static void assertTimedOut( CompletableFuture<EslMessage> future ) throws Exception
+    {
+        try
+        {
+            future.get( 5, TimeUnit.SECONDS );
+            fail( "completed" );
+        }
+        catch ( ExecutionException e )
+        {
+            assertTrue( e.getCause() instanceof TimeoutException );
+        }
+    }
+
+    private static void assertClosed( CompletableFuture<EslMessage> future ) throws Exception
+    {
+        try
+        {
+            future.get( 5, TimeUnit.SECONDS );
+            fail( "completed" );
+        }
+        catch ( ExecutionException e )
+        {
+            assertTrue( e.getCause() instanceof ClosedChannelException );
+        }
+    }
+
+    static class TestHandler extends AbstractEslClientHandler
+    {
+        @Override
+        protected void handleEslEvent( ChannelHandlerContext ctx, EslEvent event )
+        {
+        }
+
+        @Override
+        protected void handleAuthRequest( ChannelHandlerContext ctx )
+        {
+        }
+
+        @Override
+        protected void handleDisconnectionNotice()
+        {
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.freeswitch.esl.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.channel.Channel;
+import org.freeswitch.esl.client.dptools.AsyncExecute;
+import org.freeswitch.esl.client.dptools.ExecuteException;
+import org.freeswitch.esl.client.internal.IModEslApi.EventFormat;
+import org.freeswitch.esl.client.internal.IModEslApi.LoggingLevel;
+import org.freeswitch.esl.client.transport.CommandResponse;
+import org.freeswitch.esl.client.transport.event.HeaderProjection;
+import org.freeswitch.esl.client.transport.message.EslHeaders.Name;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncContextTest
+{
+    private EchoServer server;
+    private Channel channel;
+    private AbstractEslClientHandler handler;
+    private AsyncContext async;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        server = new EchoServer();
+        handler = new AbstractEslClientHandlerTest.TestHandler();
+        channel = server.connect( handler );
+        async = new Context( channel, handler ).async();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        channel.close().sync();
+        server.close();
+    }
+
+    @Test
+    public void manyOperationsInFlightFromOneThread() throws Exception
+    {
+        List<CompletableFuture<EslMessage>> replies = new ArrayList<>();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            replies.add( async.sendApiCommand( "echo", Integer.toString( i ) ) );
+        }
+        for ( int i = 0; i < 1000; i++ )
+        {
+            assertEquals( "+OK api echo " + i,
+                    replies.get( i ).get( 5, TimeUnit.SECONDS ).getHeaderValue( Name.REPLY_TEXT ) );
+        }
+    }
+
+    @Test
+    public void commandResponses() throws Exception
+    {
+        CommandResponse response = async.setLoggingLevel( LoggingLevel.INFO ).get( 5, TimeUnit.SECONDS );
+        assertEquals( "log info", response.getCommand() );
+        assertTrue( response.isOk() );
+
+        response = async.addEventFilter( "Event-Name", "fail" ).get( 5, TimeUnit.SECONDS );
+        assertFalse( response.isOk() );
+    }
+
+    @Test
+    public void projectionOnlyAppliedOnceSubscribed() throws Exception
+    {
+        HeaderProjection projection = HeaderProjection.of( "X-Custom" );
+
+        assertTrue( async.setEventSubscriptions( EventFormat.PLAIN, "ALL", projection )
+                .get( 5, TimeUnit.SECONDS ).isOk() );
+        assertSame( projection, handler.getHeaderProjection() );
+        assertFalse( async.setEventSubscriptions( EventFormat.PLAIN, "CUSTOM fail", HeaderProjection.of( "X-Other" ) )
+                .get( 5, TimeUnit.SECONDS ).isOk() );
+        assertSame( projection, handler.getHeaderProjection() );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidArgumentsRejectedAtOnce()
+    {
+        async.addEventFilter( "", "value" );
+    }
+
+    @Test
+    public void executeApplications() throws Exception
+    {
+        AsyncExecute execute = new AsyncExecute( async, "6b4d2e1c" );
+
+        CommandResponse response = execute.playback( "ivr/welcome.wav" ).get( 5, TimeUnit.SECONDS );
+        assertEquals( "+OK execute-app-arg: ivr/welcome.wav", response.getReplyText() );
+
+        try
+        {
+            execute.execute( "fail" ).get( 5, TimeUnit.SECONDS );
+            fail( "completed" );
+        }
+        catch ( ExecutionException e )
+        {
+            assertTrue( e.getCause() instanceof ExecuteException );
+        }
+    }
+}
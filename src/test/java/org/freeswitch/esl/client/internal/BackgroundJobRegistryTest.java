@@ -0,0 +1,131 @@
+package org.freeswitch.esl.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import io.netty.util.HashedWheelTimer;
+import org.freeswitch.esl.client.internal.BackgroundJobRegistry.RejectionPolicy;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.junit.After;
+import org.junit.Test;
+
+public class BackgroundJobRegistryTest
+{
+    private final HashedWheelTimer timer = new HashedWheelTimer( 10, TimeUnit.MILLISECONDS );
+    private final BackgroundJobRegistry registry = new BackgroundJobRegistry( timer );
+
+    @After
+    public void tearDown()
+    {
+        timer.stop();
+    }
+
+    @Test
+    public void jobTakenOnce()
+    {
+        CompletableFuture<EslEvent> job = registry.register( "a", 0 );
+
+        assertEquals( 1, registry.inFlight() );
+        assertSame( job, registry.take( "a" ) );
+        assertNull( registry.take( "a" ) );
+        assertEquals( 0, registry.inFlight() );
+        assertEquals( 1, registry.completed() );
+    }
+
+    @Test
+    public void jobFailsPastItsDeadline() throws Exception
+    {
+        CompletableFuture<EslEvent> job = registry.register( "a", TimeUnit.MILLISECONDS.toNanos( 50 ) );
+
+        assertFailure( TimeoutException.class, job );
+        assertEquals( 0, registry.inFlight() );
+        assertEquals( 1, registry.timedOut() );
+        assertNull( registry.take( "a" ) );
+    }
+
+    @Test
+    public void takenJobDoesNotTimeOut() throws Exception
+    {
+        registry.register( "a", TimeUnit.MILLISECONDS.toNanos( 50 ) );
+        registry.take( "a" );
+
+        Thread.sleep( 100 );
+        assertEquals( 0, registry.timedOut() );
+    }
+
+    @Test
+    public void newJobRejectedWhenFull() throws Exception
+    {
+        registry.setMaxJobs( 2, RejectionPolicy.FAIL_NEW );
+        CompletableFuture<EslEvent> first = registry.register( "a", 0 );
+        registry.register( "b", 0 );
+
+        assertFailure( RejectedExecutionException.class, registry.register( "c", 0 ) );
+        assertFalse( first.isDone() );
+        assertEquals( 2, registry.inFlight() );
+        assertEquals( 1, registry.rejected() );
+    }
+
+    @Test
+    public void oldestJobEvictedWhenFull() throws Exception
+    {
+        registry.setMaxJobs( 2, RejectionPolicy.FAIL_OLDEST );
+        CompletableFuture<EslEvent> first = registry.register( "a", 0 );
+        registry.register( "b", 0 );
+        CompletableFuture<EslEvent> third = registry.register( "c", 0 );
+
+        assertFailure( RejectedExecutionException.class, first );
+        assertFalse( third.isDone() );
+        assertSame( third, registry.take( "c" ) );
+        assertEquals( 1, registry.inFlight() );
+    }
+
+    @Test
+    public void rekeyedJobTakenUnderItsNewUuid()
+    {
+        CompletableFuture<EslEvent> job = registry.register( "a", 0 );
+        registry.rekey( "a", "b" );
+
+        assertNull( registry.take( "a" ) );
+        assertSame( job, registry.take( "b" ) );
+        assertEquals( 0, registry.inFlight() );
+    }
+
+    @Test
+    public void allJobsFailOnceDisconnected() throws Exception
+    {
+        CompletableFuture<EslEvent> first = registry.register( "a", TimeUnit.SECONDS.toNanos( 10 ) );
+        CompletableFuture<EslEvent> second = registry.register( "b", 0 );
+        registry.failAll( new ClosedChannelException() );
+
+        assertFailure( ClosedChannelException.class, first );
+        assertFailure( ClosedChannelException.class, second );
+        assertEquals( 0, registry.inFlight() );
+        assertEquals( 2, registry.failed() );
+    }
+
+    private static void assertFailure( Class<? extends Throwable> expected, CompletableFuture<EslEvent> job )
+            throws Exception
+    {
+        try
+        {
+            job.get( 5, TimeUnit.SECONDS );
+            fail( "completed" );
+        }
+        catch ( ExecutionException e )
+        {
+            assertTrue( e.getCause().toString(), expected.isInstance( e.getCause() ) );
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.freeswitch.esl.client.internal;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.handler.codec.LineBasedFrameDecoder;
+import io.netty.util.CharsetUtil;
+import org.freeswitch.esl.client.transport.message.EslCommandEncoder;
+import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-memory server replying to each command with a {@code command/reply} whose reply text is
+ * {@code +OK} followed by the last line of the command, or {@code -ERR} if that line ends with
+ * {@code fail}. A {@code hold} command gets no reply, and a {@code sleep <millis>} command gets
+ * its reply that late, the replies to the commands after it being held back as long, so that the
+ * replies keep the order of the commands.
+ * <p/>
+ * A command whose last line is a {@code Job-UUID} header, as the {@code bgapi} commands, gets the
+ * BACKGROUND_JOB event of its job first, and then its reply carrying the same header, as a job
+ * completing at once may have the server send them.
+ */
+class EchoServer implements AutoCloseable
+{
+    private final DefaultEventLoopGroup group = new DefaultEventLoopGroup( 2 );
+    private final LocalAddress address = new LocalAddress( "esl-" + System.nanoTime() );
+    private final Channel serverChannel;
+
+    EchoServer() throws InterruptedException
+    {
+        serverChannel = new ServerBootstrap()
+                .group( group )
+                .channel( LocalServerChannel.class )
+                .childHandler( new ChannelInitializer<LocalChannel>()
+                {
+                    @Override
+                    protected void initChannel( LocalChannel ch )
+                    {
+                        ch.pipeline().addLast( new LineBasedFrameDecoder( 8192 ), new Replier() );
+                    }
+                } )
+                .bind( address ).sync().channel();
+    }
+
+    Channel connect( ChannelHandler handler ) throws InterruptedException
+    {
+        return new Bootstrap()
+                .group( group )
+                .channel( LocalChannel.class )
+                .handler( new ChannelInitializer<LocalChannel>()
+                {
+                    @Override
+                    protected void initChannel( LocalChannel ch )
+                    {
+                        ch.pipeline().addLast( new EslFrameDecoder( 8192 ), handler, new EslCommandEncoder() );
+                    }
+                } )
+                .connect( address ).sync().channel();
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            serverChannel.close().sync();
+            group.shutdownGracefully( 0, 1, TimeUnit.SECONDS ).sync();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Replier extends SimpleChannelInboundHandler<ByteBuf>
+    {
+        private String command;
+        // when the replies held back by sleep commands are due
+        private long replyAt;
+        private final ArrayDeque<HeldReply> held = new ArrayDeque<>();
+
+        @Override
+        protected void channelRead0( ChannelHandlerContext ctx, ByteBuf line )
+        {
+            if ( line.isReadable() )
+            {
+                command = line.toString( CharsetUtil.UTF_8 );
+            }
+            else if ( !command.equals( "hold" ) )
+            {
+                String reply = ( command.endsWith( "fail" ) ? "-ERR " : "+OK " ) + command;
+                String headers = "Content-Type: command/reply\nReply-Text: " + reply + "\n";
+                if ( command.startsWith( "Job-UUID: " ) )
+                {
+                    String body = "Event-Name: BACKGROUND_JOB\n" + command + "\n\n";
+                    ctx.write( Unpooled.copiedBuffer( "Content-Length: " + body.length()
+                            + "\nContent-Type: text/event-plain\n\n" + body, CharsetUtil.UTF_8 ) );
+                    headers += command + "\n";
+                }
+                ByteBuf message = Unpooled.copiedBuffer( headers + "\n", CharsetUtil.UTF_8 );
+                long now = System.nanoTime();
+                if ( command.startsWith( "sleep " ) )
+                {
+                    replyAt = Math.max( now, replyAt )
+                            + TimeUnit.MILLISECONDS.toNanos( Long.parseLong( command.substring( 6 ) ) );
+                }
+                if ( held.isEmpty() && replyAt - now <= 0 )
+                {
+                    ctx.write( message );
+                }
+                else
+                {
+                    held.add( new HeldReply( replyAt, message ) );
+                    if ( held.size() == 1 )
+                    {
+                        ctx.executor().schedule( () -> release( ctx ), replyAt - now, TimeUnit.NANOSECONDS );
+                    }
+                }
+            }
+        }
+
+        private void release( ChannelHandlerContext ctx )
+        {
+            long now = System.nanoTime();
+            while ( !held.isEmpty() && held.peek().due - now <= 0 )
+            {
+                ctx.write( held.poll().reply );
+            }
+            ctx.flush();
+            if ( !held.isEmpty() )
+            {
+                ctx.executor().schedule( () -> release( ctx ), held.peek().due - now, TimeUnit.NANOSECONDS );
+            }
+        }
+
+        @Override
+        public void channelReadComplete( ChannelHandlerContext ctx )
+        {
+            ctx.flush();
+        }
+    }
+
+    private static class HeldReply
+    {
+        private final long due;
+        private final ByteBuf reply;
+
+        HeldReply( long due, ByteBuf reply )
+        {
+            this.due = due;
+            this.reply = reply;
+        }
+    }
+}
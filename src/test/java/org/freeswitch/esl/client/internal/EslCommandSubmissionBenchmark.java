@@ -0,0 +1,90 @@
+package org.freeswitch.esl.client.internal;
+
+import ch.qos.logback.classic.Level;
+import io.netty.channel.Channel;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 64 threads sending commands on a single connection to an in-memory server, measuring how command
+ * submission scales with contention: either each thread waits for the reply to its command before
+ * sending the next one, or it keeps up to 16 commands in flight. Writes are either flushed one by one
+ * or coalesced; the average number of commands per flush is printed at the end of each trial.
+ * <p/>
+ * Run with:
+ * <pre>
+ *   java -cp &lt;test classpath&gt; org.openjdk.jmh.Main EslCommandSubmissionBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(64)
+public class EslCommandSubmissionBenchmark {
+
+	@Param({"immediate", "coalescing"})
+	public String flushPolicy;
+
+	private EchoServer server;
+	private AbstractEslClientHandler handler;
+	private Channel channel;
+
+	@Setup
+	public void setup() throws Exception {
+		// every reply is logged at info level otherwise
+		((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(AbstractEslClientHandlerTest.TestHandler.class))
+				.setLevel(Level.WARN);
+		server = new EchoServer();
+		handler = new AbstractEslClientHandlerTest.TestHandler();
+		handler.setFlushPolicy(flushPolicy.equals("immediate") ? FlushPolicy.IMMEDIATE : FlushPolicy.DEFAULT);
+		channel = server.connect(handler);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		System.out.println(handler.getWriteMetrics());
+		channel.close().sync();
+		server.close();
+	}
+
+	@State(Scope.Thread)
+	public static class InFlight {
+		private final ArrayDeque<CompletableFuture<EslMessage>> replies = new ArrayDeque<>();
+
+		@TearDown
+		public void tearDown() {
+			replies.forEach(CompletableFuture::join);
+		}
+	}
+
+	@Benchmark
+	public EslMessage sendCommand() {
+		return handler.sendApiSingleLineCommand(channel, "status").join();
+	}
+
+	@Benchmark
+	public EslMessage sendPipelinedCommand(InFlight inFlight) {
+		inFlight.replies.add(handler.sendApiSingleLineCommand(channel, "status"));
+		return inFlight.replies.size() > 16 ? inFlight.replies.poll().join() : null;
+	}
+}
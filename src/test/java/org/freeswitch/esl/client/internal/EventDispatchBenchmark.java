@@ -0,0 +1,125 @@
+package org.freeswitch.esl.client.internal;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.freeswitch.esl.client.internal.RingBufferEventDispatcher.WaitStrategy;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Cost of handing events over from the IO thread to the thread delivering them, with the
+ * {@link ExecutorEventDispatcher} over a single thread, as by default, and with a
+ * {@link RingBufferEventDispatcher} under each {@link WaitStrategy}: the throughput of bursts of
+ * events, and the latency of a single event, from its dispatch until it is delivered.
+ * <p/>
+ * The wait strategies spinning on the delivering thread need a core of their own, results on fewer
+ * than 2 cores are not representative.
+ * <p/>
+ * Run with:
+ * <pre>
+ *   java -cp &lt;test classpath&gt; org.openjdk.jmh.Main EventDispatchBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDispatchBenchmark {
+
+	private static final int BURST = 1000;
+
+	@Param({"executor", "ring-park", "ring-yield", "ring-spin"})
+	public String dispatcher;
+
+	private IEslEventDispatcher eventDispatcher;
+	private ExecutorService executor;
+	private EslEvent event;
+	// only updated by the delivering thread
+	private volatile long delivered;
+	private final BiConsumer<Context, EslEvent> delivery = (ctx, event) -> delivered++;
+	private long dispatched;
+
+	@Setup
+	public void setup() {
+		switch (dispatcher) {
+			case "executor":
+				executor = Executors.newSingleThreadExecutor();
+				eventDispatcher = new ExecutorEventDispatcher(executor);
+				break;
+			case "ring-park":
+				eventDispatcher = new RingBufferEventDispatcher(4096, WaitStrategy.PARK);
+				break;
+			case "ring-yield":
+				eventDispatcher = new RingBufferEventDispatcher(4096, WaitStrategy.YIELD);
+				break;
+			case "ring-spin":
+				eventDispatcher = new RingBufferEventDispatcher(4096, WaitStrategy.BUSY_SPIN);
+				break;
+			default:
+				throw new IllegalArgumentException(dispatcher);
+		}
+		final String body = "Event-Name: CHANNEL_STATE\nUnique-ID: 2f3c5b2e-4a16-4d38-9c1e-65ab0c1a0d3e\n"
+				+ "Channel-State: CS_EXECUTE\n\n";
+		final EmbeddedChannel channel = new EmbeddedChannel(new EslFrameDecoder(8192));
+		channel.writeInbound(Unpooled.copiedBuffer("Content-Length: " + body.length()
+				+ "\nContent-Type: text/event-plain\n\n" + body, StandardCharsets.UTF_8));
+		channel.finish();
+		event = new EslEvent((EslMessage) channel.readInbound());
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		if (executor != null) {
+			executor.shutdown();
+		} else {
+			((RingBufferEventDispatcher) eventDispatcher).close();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BURST)
+	public void burst() {
+		for (int i = 0; i < BURST; i++) {
+			eventDispatcher.dispatch(null, event, delivery);
+		}
+		dispatched += BURST;
+		awaitDelivered();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void single() {
+		eventDispatcher.dispatch(null, event, delivery);
+		dispatched++;
+		awaitDelivered();
+	}
+
+	private void awaitDelivered() {
+		while (delivered < dispatched) {
+			Thread.yield();
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package org.freeswitch.esl.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.freeswitch.esl.client.transport.CommandResponse;
+import org.freeswitch.esl.client.transport.SendMsg;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.message.EslCommand;
+import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.freeswitch.esl.client.transport.message.IEslBodyConsumer;
+import org.junit.Test;
+
+/**
+ * The default methods of {@link IModEslApi}, on an implementation only having its blocking methods.
+ */
+public class IModEslApiTest
+{
+    private final BlockingApi api = new BlockingApi();
+
+    @Test
+    public void bodyHandedToConsumer()
+    {
+        List<String> lines = new ArrayList<>();
+
+        api.sendApiCommand( "status", null, IEslBodyConsumer.lines( lines::add ) );
+        assertEquals( Arrays.asList( "UP 0 years", "ready" ), lines );
+    }
+
+    @Test
+    public void commandTimesOut()
+    {
+        try
+        {
+            api.sendApiCommand( "sleep", null, 50, TimeUnit.MILLISECONDS );
+            fail( "replied" );
+        }
+        catch ( UncheckedExecutionException e )
+        {
+            assertTrue( e.getCause() instanceof TimeoutException );
+        }
+        assertEquals( "UP 0 years", api.sendApiCommand( "status", null, 5, TimeUnit.SECONDS ).getBodyLines().get( 0 ) );
+    }
+
+    @Test
+    public void commandsSentOneByOne() throws Exception
+    {
+        List<EslMessage> responses = api.sendApiCommands( Arrays.asList(
+                EslCommand.api( "status", null ), EslCommand.api( "uuid_getvar", "1234 tenant" ) ) )
+                .get( 5, TimeUnit.SECONDS );
+
+        assertEquals( 2, responses.size() );
+        assertEquals( Arrays.asList( "status null", "uuid_getvar 1234 tenant" ), api.sent );
+    }
+
+    @Test
+    public void backgroundJobTimesOut() throws Exception
+    {
+        try
+        {
+            api.sendBackgroundApiCommand( "originate", "sofia/gateway/x 1000", 50, TimeUnit.MILLISECONDS )
+                    .get( 5, TimeUnit.SECONDS );
+            fail( "completed" );
+        }
+        catch ( ExecutionException e )
+        {
+            assertTrue( e.getCause() instanceof TimeoutException );
+        }
+    }
+
+    @Test
+    public void asyncRunsBlockingOperations() throws Exception
+    {
+        assertEquals( "ready", api.async().sendApiCommand( "status", null )
+                .get( 5, TimeUnit.SECONDS ).getBodyLines().get( 1 ) );
+    }
+
+    /**
+     * Only implements the methods {@link IModEslApi} had before it had default methods.
+     */
+    private static class BlockingApi implements IModEslApi
+    {
+        private final List<String> sent = Collections.synchronizedList( new ArrayList<>() );
+
+        @Override
+        public boolean canSend()
+        {
+            return true;
+        }
+
+        @Override
+        public EslMessage sendApiCommand( String command, String arg )
+        {
+            if ( command.equals( "sleep" ) )
+            {
+                try
+                {
+                    Thread.sleep( 1000 );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sent.add( command + " " + arg );
+            String body = "UP 0 years\nready\n";
+            EmbeddedChannel channel = new EmbeddedChannel( new EslFrameDecoder( 8192 ) );
+            channel.writeInbound( Unpooled.copiedBuffer( "Content-Type: api/response\nContent-Length: "
+                    + body.length() + "\n\n" + body, StandardCharsets.UTF_8 ) );
+            channel.finish();
+            return channel.readInbound();
+        }
+
+        @Override
+        public CompletableFuture<EslEvent> sendBackgroundApiCommand( String command, String arg )
+        {
+            // a job never completing
+            return new CompletableFuture<>();
+        }
+
+        @Override
+        public CommandResponse setEventSubscriptions( EventFormat format, String events )
+        {
+            return null;
+        }
+
+        @Override
+        public CommandResponse cancelEventSubscriptions()
+        {
+            return null;
+        }
+
+        @Override
+        public CommandResponse addEventFilter( String eventHeader, String valueToFilter )
+        {
+            return null;
+        }
+
+        @Override
+        public CommandResponse deleteEventFilter( String eventHeader, String valueToFilter )
+        {
+            return null;
+        }
+
+        @Override
+        public CommandResponse sendMessage( SendMsg sendMsg )
+        {
+            return null;
+        }
+
+        @Override
+        public CommandResponse setLoggingLevel( LoggingLevel level )
+        {
+            return null;
+        }
+
+        @Override
+        public CommandResponse cancelLogging()
+        {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package org.freeswitch.esl.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCounted;
+import org.freeswitch.esl.client.internal.RingBufferEventDispatcher.WaitStrategy;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.junit.Test;
+
+public class RingBufferEventDispatcherTest
+{
+    @Test
+    public void eventsDeliveredInOrder() throws Exception
+    {
+        for ( WaitStrategy waitStrategy : WaitStrategy.values() )
+        {
+            assertDeliveredInOrder( waitStrategy );
+        }
+    }
+
+    private void assertDeliveredInOrder( WaitStrategy waitStrategy ) throws Exception
+    {
+        int count = 10000;
+        List<EslEvent> events = new ArrayList<>();
+        for ( int i = 0; i < 16; i++ )
+        {
+            events.add( event( "Event-Sequence: " + i ) );
+        }
+        List<Integer> delivered = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch( count );
+        BiConsumer<Context, EslEvent> delivery = ( ctx, event ) ->
+        {
+            // only ever called by the delivering thread
+            delivered.add( Integer.valueOf( event.getEventHeaders().get( "Event-Sequence" ) ) );
+            done.countDown();
+        };
+
+        try ( RingBufferEventDispatcher dispatcher = new RingBufferEventDispatcher( 16384, waitStrategy ) )
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                dispatcher.dispatch( null, events.get( i % 16 ), delivery );
+            }
+            assertTrue( waitStrategy.name(), done.await( 10, TimeUnit.SECONDS ) );
+            for ( int i = 0; i < count; i++ )
+            {
+                assertEquals( i % 16, delivered.get( i ).intValue() );
+            }
+            // the slots of a batch are handed back once the whole batch is delivered
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos( 5 );
+            while ( dispatcher.backlog() > 0 && System.nanoTime() < deadline )
+            {
+                Thread.sleep( 1 );
+            }
+            assertEquals( 0, dispatcher.backlog() );
+            assertEquals( count, dispatcher.delivered() );
+            assertTrue( dispatcher.batches() <= count );
+        }
+    }
+
+    @Test
+    public void eventsDroppedOnceRingFull() throws Exception
+    {
+        CountDownLatch blocked = new CountDownLatch( 1 );
+        CountDownLatch release = new CountDownLatch( 1 );
+        CountDownLatch done = new CountDownLatch( 2 );
+        BiConsumer<Context, EslEvent> delivery = ( ctx, event ) ->
+        {
+            blocked.countDown();
+            try
+            {
+                release.await();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        };
+        EslEvent event = event( "Event-Name: HEARTBEAT" );
+
+        try ( RingBufferEventDispatcher dispatcher = new RingBufferEventDispatcher( 2, WaitStrategy.PARK ) )
+        {
+            dispatcher.dispatch( null, event, delivery );
+            assertTrue( blocked.await( 5, TimeUnit.SECONDS ) );
+            // the slot being delivered is only handed back with its batch
+            for ( int i = 0; i < 3; i++ )
+            {
+                dispatcher.dispatch( null, event, delivery );
+            }
+            assertEquals( 2, dispatcher.rejected() );
+
+            release.countDown();
+            assertTrue( done.await( 5, TimeUnit.SECONDS ) );
+        }
+    }
+
+    @Test
+    public void dispatchBlockedWhileRingFull() throws Exception
+    {
+        CountDownLatch blocked = new CountDownLatch( 1 );
+        CountDownLatch release = new CountDownLatch( 1 );
+        CountDownLatch done = new CountDownLatch( 4 );
+        BiConsumer<Context, EslEvent> delivery = ( ctx, event ) ->
+        {
+            blocked.countDown();
+            try
+            {
+                release.await();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        };
+        EslEvent event = event( "Event-Name: HEARTBEAT" );
+
+        try ( RingBufferEventDispatcher dispatcher =
+                new RingBufferEventDispatcher( 2, WaitStrategy.PARK, OverflowPolicy.BLOCK ) )
+        {
+            dispatcher.dispatch( null, event, delivery );
+            assertTrue( blocked.await( 5, TimeUnit.SECONDS ) );
+            dispatcher.dispatch( null, event, delivery );
+            Thread producer = new Thread( () ->
+            {
+                dispatcher.dispatch( null, event, delivery );
+                dispatcher.dispatch( null, event, delivery );
+            } );
+            producer.start();
+            producer.join( 200 );
+            assertTrue( producer.isAlive() );
+
+            release.countDown();
+            producer.join( 5000 );
+            assertFalse( producer.isAlive() );
+            assertTrue( done.await( 5, TimeUnit.SECONDS ) );
+            assertEquals( 0, dispatcher.rejected() );
+        }
+    }
+
+    @Test
+    public void deliveryKeptRunningAfterError() throws Exception
+    {
+        CountDownLatch done = new CountDownLatch( 1 );
+        BiConsumer<Context, EslEvent> delivery = ( ctx, event ) ->
+        {
+            if ( event.getEventHeaders().containsKey( "X-Fail" ) )
+            {
+                throw new AssertionError( "listener failed" );
+            }
+            done.countDown();
+        };
+
+        try ( RingBufferEventDispatcher dispatcher = new RingBufferEventDispatcher( 16, WaitStrategy.PARK ) )
+        {
+            dispatcher.dispatch( null, event( "X-Fail: true" ), delivery );
+            dispatcher.dispatch( null, event( "Event-Name: HEARTBEAT" ), delivery );
+            assertTrue( done.await( 5, TimeUnit.SECONDS ) );
+        }
+    }
+
+    @Test
+    public void eventsOfEachProducerDeliveredInOrder() throws Exception
+    {
+        int producers = 4;
+        int count = 10000;
+        List<List<EslEvent>> events = new ArrayList<>();
+        for ( int producer = 0; producer < producers; producer++ )
+        {
+            List<EslEvent> sequence = new ArrayList<>();
+            for ( int i = 0; i < 16; i++ )
+            {
+                sequence.add( event( "Producer: " + producer + "\nEvent-Sequence: " + i ) );
+            }
+            events.add( sequence );
+        }
+        int[] next = new int[producers];
+        List<String> outOfOrder = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch( producers * count );
+        BiConsumer<Context, EslEvent> delivery = ( ctx, event ) ->
+        {
+            // only ever called by the delivering thread
+            int producer = Integer.parseInt( event.getEventHeaders().get( "Producer" ) );
+            int sequence = Integer.parseInt( event.getEventHeaders().get( "Event-Sequence" ) );
+            if ( sequence != next[producer]++ % 16 )
+            {
+                outOfOrder.add( producer + ":" + sequence );
+            }
+            done.countDown();
+        };
+
+        try ( RingBufferEventDispatcher dispatcher =
+                new RingBufferEventDispatcher( 64, WaitStrategy.PARK, OverflowPolicy.BLOCK ) )
+        {
+            List<Thread> threads = new ArrayList<>();
+            for ( int producer = 0; producer < producers; producer++ )
+            {
+                List<EslEvent> sequence = events.get( producer );
+                Thread thread = new Thread( () ->
+                {
+                    for ( int i = 0; i < count; i++ )
+                    {
+                        dispatcher.dispatch( null, sequence.get( i % 16 ), delivery );
+                    }
+                } );
+                thread.start();
+                threads.add( thread );
+            }
+            for ( Thread thread : threads )
+            {
+                thread.join( 10000 );
+            }
+            assertTrue( done.await( 10, TimeUnit.SECONDS ) );
+            assertTrue( outOfOrder.toString(), outOfOrder.isEmpty() );
+            assertEquals( 0, dispatcher.rejected() );
+        }
+    }
+
+    @Test
+    public void eventReleasedOnceClosed() throws Exception
+    {
+        EmbeddedChannel channel = new EmbeddedChannel( new EslFrameDecoder( 8192, false, true ) );
+        String body = "Event-Name: HEARTBEAT\n\n";
+        ByteBuf buffer = PooledByteBufAllocator.DEFAULT.directBuffer();
+        buffer.writeCharSequence( "Content-Length: " + body.length() + "\nContent-Type: text/event-plain\n\n" + body,
+                StandardCharsets.UTF_8 );
+        channel.writeInbound( buffer );
+        channel.finish();
+        EslMessage message = channel.readInbound();
+        EslEvent event = EslEvent.newPooledInstance( message );
+        ( (ReferenceCounted) message ).release();
+
+        RingBufferEventDispatcher dispatcher = new RingBufferEventDispatcher( 2, WaitStrategy.PARK, OverflowPolicy.BLOCK );
+        dispatcher.close();
+        dispatcher.dispatch( null, event, ( ctx, e ) -> fail( "delivered" ) );
+
+        assertEquals( 0, ( (ReferenceCounted) event ).refCnt() );
+        assertEquals( 1, dispatcher.rejected() );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityMustBePowerOfTwo()
+    {
+        new RingBufferEventDispatcher( 1000, WaitStrategy.PARK );
+    }
+
+    private static EslEvent event( String headers )
+    {
+        String body = headers + "\n\n";
+        EmbeddedChannel channel = new EmbeddedChannel( new EslFrameDecoder( 8192 ) );
+        channel.writeInbound( Unpooled.copiedBuffer( "Content-Length: " + body.length()
+                + "\nContent-Type: text/event-plain\n\n" + body, StandardCharsets.UTF_8 ) );
+        channel.finish();
+        return new EslEvent( (EslMessage) channel.readInbound() );
+    }
+}
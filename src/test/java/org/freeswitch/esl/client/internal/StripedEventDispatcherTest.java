@@ -0,0 +1,172 @@
+package org.freeswitch.esl.client.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.freeswitch.esl.client.internal.StripedEventDispatcher.LaneMetrics;
+import org.freeswitch.esl.client.transport.event.EslEvent;
+import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.junit.After;
+import org.junit.Test;
+
+public class StripedEventDispatcherTest
+{
+    private StripedEventDispatcher dispatcher;
+
+    @After
+    public void tearDown()
+    {
+        dispatcher.close();
+    }
+
+    @Test
+    public void eventsOfACallDeliveredInOrder() throws Exception
+    {
+        dispatcher = new StripedEventDispatcher( 4, 10000 );
+        int calls = 20;
+        int eventsPerCall = 100;
+        Map<String, List<Integer>> delivered = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch( calls * eventsPerCall );
+        BiConsumer<Context, EslEvent> delivery = ( ctx, event ) ->
+        {
+            delivered.computeIfAbsent( event.getEventHeaders().get( "Unique-ID" ),
+                    uuid -> Collections.synchronizedList( new ArrayList<>() ) )
+                    .add( Integer.valueOf( event.getEventHeaders().get( "Event-Sequence" ) ) );
+            done.countDown();
+        };
+
+        for ( int i = 0; i < eventsPerCall; i++ )
+        {
+            for ( int call = 0; call < calls; call++ )
+            {
+                dispatcher.dispatch( null, event( "Unique-ID: call-" + call + "\nEvent-Sequence: " + i ), delivery );
+            }
+        }
+
+        assertTrue( done.await( 10, TimeUnit.SECONDS ) );
+        assertEquals( calls, delivered.size() );
+        for ( List<Integer> sequence : delivered.values() )
+        {
+            for ( int i = 0; i < eventsPerCall; i++ )
+            {
+                assertEquals( i, sequence.get( i ).intValue() );
+            }
+        }
+        int busyLanes = 0;
+        for ( LaneMetrics lane : dispatcher.laneMetrics() )
+        {
+            busyLanes += lane.delivered() > 0 ? 1 : 0;
+        }
+        assertTrue( busyLanes > 1 );
+    }
+
+    @Test
+    public void laneChosenByUniqueIdThenJobUuid() throws Exception
+    {
+        dispatcher = new StripedEventDispatcher( 16, 16 );
+
+        assertEquals( 0, dispatcher.laneOf( event( "Event-Name: HEARTBEAT" ) ) );
+        for ( int i = 0; i < 16; i++ )
+        {
+            String uuid = "uuid-" + i;
+            int lane = dispatcher.laneOf( event( "Unique-ID: " + uuid ) );
+            assertEquals( lane, dispatcher.laneOf( event( "Job-UUID: " + uuid ) ) );
+            assertEquals( lane, dispatcher.laneOf( event( "Unique-ID: " + uuid + "\nJob-UUID: other" ) ) );
+        }
+    }
+
+    @Test
+    public void eventsDroppedOnceLaneFull() throws Exception
+    {
+        dispatcher = new StripedEventDispatcher( 1, 1 );
+        CountDownLatch blocked = new CountDownLatch( 1 );
+        CountDownLatch release = new CountDownLatch( 1 );
+        CountDownLatch done = new CountDownLatch( 2 );
+        BiConsumer<Context, EslEvent> delivery = ( ctx, event ) ->
+        {
+            blocked.countDown();
+            try
+            {
+                release.await();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        };
+
+        dispatcher.dispatch( null, event( "Event-Name: HEARTBEAT" ), delivery );
+        assertTrue( blocked.await( 5, TimeUnit.SECONDS ) );
+        for ( int i = 0; i < 3; i++ )
+        {
+            dispatcher.dispatch( null, event( "Event-Name: HEARTBEAT" ), delivery );
+        }
+        LaneMetrics lane = dispatcher.laneMetrics().get( 0 );
+        assertEquals( 1, lane.queued() );
+        assertEquals( 2, lane.rejected() );
+
+        release.countDown();
+        assertTrue( done.await( 5, TimeUnit.SECONDS ) );
+    }
+
+    @Test
+    public void dispatchBlockedWhileLaneFull() throws Exception
+    {
+        dispatcher = new StripedEventDispatcher( 1, 1, OverflowPolicy.BLOCK );
+        CountDownLatch blocked = new CountDownLatch( 1 );
+        CountDownLatch release = new CountDownLatch( 1 );
+        CountDownLatch done = new CountDownLatch( 3 );
+        BiConsumer<Context, EslEvent> delivery = ( ctx, event ) ->
+        {
+            blocked.countDown();
+            try
+            {
+                release.await();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        };
+
+        dispatcher.dispatch( null, event( "Event-Name: HEARTBEAT" ), delivery );
+        assertTrue( blocked.await( 5, TimeUnit.SECONDS ) );
+        dispatcher.dispatch( null, event( "Event-Name: HEARTBEAT" ), delivery );
+        Thread producer = new Thread( () -> dispatcher.dispatch( null, event( "Event-Name: HEARTBEAT" ), delivery ) );
+        producer.start();
+        producer.join( 200 );
+        assertTrue( producer.isAlive() );
+
+        release.countDown();
+        producer.join( 5000 );
+        assertFalse( producer.isAlive() );
+        assertTrue( done.await( 5, TimeUnit.SECONDS ) );
+        assertEquals( 0, dispatcher.laneMetrics().get( 0 ).rejected() );
+    }
+
+    private static EslEvent event( String headers )
+    {
+        String body = headers + "\n\n";
+        EmbeddedChannel channel = new EmbeddedChannel( new EslFrameDecoder( 8192 ) );
+        channel.writeInbound( Unpooled.copiedBuffer( "Content-Length: " + body.length()
+                + "\nContent-Type: text/event-plain\n\n" + body, StandardCharsets.UTF_8 ) );
+        channel.finish();
+        return new EslEvent( (EslMessage) channel.readInbound() );
+    }
+}
@@ -0,0 +1,83 @@
+package org.freeswitch.esl.client.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.freeswitch.esl.client.transport.message.EslHeaders.Name;
+import org.junit.Test;
+
+public class HeaderDictionaryTest
+{
+    @Test
+    public void findsEveryName()
+    {
+        List<String> names = new ArrayList<>();
+        for ( int i = 0; i < 500; i++ )
+        {
+            names.add( "variable_name_" + i );
+        }
+        HeaderDictionary dictionary = HeaderDictionary.of( names );
+
+        assertEquals( 500, dictionary.size() );
+        for ( int i = 0; i < names.size(); i++ )
+        {
+            byte[] bytes = ( "x" + names.get( i ) + ": value" ).getBytes( StandardCharsets.US_ASCII );
+            assertEquals( i, dictionary.indexOf( bytes, 1, 1 + names.get( i ).length() ) );
+            assertEquals( i, dictionary.indexOfIgnoreCase( names.get( i ).toUpperCase() ) );
+            assertSame( names.get( i ), dictionary.name( i ) );
+        }
+    }
+
+    @Test
+    public void caseSensitivity()
+    {
+        HeaderDictionary dictionary = HeaderDictionary.of( "Unique-ID", "Event-Name" );
+        byte[] bytes = "unique-id".getBytes( StandardCharsets.US_ASCII );
+
+        assertEquals( -1, dictionary.indexOf( bytes, 0, bytes.length ) );
+        assertEquals( 0, dictionary.indexOfIgnoreCase( "unique-id" ) );
+        assertEquals( 1, dictionary.indexOfIgnoreCase( "EVENT-NAME" ) );
+        // differ only in the 0x20 bit, but are not letters
+        assertEquals( -1, dictionary.indexOfIgnoreCase( "Unique\rID" ) );
+    }
+
+    @Test
+    public void unknownNames()
+    {
+        HeaderDictionary dictionary = HeaderDictionary.of( "Unique-ID", "Event-Name" );
+        byte[] bytes = "Unique-IDs".getBytes( StandardCharsets.US_ASCII );
+
+        assertEquals( -1, dictionary.indexOf( bytes, 0, bytes.length ) );
+        assertEquals( -1, dictionary.indexOfIgnoreCase( "" ) );
+        assertEquals( -1, dictionary.indexOfIgnoreCase( "Event" ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void repeatedName()
+    {
+        HeaderDictionary.of( "Content-Type", "content-type" );
+    }
+
+    @Test
+    public void eslHeaderNames()
+    {
+        ByteBuf buffer = Unpooled.copiedBuffer( "content-LENGTH: 10\n", StandardCharsets.US_ASCII );
+
+        assertSame( Name.CONTENT_LENGTH, Name.fromLiteral( "Content-Length" ) );
+        assertSame( Name.JOB_UUID, Name.fromLiteral( "job-uuid" ) );
+        assertNull( Name.fromLiteral( "Event-Name" ) );
+        assertNull( Name.fromLiteral( null ) );
+        for ( Name name : Name.values() )
+        {
+            assertSame( name, Name.fromLiteral( name.literal() ) );
+        }
+        assertEquals( 0, HeaderDictionary.of( "Content-Length" ).indexOfIgnoreCase( buffer, 0, 14 ) );
+    }
+}
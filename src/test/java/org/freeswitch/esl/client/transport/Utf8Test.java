@@ -0,0 +1,60 @@
+package org.freeswitch.esl.client.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+public class Utf8Test
+{
+    @Test
+    public void asciiCheckCoversEveryByte()
+    {
+        byte[] bytes = new byte[100];
+        Arrays.fill( bytes, (byte) 'a' );
+        assertTrue( Utf8.isAscii( bytes, 0, bytes.length ) );
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            bytes[i] = (byte) 0xC3;
+            assertFalse( Utf8.isAscii( bytes, 0, bytes.length ) );
+            assertEquals( i < 8, Utf8.isAscii( bytes, 8, bytes.length ) );
+            bytes[i] = 'a';
+        }
+    }
+
+    @Test
+    public void decodesAsciiAndUtf8()
+    {
+        String text = "Caller-Caller-ID-Name: Fran\u00e7ois M\u00fcller \u20ac\ud83d\ude00";
+        byte[] bytes = ( "x" + text + "y" ).getBytes( StandardCharsets.UTF_8 );
+        assertEquals( text, Utf8.decode( bytes, 1, bytes.length - 1 ) );
+        assertEquals( "Caller", Utf8.decode( bytes, 1, 7 ) );
+        assertEquals( "", Utf8.decode( bytes, 1, 1 ) );
+    }
+
+    @Test
+    public void decodesHeapAndDirectBuffers()
+    {
+        String text = "Jos\u00e9 \u20ac";
+        ByteBuf heap = Unpooled.copiedBuffer( "xx" + text, StandardCharsets.UTF_8 );
+        ByteBuf direct = Unpooled.directBuffer().writeBytes( heap.duplicate() );
+        // a slice, whose array starts before it
+        assertEquals( text, Utf8.decode( heap.slice( 1, heap.readableBytes() - 1 ), 1, heap.readableBytes() - 1 ) );
+        assertEquals( text, Utf8.decode( direct, 2, direct.writerIndex() ) );
+        heap.release();
+        direct.release();
+    }
+
+    @Test
+    public void malformedSequenceDecodedAsReplacement()
+    {
+        byte[] bytes = { 'a', (byte) 0xC3, 'b' };
+        assertEquals( "a\ufffdb", Utf8.decode( bytes, 0, bytes.length ) );
+    }
+}
@@ -0,0 +1,74 @@
+package org.freeswitch.esl.client.transport.event;
+
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a decoded CHANNEL_CREATE plain message into an {@link EslEvent}, reading either
+ * the handful of headers a typical listener uses or every header, and of reading the same few
+ * headers from an event decoded with a {@link HeaderProjection} on them.
+ * <p/>
+ * Run with:
+ * <pre>
+ *   java -cp &lt;test classpath&gt; org.openjdk.jmh.Main EslEventBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EslEventBenchmark {
+
+	private static final HeaderProjection PROJECTION =
+			HeaderProjection.of("Unique-ID", "Channel-State", "Caller-Caller-ID-Number");
+
+	private EslMessage message;
+
+	@Setup
+	public void setup() throws Exception {
+		message = EslEventTest.decode(EslEventTest.plainEvent(EslEventTest.resource("events/channel_create.txt")));
+	}
+
+	@Benchmark
+	public void readFewHeaders(Blackhole blackhole) {
+		final EslEvent event = new EslEvent(message);
+		final Map<String, String> headers = event.getEventHeaders();
+		blackhole.consume(event.getEventName());
+		blackhole.consume(headers.get("Unique-ID"));
+		blackhole.consume(headers.get("Channel-State"));
+		blackhole.consume(headers.get("Caller-Caller-ID-Number"));
+	}
+
+	@Benchmark
+	public void readProjectedHeaders(Blackhole blackhole) {
+		final EslEvent event = new EslEvent(message, PROJECTION);
+		final Map<String, String> headers = event.getEventHeaders();
+		blackhole.consume(event.getEventName());
+		blackhole.consume(headers.get("Unique-ID"));
+		blackhole.consume(headers.get("Channel-State"));
+		blackhole.consume(headers.get("Caller-Caller-ID-Number"));
+	}
+
+	@Benchmark
+	public void readAllHeaders(Blackhole blackhole) {
+		final EslEvent event = new EslEvent(message);
+		for (Map.Entry<String, String> header : event.getEventHeaders().entrySet()) {
+			blackhole.consume(header.getValue());
+		}
+	}
+}
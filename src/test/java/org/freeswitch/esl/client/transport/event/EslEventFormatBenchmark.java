@@ -0,0 +1,85 @@
+package org.freeswitch.esl.client.transport.event;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end cost of a CHANNEL_CREATE event received as {@code text/event-plain},
+ * {@code text/event-json} or {@code text/event-xml}: decoding the frame, creating the {@link EslEvent} and reading either a
+ * few headers or all of them.
+ * <p/>
+ * Run with:
+ * <pre>
+ *   java -cp &lt;test classpath&gt; org.openjdk.jmh.Main EslEventFormatBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EslEventFormatBenchmark {
+
+	@Param({"plain", "json", "xml"})
+	public String format;
+
+	private ByteBuf frame;
+	private EmbeddedChannel channel;
+
+	@Setup
+	public void setup() throws Exception {
+		final String event;
+		if (format.equals("json")) {
+			event = EslEventTest.jsonEvent(EslEventTest.resource("events/channel_create.json"));
+		} else if (format.equals("xml")) {
+			event = EslEventTest.xmlEvent(EslEventTest.resource("events/channel_create.xml"));
+		} else {
+			event = EslEventTest.plainEvent(EslEventTest.resource("events/channel_create.txt"));
+		}
+		frame = Unpooled.copiedBuffer(event, StandardCharsets.UTF_8);
+		channel = new EmbeddedChannel(new EslFrameDecoder(8192));
+	}
+
+	private EslEvent receive() {
+		channel.writeInbound(frame.retainedDuplicate());
+		return new EslEvent((EslMessage) channel.readInbound());
+	}
+
+	@Benchmark
+	public void readFewHeaders(Blackhole blackhole) {
+		final EslEvent event = receive();
+		final Map<String, String> headers = event.getEventHeaders();
+		blackhole.consume(event.getEventName());
+		blackhole.consume(headers.get("Unique-ID"));
+		blackhole.consume(headers.get("Channel-State"));
+		blackhole.consume(headers.get("Caller-Caller-ID-Number"));
+	}
+
+	@Benchmark
+	public void readAllHeaders(Blackhole blackhole) {
+		final EslEvent event = receive();
+		for (Map.Entry<String, String> header : event.getEventHeaders().entrySet()) {
+			blackhole.consume(header.getValue());
+		}
+	}
+}
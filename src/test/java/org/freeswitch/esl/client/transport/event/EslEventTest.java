@@ -0,0 +1,349 @@
+package org.freeswitch.esl.client.transport.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.io.Resources;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.junit.Test;
+
+public class EslEventTest
+{
+    @Test
+    public void plainEventHeaders() throws Exception
+    {
+        EslEvent event = new EslEvent( decode( plainEvent( resource( "events/channel_create.txt" ) ) ) );
+
+        assertEquals( "CHANNEL_CREATE", event.getEventName() );
+        assertEquals( 1511184063893952L, event.getEventDateTimestamp() );
+        assertEquals( "2017-11-20 14:21:03", event.getEventDateLocal() );
+        assertEquals( "6b4d2e1c-4a5b-11e7-b7d4-3b5e8f1c9a21", event.getEventHeaders().get( "Unique-ID" ) );
+        assertEquals( "J\u00fcrgen M\u00fcller", event.getEventHeaders().get( "Caller-Caller-ID-Name" ) );
+        assertEquals( "sofia/internal/1001@10.0.0.21", event.getEventHeaders().get( "Channel-Name" ) );
+        assertNull( event.getEventHeaders().get( "unique-id" ) );
+        assertFalse( event.getEventHeaders().containsKey( "No-Such-Header" ) );
+        assertFalse( event.hasEventBody() );
+    }
+
+    @Test
+    public void eventHeadersMapView() throws Exception
+    {
+        String headers = resource( "events/channel_create.txt" );
+        EslEvent event = new EslEvent( decode( plainEvent( headers ) ) );
+
+        Map<String, String> copy = new HashMap<>( event.getEventHeaders() );
+        assertEquals( headers.split( "\n" ).length, copy.size() );
+        assertEquals( copy, event.getEventHeaders() );
+        assertEquals( "acme", copy.get( "variable_tenant_id" ) );
+    }
+
+    @Test
+    public void wellKnownHeaderNamesAreCanonical() throws Exception
+    {
+        EslEvent event = new EslEvent( decode( plainEvent( resource( "events/channel_create.txt" ) ) ) );
+
+        Map<String, String> keys = new HashMap<>();
+        for ( String name : event.getEventHeaders().keySet() )
+        {
+            keys.put( name, name );
+        }
+        assertSame( "Unique-ID", keys.get( "Unique-ID" ) );
+        assertSame( "Caller-Caller-ID-Name", keys.get( "Caller-Caller-ID-Name" ) );
+        assertSame( "variable_sip_from_user", keys.get( "variable_sip_from_user" ) );
+        assertSame( EslEventHeaderNames.EVENT_NAME, event.getEventHeaders().keySet().iterator().next() );
+    }
+
+    @Test
+    public void repeatedHeaderAndEventBody() throws Exception
+    {
+        String headers = "Event-Name: BACKGROUND_JOB\n"
+                + "Job-UUID: 7f4db78a-17d7-11dd-b7a0-db4edd065621\n"
+                + "Job-Command: originate\n"
+                + "Job-Command: status\n"
+                + "Content-Length: 41\n"
+                + "\n"
+                + "+OK 7f4de4bc-17d7-11dd-b7a0-db4edd065621\n";
+        EslEvent event = new EslEvent( decode( plainEvent( headers ) ) );
+
+        assertEquals( "status", event.getEventHeaders().get( "Job-Command" ) );
+        assertEquals( 4, event.getEventHeaders().size() );
+        assertTrue( event.hasEventBody() );
+        assertEquals( 1, event.getEventBodyLines().size() );
+        assertEquals( "+OK 7f4de4bc-17d7-11dd-b7a0-db4edd065621", event.getEventBodyLines().get( 0 ) );
+    }
+
+    @Test
+    public void headerNamesWithSameHash() throws Exception
+    {
+        // "Aa" and "BB" have the same String hash code
+        String headers = "Aa: 1\n"
+                + "BB: 2\n"
+                + "Aa: 3\n";
+        EslEvent event = new EslEvent( decode( plainEvent( headers ) ) );
+
+        assertEquals( "3", event.getEventHeaders().get( "Aa" ) );
+        assertEquals( "2", event.getEventHeaders().get( "BB" ) );
+        assertNull( event.getEventHeaders().get( "C#" ) );
+        assertEquals( 2, event.getEventHeaders().size() );
+        assertEquals( "BB", event.getEventHeaders().keySet().iterator().next() );
+    }
+
+    @Test
+    public void nonAsciiHeaderNames() throws Exception
+    {
+        String headers = "Event-Name: CUSTOM\n"
+                + "variable_\u00e9tage: 3\n"
+                + "variable_\u00e9tage: 4\n"
+                + "variable_rue: 5\n";
+        EslEvent event = new EslEvent( decode( plainEvent( headers ) ) );
+
+        assertEquals( "4", event.getEventHeaders().get( "variable_\u00e9tage" ) );
+        assertEquals( "5", event.getEventHeaders().get( "variable_rue" ) );
+        assertEquals( 3, event.getEventHeaders().size() );
+        assertTrue( new HashMap<>( event.getEventHeaders() ).containsKey( "variable_\u00e9tage" ) );
+    }
+
+    @Test
+    public void jsonEventHeadersMatchPlain() throws Exception
+    {
+        EslEvent plain = new EslEvent( decode( plainEvent( resource( "events/channel_create.txt" ) ) ) );
+        EslEvent json = new EslEvent( decode( jsonEvent( resource( "events/channel_create.json" ) ) ) );
+
+        assertSame( "CHANNEL_CREATE", json.getEventName() );
+        assertEquals( "J\u00fcrgen M\u00fcller", json.getEventHeaders().get( "Caller-Caller-ID-Name" ) );
+        assertEquals( plain.getEventHeaders(), new HashMap<>( json.getEventHeaders() ) );
+        assertFalse( json.hasEventBody() );
+    }
+
+    @Test
+    public void jsonEscapesArraysAndBody() throws Exception
+    {
+        String body = "{\"Event-Name\": \"BACKGROUND_JOB\", \"Job-UUID\": \"7f4db78a\",\n"
+                + "  \"variable_\\u00fc\": \"\\\"quoted\\\"\\ttab\", \"Core-Count\": 4,\n"
+                + "  \"variable_array\": [\"a\", \"b|c\"], \"Job-UUID\": \"8e5ec89b\",\n"
+                + "  \"Content-Length\": \"14\", \"_body\": \"+OK done\\n\\nnext\\n\"}";
+        EslEvent event = new EslEvent( decode( jsonEvent( body ) ) );
+
+        assertEquals( "BACKGROUND_JOB", event.getEventName() );
+        assertEquals( "8e5ec89b", event.getEventHeaders().get( "Job-UUID" ) );
+        assertEquals( "\"quoted\"\ttab", event.getEventHeaders().get( "variable_\u00fc" ) );
+        assertEquals( "4", event.getEventHeaders().get( "Core-Count" ) );
+        assertEquals( "ARRAY::a|:b|c", event.getEventHeaders().get( "variable_array" ) );
+        assertEquals( 6, event.getEventHeaders().size() );
+        assertFalse( event.getEventHeaders().containsKey( "_body" ) );
+        assertEquals( 2, event.getEventBodyLines().size() );
+        assertEquals( "+OK done", event.getEventBodyLines().get( 0 ) );
+        assertEquals( "next", event.getEventBodyLines().get( 1 ) );
+    }
+
+    @Test
+    public void eventReadByThreadsAtOnce() throws Exception
+    {
+        String headers = resource( "events/channel_create.txt" );
+        Map<String, String> expected = new HashMap<>( new EslEvent( decode( plainEvent( headers ) ) ).getEventHeaders() );
+        ExecutorService readers = Executors.newFixedThreadPool( 4 );
+        try
+        {
+            for ( int round = 0; round < 20; round++ )
+            {
+                EslEvent event = new EslEvent( decode( jsonEvent( resource( "events/channel_create.json" ) ) ) );
+                List<Future<Map<String, String>>> reads = new ArrayList<>();
+                for ( int i = 0; i < 4; i++ )
+                {
+                    reads.add( readers.submit( () -> {
+                        Map<String, String> read = new HashMap<>();
+                        for ( String name : expected.keySet() )
+                        {
+                            read.put( name, event.getEventHeaders().get( name ) );
+                        }
+                        return read;
+                    } ) );
+                }
+                for ( Future<Map<String, String>> read : reads )
+                {
+                    assertEquals( expected, read.get() );
+                }
+            }
+        }
+        finally
+        {
+            readers.shutdown();
+        }
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void malformedJsonEvent()
+    {
+        new EslEvent( decode( jsonEvent( "{\"Event-Name\": \"HEARTBEAT\" \"Idle-CPU\": \"97.5\"}" ) ) );
+    }
+
+    @Test
+    public void xmlEventHeadersMatchPlain() throws Exception
+    {
+        EslEvent plain = new EslEvent( decode( plainEvent( resource( "events/channel_create.txt" ) ) ) );
+        EslEvent xml = new EslEvent( decode( xmlEvent( resource( "events/channel_create.xml" ) ) ) );
+
+        assertSame( "CHANNEL_CREATE", xml.getEventName() );
+        assertSame( EslEventHeaderNames.EVENT_NAME, xml.getEventHeaders().keySet().iterator().next() );
+        assertEquals( "J\u00fcrgen M\u00fcller", xml.getEventHeaders().get( "Caller-Caller-ID-Name" ) );
+        assertEquals( plain.getEventHeaders(), new HashMap<>( xml.getEventHeaders() ) );
+        assertFalse( xml.hasEventBody() );
+    }
+
+    @Test
+    public void xmlEventBody() throws Exception
+    {
+        String body = "<event>\n"
+                + "  <headers>\n"
+                + "    <Event-Name>BACKGROUND_JOB</Event-Name>\n"
+                + "    <Job-UUID>7f4db78a</Job-UUID>\n"
+                + "    <Job-Command>originate</Job-Command>\n"
+                + "    <Job-Command-Arg>user%2F1001%20%26park()</Job-Command-Arg>\n"
+                + "    <Content-Length>24</Content-Length>\n"
+                + "  </headers>\n"
+                + "  <body>+OK done\n\n&lt;next&gt;\n</body>\n"
+                + "</event>";
+        EslEvent event = new EslEvent( decode( xmlEvent( body ) ) );
+
+        assertEquals( "BACKGROUND_JOB", event.getEventName() );
+        assertEquals( "user/1001 &park()", event.getEventHeaders().get( "Job-Command-Arg" ) );
+        assertEquals( 5, event.getEventHeaders().size() );
+        assertTrue( event.hasEventBody() );
+        assertEquals( 2, event.getEventBodyLines().size() );
+        assertEquals( "+OK done", event.getEventBodyLines().get( 0 ) );
+        assertEquals( "<next>", event.getEventBodyLines().get( 1 ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void xmlEventWithDoctype()
+    {
+        new EslEvent( decode( xmlEvent( "<!DOCTYPE event [<!ENTITY name SYSTEM \"file:///etc/passwd\">]>\n"
+                + "<event><headers><Event-Name>&name;</Event-Name></headers></event>" ) ) );
+    }
+
+    @Test
+    public void projectedEventHeaders() throws Exception
+    {
+        HeaderProjection projection = HeaderProjection.of( "Unique-ID", "Channel-State", "variable_tenant_id", "No-Such-Header" );
+        for ( String frame : new String[] {
+                plainEvent( resource( "events/channel_create.txt" ) ),
+                jsonEvent( resource( "events/channel_create.json" ) ),
+                xmlEvent( resource( "events/channel_create.xml" ) ) } )
+        {
+            EslEvent event = new EslEvent( decode( frame ), projection );
+
+            assertEquals( "CHANNEL_CREATE", event.getEventName() );
+            assertEquals( "6b4d2e1c-4a5b-11e7-b7d4-3b5e8f1c9a21", event.getEventHeaders().get( "Unique-ID" ) );
+            assertEquals( "CS_INIT", event.getEventHeaders().get( "Channel-State" ) );
+            assertEquals( "acme", event.getEventHeaders().get( "variable_tenant_id" ) );
+            assertNull( event.getEventHeaders().get( "Channel-Name" ) );
+            assertEquals( 4, event.getEventHeaders().size() );
+        }
+    }
+
+    @Test
+    public void projectionKeepsJobUuidAndBody() throws Exception
+    {
+        String headers = "Event-Name: BACKGROUND_JOB\n"
+                + "Job-UUID: 7f4db78a-17d7-11dd-b7a0-db4edd065621\n"
+                + "Job-Command: status\n"
+                + "Content-Length: 41\n"
+                + "\n"
+                + "+OK 7f4de4bc-17d7-11dd-b7a0-db4edd065621\n";
+        String custom = new String( "X-Custom" );
+        EslEvent event = new EslEvent( decode( plainEvent( "X-Custom: 1\n" + headers ) ), HeaderProjection.of( custom ) );
+
+        assertEquals( 3, event.getEventHeaders().size() );
+        // keyed by the names of the projection
+        assertSame( custom, event.getEventHeaders().keySet().iterator().next() );
+        assertEquals( "7f4db78a-17d7-11dd-b7a0-db4edd065621", event.getEventHeaders().get( "Job-UUID" ) );
+        assertEquals( "+OK 7f4de4bc-17d7-11dd-b7a0-db4edd065621", event.getEventBodyLines().get( 0 ) );
+        assertEquals( Arrays.asList( "Event-Name", "Job-UUID", "Unique-ID", "Event-Subclass" ),
+                HeaderProjection.of().names() );
+    }
+
+    @Test
+    public void projectionWithMoreHeaders()
+    {
+        HeaderProjection projection = HeaderProjection.of( "X-Custom" );
+
+        assertSame( projection, projection.with( Arrays.asList( "Unique-ID", "X-Custom" ) ) );
+        HeaderProjection merged = projection.with( Arrays.asList( "X-Custom", "Channel-State" ) );
+        assertTrue( merged.contains( "Channel-State" ) );
+        assertTrue( merged.contains( "X-Custom" ) );
+        assertFalse( projection.contains( "Channel-State" ) );
+    }
+
+    @Test
+    public void repeatedProjectedHeaders() throws Exception
+    {
+        String headers = "X-Custom: 1\n"
+                + "X-Custom: 2\n"
+                + "Event-Name: CUSTOM\n"
+                + "X-Custom: 3\n"
+                + "X-Other: 4\n"
+                + "Job-UUID: 5\n"
+                + "X-Custom: 6\n";
+        EslEvent event = new EslEvent( decode( plainEvent( headers ) ), HeaderProjection.of( "X-Custom" ) );
+
+        assertEquals( "6", event.getEventHeaders().get( "X-Custom" ) );
+        assertEquals( "CUSTOM", event.getEventName() );
+        assertEquals( "5", event.getEventHeaders().get( "Job-UUID" ) );
+        assertEquals( 3, event.getEventHeaders().size() );
+        assertEquals( 3, new HashMap<>( event.getEventHeaders() ).size() );
+    }
+
+    static String resource( String name ) throws Exception
+    {
+        return Resources.toString( Resources.getResource( name ), StandardCharsets.UTF_8 );
+    }
+
+    static String plainEvent( String headers )
+    {
+        String body = headers + '\n';
+        return "Content-Length: " + body.getBytes( StandardCharsets.UTF_8 ).length + '\n'
+                + "Content-Type: text/event-plain\n"
+                + '\n'
+                + body;
+    }
+
+    static String jsonEvent( String json )
+    {
+        return "Content-Length: " + json.getBytes( StandardCharsets.UTF_8 ).length + '\n'
+                + "Content-Type: text/event-json\n"
+                + '\n'
+                + json;
+    }
+
+    static String xmlEvent( String xml )
+    {
+        return "Content-Length: " + xml.getBytes( StandardCharsets.UTF_8 ).length + '\n'
+                + "Content-Type: text/event-xml\n"
+                + '\n'
+                + xml;
+    }
+
+    static EslMessage decode( String frame )
+    {
+        EmbeddedChannel channel = new EmbeddedChannel( new EslFrameDecoder( 8192 ) );
+        channel.writeInbound( Unpooled.copiedBuffer( frame, StandardCharsets.UTF_8 ) );
+        channel.finish();
+        return (EslMessage) channel.readInbound();
+    }
+}
@@ -0,0 +1,67 @@
+package org.freeswitch.esl.client.transport.event;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of URL decoding every header value of a typical CHANNEL_CREATE plain event, with the
+ * {@link EslValueDecoder} and with {@link URLDecoder} as used before.
+ * <p/>
+ * Run with:
+ * <pre>
+ *   java -cp &lt;test classpath&gt; org.openjdk.jmh.Main EslValueDecoderBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EslValueDecoderBenchmark {
+
+	private byte[] bytes;
+	// valueStart, valueEnd of each header line
+	private int[] bounds;
+
+	@Setup
+	public void setup() throws Exception {
+		final String[] lines = EslEventTest.resource("events/channel_create.txt").split("\n");
+		bytes = String.join("\n", lines).getBytes(StandardCharsets.ISO_8859_1);
+		bounds = new int[lines.length * 2];
+		int lineStart = 0;
+		for (int i = 0; i < lines.length; i++) {
+			bounds[i * 2] = lineStart + lines[i].indexOf(": ") + 2;
+			bounds[i * 2 + 1] = lineStart + lines[i].length();
+			lineStart += lines[i].length() + 1;
+		}
+	}
+
+	@Benchmark
+	public void eslValueDecoder(Blackhole blackhole) {
+		for (int i = 0; i < bounds.length; i += 2) {
+			blackhole.consume(EslValueDecoder.decode(bytes, bounds[i], bounds[i + 1]));
+		}
+	}
+
+	@Benchmark
+	public void urlDecoder(Blackhole blackhole) throws Exception {
+		for (int i = 0; i < bounds.length; i += 2) {
+			final String value = new String(bytes, bounds[i], bounds[i + 1] - bounds[i], StandardCharsets.ISO_8859_1);
+			blackhole.consume(URLDecoder.decode(value, "UTF-8"));
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package org.freeswitch.esl.client.transport.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class EslValueDecoderTest
+{
+    @Test
+    public void plainValue()
+    {
+        assertEquals( "sofia/internal/1001@10.0.0.21", decode( "sofia/internal/1001@10.0.0.21" ) );
+        assertEquals( "", decode( "" ) );
+    }
+
+    @Test
+    public void escapedValue()
+    {
+        assertEquals( "2017-11-20 14:21:03", decode( "2017-11-20%2014%3A21%3A03" ) );
+        assertEquals( "a b", decode( "a+b" ) );
+        assertEquals( "J\u00fcrgen M\u00fcller", decode( "J%C3%BCrgen%20M%C3%BCller" ) );
+        assertEquals( "\u20ac%", decode( "%e2%82%AC%25" ) );
+    }
+
+    @Test
+    public void malformedEscapeKeptAsIs()
+    {
+        assertEquals( "100%", decode( "100%" ) );
+        assertEquals( "%4 %zz%", decode( "%4%20%zz%" ) );
+    }
+
+    @Test
+    public void valueWithinLargerArray()
+    {
+        byte[] bytes = "Caller-Caller-ID-Name: J%C3%BCrgen\n".getBytes( StandardCharsets.US_ASCII );
+        assertEquals( "J\u00fcrgen", EslValueDecoder.decode( bytes, 23, bytes.length - 1 ) );
+    }
+
+    @Test
+    public void valueLongerThanScratchBuffer()
+    {
+        StringBuilder encoded = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for ( int i = 0; i < 5000; i++ )
+        {
+            encoded.append( "v%3D" );
+            expected.append( "v=" );
+        }
+        assertEquals( expected.toString(), decode( encoded.toString() ) );
+        assertEquals( "x y", decode( "x+y" ) );
+    }
+
+    @Test
+    public void stringValue()
+    {
+        String plain = "sofia/internal/1001@10.0.0.21";
+        assertSame( plain, EslValueDecoder.decode( plain ) );
+        assertEquals( "J\u00fcrgen M\u00fcller", EslValueDecoder.decode( "J%C3%BCrgen+M%C3%BCller" ) );
+        assertEquals( "\u20ac 100%", EslValueDecoder.decode( "\u20ac+100%" ) );
+    }
+
+    @Test
+    public void jsonValue()
+    {
+        assertEquals( "sofia/internal/1001@10.0.0.21", decodeJson( "sofia/internal/1001@10.0.0.21" ) );
+        assertEquals( "\"a\"\\/\b\f\n\r\t", decodeJson( "\\\"a\\\"\\\\\\/\\b\\f\\n\\r\\t" ) );
+        assertEquals( "J\u00fcrgen \u20ac", decodeJson( "J\\u00fcrgen \\u20AC" ) );
+        assertEquals( "J\u00fcrgen", decodeJson( "J\u00fcrgen" ) );
+        assertEquals( "\ud83d\ude00!", decodeJson( "\\ud83d\\ude00!" ) );
+    }
+
+    @Test
+    public void malformedJsonEscapeKeptAsIs()
+    {
+        assertEquals( "\\x \\u12", decodeJson( "\\x \\u12" ) );
+        assertEquals( "\ufffd!", decodeJson( "\\ud83d!" ) );
+    }
+
+    private static String decodeJson( String value )
+    {
+        byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+        return EslValueDecoder.decodeJson( bytes, 0, bytes.length );
+    }
+
+    private static String decode( String value )
+    {
+        byte[] bytes = value.getBytes( StandardCharsets.US_ASCII );
+        return EslValueDecoder.decode( bytes, 0, bytes.length );
+    }
+}
@@ -0,0 +1,144 @@
+package org.freeswitch.esl.client.transport.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.IllegalReferenceCountException;
+import io.netty.util.ReferenceCounted;
+import org.freeswitch.esl.client.transport.message.EslFrameDecoder;
+import org.freeswitch.esl.client.transport.message.EslMessage;
+import org.junit.Test;
+
+public class PooledEslEventTest
+{
+    @Test
+    public void eventRetainsMessageUntilReleased() throws Exception
+    {
+        EslMessage message = decodeRetained( EslEventTest.plainEvent( "Event-Name: HEARTBEAT\nIdle-CPU: 97.5" ) );
+        EslEvent event = EslEvent.newPooledInstance( message );
+        // as the handler does once the message has been processed
+        ( (ReferenceCounted) message ).release();
+
+        ReferenceCounted counted = (ReferenceCounted) event;
+        assertEquals( 1, counted.refCnt() );
+        assertEquals( 1, ( (ReferenceCounted) message ).refCnt() );
+        assertSame( "HEARTBEAT", event.getEventName() );
+        assertEquals( "97.5", event.getEventHeaders().get( "Idle-CPU" ) );
+
+        counted.retain();
+        assertFalse( counted.release() );
+        assertEquals( "97.5", event.getEventHeaders().get( "Idle-CPU" ) );
+        assertTrue( counted.release() );
+        assertEquals( 0, counted.refCnt() );
+    }
+
+    @Test
+    public void releasedEventIsNotAccessible() throws Exception
+    {
+        EslMessage message = decodeRetained( EslEventTest.plainEvent( "Event-Name: HEARTBEAT" ) );
+        EslEvent event = EslEvent.newPooledInstance( message );
+        ( (ReferenceCounted) message ).release();
+        Map<String, String> headers = event.getEventHeaders();
+        ( (ReferenceCounted) event ).release();
+
+        try
+        {
+            event.getEventName();
+            fail( "released event was readable" );
+        }
+        catch ( IllegalReferenceCountException expected )
+        {
+        }
+        try
+        {
+            headers.get( "Event-Name" );
+            fail( "headers of released event were readable" );
+        }
+        catch ( IllegalReferenceCountException expected )
+        {
+        }
+        try
+        {
+            ( (ReferenceCounted) event ).release();
+            fail( "released event was released again" );
+        }
+        catch ( IllegalReferenceCountException expected )
+        {
+        }
+    }
+
+    @Test
+    public void recycledEventCarriesNextMessage() throws Exception
+    {
+        String headers = EslEventTest.resource( "events/channel_create.txt" );
+        for ( int i = 0; i < 3; i++ )
+        {
+            EslMessage message = decodeRetained( EslEventTest.plainEvent( headers ) );
+            EslEvent event = EslEvent.newPooledInstance( message );
+            ( (ReferenceCounted) message ).release();
+            assertEquals( "CHANNEL_CREATE", event.getEventName() );
+            assertEquals( headers.split( "\n" ).length, event.getEventHeaders().size() );
+            ( (ReferenceCounted) event ).release();
+
+            message = decodeRetained( EslEventTest.plainEvent( "Event-Name: CUSTOM\nEvent-Subclass: test::" + i ) );
+            event = EslEvent.newPooledInstance( message );
+            ( (ReferenceCounted) message ).release();
+            assertEquals( "test::" + i, event.getEventHeaders().get( "Event-Subclass" ) );
+            assertEquals( 2, event.getEventHeaders().size() );
+            assertFalse( event.getEventHeaders().containsKey( "Unique-ID" ) );
+            ( (ReferenceCounted) event ).release();
+        }
+    }
+
+    @Test
+    public void jsonAndPlainEventsShareThePool() throws Exception
+    {
+        for ( int i = 0; i < 3; i++ )
+        {
+            EslMessage message = decodeRetained( EslEventTest.jsonEvent( "{\"Event-Name\": \"CUSTOM\", \"Event-Subclass\": \"json::" + i + "\"}" ) );
+            EslEvent event = EslEvent.newPooledInstance( message );
+            ( (ReferenceCounted) message ).release();
+            assertEquals( "json::" + i, event.getEventHeaders().get( "Event-Subclass" ) );
+            ( (ReferenceCounted) event ).release();
+
+            message = decodeRetained( EslEventTest.plainEvent( "Event-Name: CUSTOM\nEvent-Subclass: plain::" + i ) );
+            event = EslEvent.newPooledInstance( message );
+            ( (ReferenceCounted) message ).release();
+            assertEquals( "plain::" + i, event.getEventHeaders().get( "Event-Subclass" ) );
+            ( (ReferenceCounted) event ).release();
+        }
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void onlyEventsArePooled()
+    {
+        EslMessage message = decodeRetained( "Content-Type: command/reply\nReply-Text: +OK\n\n" );
+        try
+        {
+            EslEvent.newPooledInstance( message );
+        }
+        finally
+        {
+            ( (ReferenceCounted) message ).release();
+        }
+    }
+
+    private static EslMessage decodeRetained( String frame )
+    {
+        EmbeddedChannel channel = new EmbeddedChannel( new EslFrameDecoder( 8192, false, true ) );
+        ByteBuf buffer = PooledByteBufAllocator.DEFAULT.directBuffer();
+        buffer.writeCharSequence( frame, StandardCharsets.UTF_8 );
+        channel.writeInbound( buffer );
+        channel.finish();
+        return (EslMessage) channel.readInbound();
+    }
+}
@@ -0,0 +1,90 @@
+package org.freeswitch.esl.client.transport.message;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the lines of a 4MB {@code api/response}, as {@code show channels} returns on a busy server,
+ * delivered in 64KB reads: either buffered in full and split into body lines, or streamed to a
+ * line consumer as it arrives.
+ * <p/>
+ * Run with:
+ * <pre>
+ *   java -cp &lt;test classpath&gt; org.openjdk.jmh.Main EslApiResponseBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EslApiResponseBenchmark {
+
+	private static final int READ_SIZE = 64 * 1024;
+
+	private EmbeddedChannel channel;
+	private ByteBuf frame;
+	private Blackhole blackhole;
+
+	@Setup
+	public void setup(Blackhole blackhole) {
+		this.blackhole = blackhole;
+		final StringBuilder body = new StringBuilder();
+		for (int i = 0; body.length() < 4 * 1024 * 1024; i++) {
+			body.append("6b4d2e1c-4a5b-11e7-b7d4-").append(String.format("%012d", i))
+					.append(",outbound,2017-11-20 14:21:03,1511184063,sofia/internal/1001@10.0.0.21,CS_EXECUTE,")
+					.append("Caller,1001,10.0.0.21,1002,park,,PCMA,8000,64000,PCMA,8000,64000,,fs01.example.com\n");
+		}
+		frame = Unpooled.unreleasableBuffer(Unpooled.copiedBuffer(
+				"Content-Type: api/response\nContent-Length: " + body.length() + "\n\n" + body,
+				StandardCharsets.US_ASCII));
+		channel = new EmbeddedChannel(new EslFrameDecoder(8192));
+	}
+
+	@TearDown
+	public void tearDown() {
+		channel.finishAndReleaseAll();
+	}
+
+	private void deliver() {
+		final int length = frame.readableBytes();
+		for (int offset = 0; offset < length; offset += READ_SIZE) {
+			channel.writeInbound(frame.slice(offset, Math.min(READ_SIZE, length - offset)));
+		}
+	}
+
+	@Benchmark
+	public void buffered() {
+		channel.attr(EslFrameDecoder.BODY_CONSUMERS).set(null);
+		deliver();
+		final EslMessage message = channel.readInbound();
+		for (String line : message.getBodyLines()) {
+			blackhole.consume(line);
+		}
+	}
+
+	@Benchmark
+	public void streamed() {
+		final IEslBodyConsumer lines = IEslBodyConsumer.lines(blackhole::consume);
+		channel.attr(EslFrameDecoder.BODY_CONSUMERS).set(() -> lines);
+		deliver();
+		blackhole.consume(channel.readInbound());
+	}
+}
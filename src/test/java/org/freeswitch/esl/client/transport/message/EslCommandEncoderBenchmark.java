@@ -0,0 +1,98 @@
+package org.freeswitch.esl.client.transport.message;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.string.StringEncoder;
+import org.freeswitch.esl.client.transport.SendMsg;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding an {@code originate} api command and an execute {@code sendmsg}, as built and encoded
+ * before (string concatenation then {@link StringEncoder}) and as {@link EslCommand}s written by the
+ * {@link EslCommandEncoder}.
+ * <p/>
+ * Run with:
+ * <pre>
+ *   java -cp &lt;test classpath&gt; org.openjdk.jmh.Main EslCommandEncoderBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EslCommandEncoderBenchmark {
+
+	private static final String ORIGINATE_ARG = "{origination_uuid=6b4d2e1c-4a5b-11e7-b7d4-0242ac110002,"
+			+ "origination_caller_id_number=1001,ignore_early_media=true}sofia/gateway/carrier/15551234567 &park()";
+	private static final String UUID = "6b4d2e1c-4a5b-11e7-b7d4-0242ac110002";
+
+	private EmbeddedChannel stringChannel;
+	private EmbeddedChannel commandChannel;
+
+	@Setup
+	public void setup() {
+		stringChannel = new EmbeddedChannel(new StringEncoder());
+		commandChannel = new EmbeddedChannel(new EslCommandEncoder());
+	}
+
+	@TearDown
+	public void tearDown() {
+		stringChannel.finishAndReleaseAll();
+		commandChannel.finishAndReleaseAll();
+	}
+
+	private static void release(EmbeddedChannel channel) {
+		final ByteBuf out = channel.readOutbound();
+		out.release();
+	}
+
+	@Benchmark
+	public void originateString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("api ").append("originate").append(' ').append(ORIGINATE_ARG);
+		stringChannel.writeOutbound(sb.toString() + "\n\n");
+		release(stringChannel);
+	}
+
+	@Benchmark
+	public void originateCommand() {
+		commandChannel.writeOutbound(EslCommand.api("originate", ORIGINATE_ARG));
+		release(commandChannel);
+	}
+
+	@Benchmark
+	@SuppressWarnings("deprecation")
+	public void sendMsgString() {
+		final SendMsg msg = new SendMsg(UUID).addCallCommand("execute")
+				.addExecuteAppName("playback").addExecuteAppArg("ivr/ivr-welcome.wav");
+		final StringBuilder sb = new StringBuilder();
+		for (String line : msg.getMsgLines()) {
+			sb.append(line).append('\n');
+		}
+		sb.append('\n');
+		stringChannel.writeOutbound(sb.toString());
+		release(stringChannel);
+	}
+
+	@Benchmark
+	public void sendMsgCommand() {
+		final SendMsg msg = new SendMsg(UUID).addCallCommand("execute")
+				.addExecuteAppName("playback").addExecuteAppArg("ivr/ivr-welcome.wav");
+		commandChannel.writeOutbound(msg.toCommand());
+		release(commandChannel);
+	}
+}
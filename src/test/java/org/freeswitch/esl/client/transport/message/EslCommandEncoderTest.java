@@ -0,0 +1,91 @@
+package org.freeswitch.esl.client.transport.message;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.freeswitch.esl.client.transport.SendMsg;
+import org.junit.Test;
+
+public class EslCommandEncoderTest
+{
+    private final EmbeddedChannel embedder = new EmbeddedChannel( new EslCommandEncoder() );
+
+    @Test
+    public void apiCommands()
+    {
+        assertEquals( "api status\n\n", encode( EslCommand.api( "status", null ) ) );
+        assertEquals( "api uuid_kill 1234\n\n", encode( EslCommand.api( "uuid_kill", "1234" ) ) );
+        assertEquals( "bgapi originate sofia/gateway/gw/1000 &park()\n\n",
+                encode( EslCommand.bgapi( "originate", "sofia/gateway/gw/1000 &park()" ) ) );
+        assertEquals( "noevents\n\n", encode( EslCommand.of( "noevents" ) ) );
+    }
+
+    @Test
+    public void backgroundCommandsWithJobUuid()
+    {
+        assertEquals( "bgapi status\nJob-UUID: 1234\n\n", encode( EslCommand.bgapi( "status", null, "1234" ) ) );
+        assertEquals( "bgapi uuid_kill abcd\nJob-UUID: 1234\n\n",
+                encode( EslCommand.bgapi( "uuid_kill", "abcd", "1234" ) ) );
+    }
+
+    @Test
+    public void utf8Arguments()
+    {
+        assertEquals( "api uuid_setvar 1234 caller Fran\u00e7ois \u20ac\ud83d\ude00\n\n",
+                encode( EslCommand.api( "uuid_setvar", "1234 caller Fran\u00e7ois \u20ac\ud83d\ude00" ) ) );
+    }
+
+    @Test
+    public void multiLineCommands()
+    {
+        assertEquals( "sendevent CUSTOM\nEvent-Subclass: test\n\n",
+                encode( EslCommand.lines( Arrays.asList( "sendevent CUSTOM", "Event-Subclass: test" ) ) ) );
+    }
+
+    @Test
+    @SuppressWarnings( "deprecation" )
+    public void sendMsgCommands()
+    {
+        SendMsg msg = new SendMsg( "1234" )
+                .addCallCommand( "execute" )
+                .addExecuteAppName( "playback" )
+                .addExecuteAppArg( "/tmp/\u00e9t\u00e9.wav" )
+                .addLoops( 2 )
+                .addEventLock()
+                .addGenericLine( "X-Custom", "value" );
+        String expected = String.join( "\n", msg.getMsgLines() ) + "\n\n";
+
+        assertEquals( expected, encode( msg.toCommand() ) );
+        assertEquals( "sendmsg\ncall-command: hangup\nhangup-cause: NORMAL_CLEARING\n\n",
+                encode( new SendMsg().addCallCommand( "hangup" ).addHangupCause( "NORMAL_CLEARING" ).toCommand() ) );
+        assertEquals( expected.substring( 0, expected.length() - 2 ), msg.toCommand().toString() );
+    }
+
+    @Test
+    public void encodesIntoDirectBuffers()
+    {
+        embedder.writeOutbound( EslCommand.api( "status", null ) );
+        ByteBuf out = embedder.readOutbound();
+        assertTrue( out.isDirect() );
+        out.release();
+    }
+
+    private String encode( EslCommand command )
+    {
+        embedder.writeOutbound( command );
+        ByteBuf out = embedder.readOutbound();
+        try
+        {
+            return out.toString( StandardCharsets.UTF_8 );
+        }
+        finally
+        {
+            out.release();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.freeswitch.esl.client.transport.message;
+
+import com.google.common.io.Resources;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the {@link EslFrameDecoder} for a typical CHANNEL_CREATE plain event, either
+ * delivered as a whole frame per read or split into TCP segment sized chunks.
+ * <p/>
+ * Run with:
+ * <pre>
+ *   java -cp &lt;test classpath&gt; org.openjdk.jmh.Main EslFrameDecoderBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EslFrameDecoderBenchmark {
+
+	/**
+	 * Size of each inbound read, 0 delivers the whole frame in a single read.
+	 */
+	@Param({"0", "1460"})
+	public int chunkSize;
+
+	/**
+	 * Whether messages are retained slices of the inbound buffer or heap copies.
+	 */
+	@Param({"false", "true"})
+	public boolean retainFrames;
+
+	private EmbeddedChannel channel;
+	private ByteBuf frame;
+
+	@Setup
+	public void setup() throws IOException {
+		channel = new EmbeddedChannel(new EslFrameDecoder(8192, false, retainFrames));
+		frame = Unpooled.unreleasableBuffer(
+				Unpooled.copiedBuffer(plainEventFrame("events/channel_create.txt"), StandardCharsets.UTF_8));
+	}
+
+	@TearDown
+	public void tearDown() {
+		channel.finishAndReleaseAll();
+	}
+
+	@Benchmark
+	public void decodePlainEvent(Blackhole blackhole) {
+		final int length = frame.readableBytes();
+		final int step = chunkSize == 0 ? length : chunkSize;
+		for (int offset = 0; offset < length; offset += step) {
+			channel.writeInbound(frame.slice(offset, Math.min(step, length - offset)));
+		}
+		Object message;
+		while ((message = channel.readInbound()) != null) {
+			blackhole.consume(message);
+			ReferenceCountUtil.release(message);
+		}
+	}
+
+	/**
+	 * Wraps the event headers held in the named classpath resource into a complete
+	 * {@code text/event-plain} frame, as FreeSWITCH would send it.
+	 */
+	static String plainEventFrame(String resource) throws IOException {
+		final String body = Resources.toString(Resources.getResource(resource), StandardCharsets.UTF_8) + '\n';
+		return "Content-Length: " + body.getBytes(StandardCharsets.UTF_8).length + '\n'
+				+ "Content-Type: text/event-plain\n"
+				+ '\n'
+				+ body;
+	}
+}
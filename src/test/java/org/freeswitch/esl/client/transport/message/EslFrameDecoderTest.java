@@ -18,8 +18,10 @@ package org.freeswitch.esl.client.transport.message;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -27,6 +29,8 @@ import java.util.List;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.ReferenceCounted;
 import org.junit.Before;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -130,6 +134,232 @@ public class EslFrameDecoderTest
         assertEquals( 17, result.getBodyLines().size() );
     }
 
+
+    @Test
+    public void messageSplitAcrossReads() throws Exception
+    {
+        List<String> inputLines = new ArrayList<>();
+        inputLines.add( "Content-Type: api/response" );
+        inputLines.add( "Content-Length: 26" );
+        inputLines.add( "" );
+        inputLines.add( "+OK first line" );
+        inputLines.add( "second line" );
+
+        // deliver the frame one byte per read
+        ByteBuf input = createInputBuffer(inputLines, false);
+        while ( input.isReadable() )
+        {
+            assertNull( embedder.readInbound() );
+            embedder.writeInbound(input.readRetainedSlice( 1 ));
+        }
+        input.release();
+
+        EslMessage result = (EslMessage) embedder.readInbound();
+        embedder.finish();
+
+        assertNotNull( result );
+        assertEquals( "api/response", result.getContentType() );
+        assertEquals( Integer.valueOf( 26 ), result.getContentLength() );
+        assertEquals( 2, result.getBodyLines().size() );
+        assertEquals( "+OK first line", result.getBodyLines().get( 0 ) );
+        assertEquals( "second line", result.getBodyLines().get( 1 ) );
+    }
+
+    @Test
+    public void consecutiveMessagesInOneRead() throws Exception
+    {
+        List<String> inputLines = new ArrayList<>();
+        inputLines.add( "Content-Type: command/reply" );
+        inputLines.add( "Reply-Text: +OK accepted" );
+        inputLines.add( "" );
+        inputLines.add( "Content-Type: api/response" );
+        inputLines.add( "Content-Length: 3" );
+        inputLines.add( "" );
+        inputLines.add( "+OK" );
+
+        embedder.writeInbound(createInputBuffer(inputLines, false));
+        embedder.finish();
+
+        EslMessage first = (EslMessage) embedder.readInbound();
+        EslMessage second = (EslMessage) embedder.readInbound();
+
+        assertEquals( "+OK accepted", first.getHeaderValue( EslHeaders.Name.REPLY_TEXT ) );
+        assertEquals( 1, second.getBodyLines().size() );
+        assertEquals( "+OK", second.getBodyLines().get( 0 ) );
+        assertNull( embedder.readInbound() );
+    }
+
+    @Test
+    public void retainedFrameMessage() throws Exception
+    {
+        embedder = new EmbeddedChannel(new EslFrameDecoder(64, false, true));
+
+        List<String> inputLines = new ArrayList<>();
+        inputLines.add( "Content-Type: api/response" );
+        inputLines.add( "Content-Length: 26" );
+        inputLines.add( "" );
+        inputLines.add( "+OK first line" );
+        inputLines.add( "second line" );
+
+        embedder.writeInbound(createInputBuffer(inputLines, false));
+        embedder.finish();
+
+        EslMessage result = (EslMessage) embedder.readInbound();
+        assertTrue( result instanceof ReferenceCounted );
+        assertEquals( 1, ((ReferenceCounted) result).refCnt() );
+
+        EslMessage copy = result.copy();
+        assertEquals( "api/response", result.getContentType() );
+        assertTrue( ((ReferenceCounted) result).release() );
+
+        assertFalse( copy instanceof ReferenceCounted );
+        assertEquals( "api/response", copy.getContentType() );
+        assertEquals( 2, copy.getBodyLines().size() );
+        assertEquals( "second line", copy.getBodyLines().get( 1 ) );
+    }
+
+    @Test
+    public void streamedApiResponseBody() throws Exception
+    {
+        final List<String> lines = new ArrayList<>();
+        final int[] ends = new int[1];
+        final IEslBodyConsumer lineConsumer = IEslBodyConsumer.lines( lines::add );
+        embedder.attr( EslFrameDecoder.BODY_CONSUMERS ).set( () -> new IEslBodyConsumer()
+        {
+            @Override
+            public void onData( ByteBuf data ) throws Exception
+            {
+                lineConsumer.onData( data );
+            }
+
+            @Override
+            public void onEnd() throws Exception
+            {
+                ends[0]++;
+                lineConsumer.onEnd();
+            }
+        } );
+
+        List<String> inputLines = new ArrayList<>();
+        inputLines.add( "Content-Type: api/response" );
+        inputLines.add( "Content-Length: 33" );
+        inputLines.add( "" );
+        inputLines.add( "+OK first line" );
+        inputLines.add( "" );
+        inputLines.add( "second line" );
+        inputLines.add( "last" );
+        inputLines.add( "Content-Type: command/reply" );
+        inputLines.add( "Reply-Text: +OK" );
+        inputLines.add( "" );
+
+        // deliver the frames a few bytes per read, splitting lines
+        ByteBuf input = createInputBuffer(inputLines, true);
+        while ( input.isReadable() )
+        {
+            embedder.writeInbound(input.readRetainedSlice( Math.min( 5, input.readableBytes() ) ));
+            if ( ends[0] == 0 )
+            {
+                assertNull( embedder.readInbound() );
+            }
+        }
+        input.release();
+        embedder.finish();
+
+        EslMessage result = (EslMessage) embedder.readInbound();
+        assertEquals( "api/response", result.getContentType() );
+        assertEquals( Integer.valueOf( 33 ), result.getContentLength() );
+        assertTrue( result.getBodyLines().isEmpty() );
+        assertEquals( 1, ends[0] );
+        assertEquals( 4, lines.size() );
+        assertEquals( "+OK first line", lines.get( 0 ) );
+        assertEquals( "", lines.get( 1 ) );
+        assertEquals( "second line", lines.get( 2 ) );
+        assertEquals( "last", lines.get( 3 ) );
+
+        EslMessage next = (EslMessage) embedder.readInbound();
+        assertEquals( "+OK", next.getHeaderValue( EslHeaders.Name.REPLY_TEXT ) );
+    }
+
+    @Test
+    public void onlyApiResponseBodiesAreStreamed() throws Exception
+    {
+        embedder.attr( EslFrameDecoder.BODY_CONSUMERS ).set( () ->
+        {
+            throw new AssertionError( "asked for a consumer" );
+        } );
+
+        List<String> inputLines = new ArrayList<>();
+        inputLines.add( "Content-Type: text/event-plain" );
+        inputLines.add( "Content-Length: 21" );
+        inputLines.add( "" );
+        inputLines.add( "Event-Name: HEARTBEAT" );
+
+        embedder.writeInbound(createInputBuffer(inputLines, false));
+        embedder.finish();
+
+        EslMessage result = (EslMessage) embedder.readInbound();
+        assertEquals( 1, result.getBodyLines().size() );
+    }
+
+    @Test
+    public void utf8HeadersAndBody() throws Exception
+    {
+        final String body = "+OK Fran\u00e7ois\nM\u00fcller \u20ac\ud83d\ude00\n";
+        final String frame = "Content-Type: api/response\n"
+                + "Reply-Text: +OK Jos\u00e9\n"
+                + "Content-Length: " + body.getBytes( StandardCharsets.UTF_8 ).length + "\n\n" + body;
+
+        // deliver the frame one byte per read, splitting characters
+        ByteBuf input = Unpooled.copiedBuffer( frame, StandardCharsets.UTF_8 );
+        while ( input.isReadable() )
+        {
+            embedder.writeInbound(input.readRetainedSlice( 1 ));
+        }
+        input.release();
+
+        EslMessage result = (EslMessage) embedder.readInbound();
+        embedder.finish();
+
+        assertEquals( "+OK Jos\u00e9", result.getHeaderValue( EslHeaders.Name.REPLY_TEXT ) );
+        assertEquals( 2, result.getBodyLines().size() );
+        assertEquals( "+OK Fran\u00e7ois", result.getBodyLines().get( 0 ) );
+        assertEquals( "M\u00fcller \u20ac\ud83d\ude00", result.getBodyLines().get( 1 ) );
+    }
+
+    @Test
+    public void utf8StreamedBodyLines() throws Exception
+    {
+        final List<String> lines = new ArrayList<>();
+        embedder.attr( EslFrameDecoder.BODY_CONSUMERS ).set( () -> IEslBodyConsumer.lines( lines::add ) );
+
+        final String body = "\u00e9t\u00e9\n\u20ac\ud83d\ude00";
+        final String frame = "Content-Type: api/response\n"
+                + "Content-Length: " + body.getBytes( StandardCharsets.UTF_8 ).length + "\n\n" + body;
+
+        // deliver the frame one byte per read, splitting characters between parts of the body
+        ByteBuf input = Unpooled.copiedBuffer( frame, StandardCharsets.UTF_8 );
+        while ( input.isReadable() )
+        {
+            embedder.writeInbound(input.readRetainedSlice( 1 ));
+        }
+        input.release();
+        embedder.finish();
+
+        assertNotNull( embedder.readInbound() );
+        assertEquals( 2, lines.size() );
+        assertEquals( "\u00e9t\u00e9", lines.get( 0 ) );
+        assertEquals( "\u20ac\ud83d\ude00", lines.get( 1 ) );
+    }
+
+    @Test(expected = TooLongFrameException.class)
+    public void headerLineTooLong() throws Exception
+    {
+        List<String> inputLines = new ArrayList<>();
+        inputLines.add( "Reply-Text: +OK this reply text is far longer than the 64 bytes allowed per header line" );
+        inputLines.add( "" );
+
+        embedder.writeInbound(createInputBuffer(inputLines, true));
+    }
     
     private ByteBuf createInputBuffer( List<String> inputLines, boolean terminateLastLine )
     {